@@ -0,0 +1,3 @@
+-- 搜索模式为fulltext时需要的文章ngram全文索引，只需执行一次
+-- ngram分词长度默认为2（ngram_token_size），修改需要在my.cnf中配置并重建索引
+ALTER TABLE tb_article ADD FULLTEXT INDEX ft_article_title_content (article_title, article_content) WITH PARSER ngram;
@@ -0,0 +1,135 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.config.RedisConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分页读取点赞量、浏览量基准测试，对比只读当前页id和读取整个hash/zset
+ * 需要一个可以清空测试key的redis，默认连127.0.0.1:6379
+ * 运行：mvn -P jmh test-compile exec:exec -Djmh.args="RedisMultiGetBenchmark -p host=127.0.0.1 -p port=6379"
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisMultiGetBenchmark {
+
+    private static final String LIKE_COUNT_KEY = "benchmark:article_like_count";
+
+    private static final String VIEWS_COUNT_KEY = "benchmark:article_views_count";
+
+    /**
+     * 每次写入redis的条数
+     */
+    private static final int LOAD_BATCH_SIZE = 10000;
+
+    @Param("127.0.0.1")
+    private String host;
+
+    @Param("6379")
+    private int port;
+
+    /**
+     * hash和zset中的文章数
+     */
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    /**
+     * 每页文章数
+     */
+    @Param("10")
+    private int pageSize;
+
+    private LettuceConnectionFactory factory;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private RedisServiceImpl redisService;
+
+    private List<String> likeIdList;
+
+    private List<Integer> viewsIdList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        factory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(factory);
+        redisService = new RedisServiceImpl();
+        ReflectionTestUtils.setField(redisService, "redisTemplate", redisTemplate);
+        redisTemplate.delete(Arrays.asList(LIKE_COUNT_KEY, VIEWS_COUNT_KEY));
+        for (int start = 0; start < size; start += LOAD_BATCH_SIZE) {
+            int end = Math.min(start + LOAD_BATCH_SIZE, size);
+            Map<String, Object> likeCountMap = new HashMap<>((end - start) * 2);
+            Set<ZSetOperations.TypedTuple<Object>> viewsCountSet = new HashSet<>((end - start) * 2);
+            for (int id = start; id < end; id++) {
+                likeCountMap.put(String.valueOf(id), id % 100);
+                viewsCountSet.add(new DefaultTypedTuple<>(id, (double) (id % 1000)));
+            }
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    operations.opsForHash().putAll(LIKE_COUNT_KEY, likeCountMap);
+                    operations.opsForZSet().add(VIEWS_COUNT_KEY, viewsCountSet);
+                    return null;
+                }
+            });
+        }
+        // 取中间一页，避免只命中hash/zset开头
+        likeIdList = new ArrayList<>(pageSize);
+        viewsIdList = new ArrayList<>(pageSize);
+        for (int id = size / 2; id < size / 2 + pageSize; id++) {
+            likeIdList.add(String.valueOf(id));
+            viewsIdList.add(id);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisTemplate.delete(Arrays.asList(LIKE_COUNT_KEY, VIEWS_COUNT_KEY));
+        factory.destroy();
+    }
+
+    @Benchmark
+    public Map<String, Object> hMultiGet() {
+        return redisService.hMultiGet(LIKE_COUNT_KEY, likeIdList);
+    }
+
+    @Benchmark
+    public Map<String, Object> hGetAll() {
+        Map<String, Object> likeCountMap = redisService.hGetAll(LIKE_COUNT_KEY);
+        Map<String, Object> resultMap = new HashMap<>(pageSize * 2);
+        likeIdList.forEach(id -> resultMap.put(id, likeCountMap.get(id)));
+        return resultMap;
+    }
+
+    @Benchmark
+    public Map<Object, Double> zMultiScore() {
+        return redisService.zMultiScore(VIEWS_COUNT_KEY, viewsIdList);
+    }
+
+    @Benchmark
+    public Map<Object, Double> zAllScore() {
+        Map<Object, Double> viewsCountMap = redisService.zAllScore(VIEWS_COUNT_KEY);
+        Map<Object, Double> resultMap = new HashMap<>(pageSize * 2);
+        viewsIdList.forEach(id -> resultMap.put(id, viewsCountMap.get(id)));
+        return resultMap;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.minzheng.blog.strategy.impl;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文章搜索基准测试，对比mysql全文索引和like查询
+ * 在单独的tb_article_benchmark表中生成文章并建立ngram全文索引，不影响文章表，文章数不变时重复运行不会重新生成
+ * 运行：mvn -P jmh test-compile exec:exec -Djmh.args="ArticleSearchBenchmark -p url=jdbc:mysql://localhost:3306/blog -p username=root -p password=123456"
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArticleSearchBenchmark {
+
+    private static final String TABLE = "tb_article_benchmark";
+
+    private static final String[] WORDS = {"博客", "文章", "前端", "后端", "数据库", "缓存", "索引", "部署", "服务器", "性能",
+        "线程", "队列", "消息", "接口", "权限", "用户", "评论", "分页", "搜索", "配置", "日志", "容器", "网络", "算法"};
+
+    /**
+     * 只出现在千分之一文章中的关键词
+     */
+    private static final String RARE_WORD = "雪崩击穿";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Param("jdbc:mysql://localhost:3306/blog")
+    private String url;
+
+    @Param("root")
+    private String username;
+
+    @Param("123456")
+    private String password;
+
+    /**
+     * 文章数
+     */
+    @Param("100000")
+    private int size;
+
+    /**
+     * 每篇文章内容的词数
+     */
+    @Param("300")
+    private int contentWords;
+
+    /**
+     * 常见词和少见词
+     */
+    @Param({"数据库", RARE_WORD})
+    private String keywords;
+
+    private Connection connection;
+
+    private PreparedStatement fullTextStatement;
+
+    private PreparedStatement likeStatement;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(url + (url.contains("?") ? "&" : "?")
+            + "serverTimezone=Asia/Shanghai&rewriteBatchedStatements=true", username, password);
+        prepareTable();
+        // 与ArticleDao.xml中searchArticlesByFullText一致，取第一页
+        fullTextStatement = connection.prepareStatement("SELECT id, article_title,"
+            + " SUBSTRING(article_content, GREATEST(LOCATE(?, article_content) - 25, 1), 200) AS article_content"
+            + " FROM " + TABLE + " WHERE is_delete = 0 AND status = 1"
+            + " AND MATCH(article_title, article_content) AGAINST(? IN NATURAL LANGUAGE MODE)"
+            + " ORDER BY MATCH(article_title, article_content) AGAINST(? IN NATURAL LANGUAGE MODE) DESC LIMIT 0, 10");
+        fullTextStatement.setString(1, keywords);
+        fullTextStatement.setString(2, keywords);
+        fullTextStatement.setString(3, keywords);
+        // 与MySqlSearchStrategyImpl一致，读取全部匹配文章
+        likeStatement = connection.prepareStatement("SELECT id, article_title, article_content FROM " + TABLE
+            + " WHERE is_delete = 0 AND status = 1 AND (article_title LIKE ? OR article_content LIKE ?)");
+        likeStatement.setString(1, "%" + keywords + "%");
+        likeStatement.setString(2, "%" + keywords + "%");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void fullText(Blackhole blackhole) throws SQLException {
+        consume(fullTextStatement, blackhole);
+    }
+
+    @Benchmark
+    public void like(Blackhole blackhole) throws SQLException {
+        consume(likeStatement, blackhole);
+    }
+
+    private static void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getString(3));
+            }
+        }
+    }
+
+    /**
+     * 文章数不一致时重新生成，全文索引在插入完成后建立
+     */
+    private void prepareTable() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(1) FROM " + TABLE)) {
+                resultSet.next();
+                if (resultSet.getInt(1) == size) {
+                    return;
+                }
+            } catch (SQLException e) {
+                // 表不存在
+            }
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " ("
+                + "id int NOT NULL AUTO_INCREMENT,"
+                + "article_title varchar(50) NOT NULL,"
+                + "article_content longtext NOT NULL,"
+                + "is_delete tinyint(1) NOT NULL DEFAULT 0,"
+                + "status tinyint(1) NOT NULL DEFAULT 1,"
+                + "PRIMARY KEY (id)) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+        }
+        Random random = new Random(20261018L);
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + TABLE
+            + " (article_title, article_content) VALUES (?, ?)")) {
+            for (int i = 0; i < size; i++) {
+                statement.setString(1, text(random, 5, i));
+                statement.setString(2, text(random, contentWords, i));
+                statement.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0 || i == size - 1) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + TABLE + " ADD FULLTEXT INDEX ft_article_title_content"
+                + " (article_title, article_content) WITH PARSER ngram");
+        }
+    }
+
+    private static String text(Random random, int wordCount, int index) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (index % 1000 == 0) {
+            builder.insert(random.nextInt(builder.length()), RARE_WORD);
+        }
+        return builder.toString();
+    }
+
+}
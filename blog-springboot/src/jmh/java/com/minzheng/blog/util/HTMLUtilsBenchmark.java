@@ -0,0 +1,64 @@
+package com.minzheng.blog.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTML工具类基准测试，对比改为顺序扫描前后的实现
+ * 运行：mvn -P jmh test-compile exec:exec
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HTMLUtilsBenchmark {
+
+    /**
+     * comment：普通评论；hostile：大量不结束的标签
+     */
+    @Param({"comment", "hostile"})
+    private String input;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        if ("comment".equals(input)) {
+            for (int i = 0; i < 20; i++) {
+                builder.append("写得很好&nbsp;<img src=\"https://static.example.com/emoji/").append(i)
+                    .append(".png\" width=\"22\"> nice <b>post</b>\n");
+            }
+        } else {
+            for (int i = 0; i < 2000; i++) {
+                builder.append("<img a=\"");
+            }
+        }
+        source = builder.toString();
+    }
+
+    @Benchmark
+    public String filter() {
+        return HTMLUtils.filter(source);
+    }
+
+    @Benchmark
+    public String legacyFilter() {
+        return LegacyHTMLUtils.filter(source);
+    }
+
+    @Benchmark
+    public String deleteHTMLTag() {
+        return HTMLUtils.deleteHMTLTag(source);
+    }
+
+    @Benchmark
+    public String legacyDeleteHTMLTag() {
+        return LegacyHTMLUtils.deleteHMTLTag(source);
+    }
+
+}
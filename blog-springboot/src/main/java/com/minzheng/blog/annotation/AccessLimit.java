@@ -1,5 +1,7 @@
 package com.minzheng.blog.annotation;
 
+import com.minzheng.blog.enums.LimitTypeEnum;
+
 import java.lang.annotation.*;
 
 /**
@@ -23,4 +25,11 @@ public @interface AccessLimit {
      * @return int
      */
     int maxCount();
+
+    /**
+     * 限流维度，多个维度同时生效
+     *
+     * @return {@link LimitTypeEnum[]}
+     */
+    LimitTypeEnum[] limitType() default {LimitTypeEnum.IP};
 }
@@ -3,7 +3,7 @@ package com.minzheng.blog.annotation;
 import java.lang.annotation.*;
 
 /**
- * AOP 记录执行方法时间
+ * 记录方法耗时直方图，切入点见latency.pointcut
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -1,9 +1,8 @@
 package com.minzheng.blog.aspect;
 
-import com.alibaba.fastjson.JSON;
 import com.minzheng.blog.annotation.OptLog;
-import com.minzheng.blog.dao.OperationLogDao;
 import com.minzheng.blog.entity.OperationLog;
+import com.minzheng.blog.service.OperationLogQueueService;
 import com.minzheng.blog.util.IpUtils;
 import com.minzheng.blog.util.UserUtils;
 import io.swagger.annotations.Api;
@@ -17,9 +16,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -31,7 +35,7 @@ import java.util.Objects;
 public class OptLogAspect {
 
     @Autowired
-    private OperationLogDao operationLogDao;
+    private OperationLogQueueService operationLogQueueService;
 
     /**
      * 设置操作日志切入点 记录操作日志 在注解的位置切入代码
@@ -77,10 +81,6 @@ public class OptLogAspect {
         operationLog.setRequestMethod(Objects.requireNonNull(request).getMethod());
         // 请求方法
         operationLog.setOptMethod(methodName);
-        // 请求参数
-        operationLog.setRequestParam(JSON.toJSONString(joinPoint.getArgs()));
-        // 返回结果
-        operationLog.setResponseData(JSON.toJSONString(keys));
         // 请求用户ID
         operationLog.setUserId(UserUtils.getLoginUser().getId());
         // 请求用户
@@ -88,10 +88,24 @@ public class OptLogAspect {
         // 请求IP
         String ipAddress = IpUtils.getIpAddress(request);
         operationLog.setIpAddress(ipAddress);
-        operationLog.setIpSource(IpUtils.getIpSource(ipAddress));
         // 请求URL
         operationLog.setOptUrl(request.getRequestURI());
-        operationLogDao.insert(operationLog);
+        operationLog.setCreateTime(LocalDateTime.now());
+        // 请求参数、返回结果的序列化和ip归属地解析交给后台线程
+        operationLogQueueService.offer(operationLog, filterArgs(joinPoint.getArgs()), keys);
+    }
+
+    /**
+     * 请求结束后请求、响应和上传文件已不可用，替换成类名
+     *
+     * @param args 请求参数
+     * @return 可序列化的请求参数
+     */
+    private Object[] filterArgs(Object[] args) {
+        return Arrays.stream(args)
+            .map(arg -> arg instanceof ServletRequest || arg instanceof ServletResponse || arg instanceof MultipartFile
+                ? arg.getClass().getSimpleName() : arg)
+            .toArray();
     }
 
 }
@@ -23,5 +23,34 @@ public class CosConfigProperties {
 
     private String bucketName;
 
+    /**
+     * 自定义访问域名，为空时按地域生成；以http://开头时不使用https，用于兼容cos协议的私有存储
+     */
+    private String endpoint;
+
+    /**
+     * 最大连接数
+     */
+    private Integer maxConnections = 64;
+
+    /**
+     * 建立连接超时时间（毫秒）
+     */
+    private Integer connectionTimeout = 10000;
+
+    /**
+     * 读取超时时间（毫秒）
+     */
+    private Integer socketTimeout = 50000;
+
+    /**
+     * 空闲连接保持时间（毫秒）
+     */
+    private Integer idleConnectionTime = 60000;
+
+    /**
+     * 失败重试次数，重试间隔按指数退避
+     */
+    private Integer maxErrorRetry = 3;
 
 }
@@ -0,0 +1,83 @@
+package com.minzheng.blog.config;
+
+import com.minzheng.blog.handler.ContextTaskDecorator;
+import com.minzheng.blog.handler.RejectedCountHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置
+ * 异步任务不使用公共ForkJoinPool，按用途分开，阻塞的数据库、redis调用互不影响
+ *
+ */
+@Configuration
+public class ExecutorConfig {
+    @Autowired
+    private ExecutorConfigProperties executorConfigProperties;
+
+    /**
+     * 页面查询并发线程池
+     *
+     * @return {@link ThreadPoolTaskExecutor}
+     */
+    @Bean
+    public ThreadPoolTaskExecutor dbFanoutExecutor() {
+        return buildExecutor("db-fanout-", executorConfigProperties.getDbFanout());
+    }
+
+    /**
+     * 通知线程池
+     *
+     * @return {@link ThreadPoolTaskExecutor}
+     */
+    @Bean
+    public ThreadPoolTaskExecutor notificationExecutor() {
+        return buildExecutor("notification-", executorConfigProperties.getNotification());
+    }
+
+    /**
+     * 索引及后台写入线程池
+     *
+     * @return {@link ThreadPoolTaskExecutor}
+     */
+    @Bean
+    public ThreadPoolTaskExecutor indexingExecutor() {
+        return buildExecutor("indexing-", executorConfigProperties.getIndexing());
+    }
+
+    /**
+     * 图片处理线程池
+     *
+     * @return {@link ThreadPoolTaskExecutor}
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageExecutor() {
+        // 缩略图可以稍后补生成，队列满时直接拒绝，避免在上传请求线程里解码图片
+        return buildExecutor("image-", executorConfigProperties.getImage(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String threadNamePrefix, ExecutorConfigProperties.Pool pool) {
+        return buildExecutor(threadNamePrefix, pool, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String threadNamePrefix, ExecutorConfigProperties.Pool pool,
+                                                 RejectedExecutionHandler rejectedHandler) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(pool.getCoreSize());
+        executor.setMaxPoolSize(pool.getMaxSize());
+        executor.setQueueCapacity(pool.getQueueCapacity());
+        executor.setTaskDecorator(new ContextTaskDecorator());
+        executor.setRejectedExecutionHandler(new RejectedCountHandler(rejectedHandler));
+        // 关闭时等待已提交的任务执行完
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+}
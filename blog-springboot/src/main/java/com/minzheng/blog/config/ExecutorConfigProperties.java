@@ -0,0 +1,69 @@
+package com.minzheng.blog.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 线程池配置属性
+ *
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "executor")
+public class ExecutorConfigProperties {
+
+    /**
+     * 单个异步查询的超时时间（毫秒）
+     */
+    private Long timeout = 3000L;
+
+    /**
+     * 页面查询并发线程池
+     */
+    private Pool dbFanout = new Pool(8, 16, 200);
+
+    /**
+     * 通知线程池
+     */
+    private Pool notification = new Pool(2, 4, 500);
+
+    /**
+     * 索引及后台写入线程池
+     */
+    private Pool indexing = new Pool(2, 4, 1000);
+
+    /**
+     * 图片处理线程池，解码占内存，线程数要少
+     */
+    private Pool image = new Pool(1, 2, 200);
+
+    @Data
+    public static class Pool {
+
+        /**
+         * 核心线程数
+         */
+        private Integer coreSize;
+
+        /**
+         * 最大线程数
+         */
+        private Integer maxSize;
+
+        /**
+         * 队列容量
+         */
+        private Integer queueCapacity;
+
+        public Pool() {
+        }
+
+        public Pool(Integer coreSize, Integer maxSize, Integer queueCapacity) {
+            this.coreSize = coreSize;
+            this.maxSize = maxSize;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.minzheng.blog.config;
+
+import com.minzheng.blog.handler.LatencyInterceptor;
+import com.minzheng.blog.service.LatencyService;
+import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 耗时统计配置
+ * 切入点由配置决定，默认只统计加了@Timer的方法，可以配置成所有控制器和dao
+ *
+ */
+@Configuration
+public class LatencyConfig {
+
+    /**
+     * 耗时统计切入点
+     */
+    @Value("${latency.pointcut:@annotation(com.minzheng.blog.annotation.Timer)}")
+    private String pointcut;
+
+    /**
+     * 耗时统计切面
+     *
+     * @param latencyService 耗时统计服务
+     * @return {@link AspectJExpressionPointcutAdvisor}
+     */
+    @Bean
+    public AspectJExpressionPointcutAdvisor latencyAdvisor(LatencyService latencyService) {
+        AspectJExpressionPointcutAdvisor advisor = new AspectJExpressionPointcutAdvisor();
+        advisor.setExpression(pointcut);
+        advisor.setAdvice(new LatencyInterceptor(latencyService));
+        return advisor;
+    }
+
+}
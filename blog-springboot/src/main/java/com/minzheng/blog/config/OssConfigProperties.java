@@ -40,4 +40,29 @@ public class OssConfigProperties {
      */
     private String bucketName;
 
+    /**
+     * 最大连接数
+     */
+    private Integer maxConnections = 64;
+
+    /**
+     * 建立连接超时时间（毫秒）
+     */
+    private Integer connectionTimeout = 10000;
+
+    /**
+     * 读取超时时间（毫秒）
+     */
+    private Integer socketTimeout = 50000;
+
+    /**
+     * 空闲连接保持时间（毫秒）
+     */
+    private Integer idleConnectionTime = 60000;
+
+    /**
+     * 失败重试次数，重试间隔按指数退避
+     */
+    private Integer maxErrorRetry = 3;
+
 }
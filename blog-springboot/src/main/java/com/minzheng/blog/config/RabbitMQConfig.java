@@ -1,6 +1,10 @@
 package com.minzheng.blog.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -27,6 +31,42 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(articleQueue()).to(maxWellExchange());
     }
 
+    @Bean
+    public Queue maxWellDeadLetterQueue() {
+        return new Queue(MAXWELL_DEAD_LETTER_QUEUE, true);
+    }
+
+    @Bean
+    public FanoutExchange maxWellDeadLetterExchange() {
+        return new FanoutExchange(MAXWELL_DEAD_LETTER_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Binding bindingMaxWellDeadLetter() {
+        return BindingBuilder.bind(maxWellDeadLetterQueue()).to(maxWellDeadLetterExchange());
+    }
+
+    /**
+     * maxwell批量消费容器，攒够batchSize条或receiveTimeout内没有新消息时交给监听器，手动确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory maxWellContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                        ConnectionFactory connectionFactory,
+                                                                        @Value("${maxwell.batch-size:100}") int batchSize,
+                                                                        @Value("${maxwell.receive-timeout:1000}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        // 失败由监听器自己退避后重新入队，不走全局的重试
+        factory.setAdviceChain();
+        return factory;
+    }
+
     @Bean
     public Queue emailQueue() {
         return new Queue(EMAIL_QUEUE, true);
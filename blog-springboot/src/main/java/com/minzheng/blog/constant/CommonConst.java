@@ -37,6 +37,11 @@ public class CommonConst {
      */
     public static final String SIZE = "size";
 
+    /**
+     * 分页游标
+     */
+    public static final String CURSOR = "cursor";
+
     /**
      * 博主id
      */
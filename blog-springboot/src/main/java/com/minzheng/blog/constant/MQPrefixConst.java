@@ -19,6 +19,16 @@ public class MQPrefixConst {
      */
     public static final String MAXWELL_QUEUE = "maxwell_queue";
 
+    /**
+     * maxwell死信交换机
+     */
+    public static final String MAXWELL_DEAD_LETTER_EXCHANGE = "maxwell_dead_letter_exchange";
+
+    /**
+     * maxwell死信队列
+     */
+    public static final String MAXWELL_DEAD_LETTER_QUEUE = "maxwell_dead_letter_queue";
+
     /**
      * email交换机
      */
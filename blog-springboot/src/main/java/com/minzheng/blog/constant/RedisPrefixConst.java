@@ -26,6 +26,16 @@ public class RedisPrefixConst {
      */
     public static final String ARTICLE_VIEWS_COUNT = "article_views_count";
 
+    /**
+     * 文章详情
+     */
+    public static final String ARTICLE_DETAIL = "article_detail:";
+
+    /**
+     * 文章详情版本号，文章修改时递增
+     */
+    public static final String ARTICLE_DETAIL_VERSION = "article_detail_version:";
+
     /**
      * 文章点赞量
      */
@@ -86,4 +96,64 @@ public class RedisPrefixConst {
      */
     public static final String UNIQUE_VISITOR = "unique_visitor";
 
+    /**
+     * 接口限流
+     */
+    public static final String ACCESS_LIMIT = "access_limit:";
+
+    /**
+     * es重建索引进度
+     */
+    public static final String ES_REINDEX = "es_reindex";
+
+    /**
+     * 分片上传任务
+     */
+    public static final String CHUNK_UPLOAD = "chunk_upload:";
+
+    /**
+     * 分片上传已上传分片
+     */
+    public static final String CHUNK_UPLOAD_PART = "chunk_upload_part:";
+
+    /**
+     * 文件对应的分片上传任务
+     */
+    public static final String CHUNK_UPLOAD_FILE = "chunk_upload_file:";
+
+    /**
+     * 已上传文件索引
+     */
+    public static final String UPLOAD_FILE = "upload_file:";
+
+    /**
+     * 已上传文件索引构建时间，存在时说明索引完整
+     */
+    public static final String UPLOAD_FILE_INDEX = "upload_file_index:";
+
+    /**
+     * 图片缩略图srcset
+     */
+    public static final String IMAGE_VARIANT = "image_variant";
+
+    /**
+     * 聊天室消息频道
+     */
+    public static final String CHAT_CHANNEL = "chat_channel";
+
+    /**
+     * 聊天室节点心跳时间
+     */
+    public static final String CHAT_NODE = "chat_node";
+
+    /**
+     * 聊天室各节点连接数
+     */
+    public static final String CHAT_ONLINE = "chat_online";
+
+    /**
+     * 聊天记录id分配
+     */
+    public static final String CHAT_RECORD_ID = "chat_record_id";
+
 }
@@ -1,16 +1,44 @@
 package com.minzheng.blog.consumer;
 
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson.JSON;
-import com.minzheng.blog.dao.ElasticsearchDao;
+import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.minzheng.blog.dto.ArticleSearchDTO;
 import com.minzheng.blog.dto.MaxwellDataDTO;
-import com.minzheng.blog.entity.Article;
-import com.minzheng.blog.util.BeanCopyUtils;
-import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import com.minzheng.blog.dto.MaxwellMetricsDTO;
+import com.minzheng.blog.service.LatencyService;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.minzheng.blog.constant.MQPrefixConst.MAXWELL_DEAD_LETTER_EXCHANGE;
 import static com.minzheng.blog.constant.MQPrefixConst.MAXWELL_QUEUE;
 
 /**
@@ -18,35 +46,329 @@ import static com.minzheng.blog.constant.MQPrefixConst.MAXWELL_QUEUE;
  * MQ消费端
  * 解析maxwell数据
  * 使用maxwell实时同步mysql数据到消息队列(rabbitMQ)--》es从消息队列获取mysql数据的变化--》也对es的数据进行相应的变化
+ * 批量消费，同一篇文章的多次变更只保留最后一次，整批用一个bulk请求写入es后一起确认；
+ * 解析失败或es拒绝的消息转入死信队列；es不可用（网络异常、5xx、429）时退避后整批重新入队，
+ * 重试超过maxwell.max-retries次或请求本身被拒绝（4xx、文档转换失败）时整批转入死信队列
  *
  */
+@Slf4j
 @Component
-@RabbitListener(queues = MAXWELL_QUEUE)
 public class MaxWellConsumer {
     @Autowired
-    private ElasticsearchDao elasticsearchDao;
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+    @Autowired
+    private RestHighLevelClient restHighLevelClient;
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private LatencyService latencyService;
+
+    /**
+     * 文章表
+     */
+    private static final String ARTICLE_TABLE = "tb_article";
+
+    private static final String DELETE = "delete";
+
+    /**
+     * 写入es的操作类型
+     */
+    private static final Set<String> INDEX_TYPES = new HashSet<>(Arrays.asList("insert", "update", "bootstrap-insert"));
+
+    /**
+     * 延迟在耗时统计中的名称
+     */
+    private static final String LAG_METRIC_NAME = "MaxWellConsumer.lag";
+
+    /**
+     * es写入失败后重新入队前的等待时间（毫秒）
+     */
+    @Value("${maxwell.retry-interval:5000}")
+    private long retryInterval;
+
+    /**
+     * es不可用时同一条消息最多重新入队次数，超过后转入死信队列
+     */
+    @Value("${maxwell.max-retries:60}")
+    private int maxRetries;
+
+    /**
+     * 消息重新入队次数，按消息内容的md5记录，确认后移除
+     * 重新入队的消息头不能修改，只能在本地计数
+     */
+    private final Cache<String, Integer> retryCountCache = Caffeine.newBuilder()
+        .maximumSize(100000)
+        .expireAfterWrite(1, TimeUnit.DAYS)
+        .build();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder messageCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder skippedCount = new LongAdder();
+
+    private final LongAdder indexedCount = new LongAdder();
+
+    private final LongAdder deletedCount = new LongAdder();
+
+    private final LongAdder deadLetterCount = new LongAdder();
+
+    private final LongAdder failedBatchCount = new LongAdder();
+
+    private volatile int lastBatchSize;
+
+    private volatile long lastLag;
+
+    private volatile long maxLag;
 
     //todo rabbit mq maxwell监听数据
-    @RabbitHandler
-    public void process(byte[] data) {
-        // 获取监听信息
-        MaxwellDataDTO maxwellDataDTO = JSON.parseObject(new String(data), MaxwellDataDTO.class);
-        // 获取文章数据
-        Article article = JSON.parseObject(JSON.toJSONString(maxwellDataDTO.getData()), Article.class);
-        // 判断操作类型
-        switch (maxwellDataDTO.getType()) {
-            case "insert":
-            case "update":
-                // 更新es文章
-                elasticsearchDao.save(BeanCopyUtils.copyObject(article, ArticleSearchDTO.class));
-                break;
-            case "delete":
-                // 删除文章
-                elasticsearchDao.deleteById(article.getId());
-                break;
-            default:
-                break;
-        }
-    }
-
-}
\ No newline at end of file
+    @RabbitListener(queues = MAXWELL_QUEUE, containerFactory = "maxWellContainerFactory")
+    public void process(List<Message> messageList, Channel channel) throws IOException {
+        long deliveryTag = messageList.get(messageList.size() - 1).getMessageProperties().getDeliveryTag();
+        batchCount.increment();
+        messageCount.add(messageList.size());
+        lastBatchSize = messageList.size();
+        List<Message> deadLetterList = new ArrayList<>();
+        // 按文章id合并变更，保留最后一次
+        Map<Integer, Change> changeMap = new LinkedHashMap<>();
+        for (Message message : messageList) {
+            Change change;
+            try {
+                change = parse(message);
+            } catch (Exception e) {
+                log.warn("maxwell消息解析失败:{}", e.getMessage());
+                deadLetterList.add(message);
+                continue;
+            }
+            if (Objects.isNull(change)) {
+                skippedCount.increment();
+                continue;
+            }
+            Change previous = changeMap.remove(change.article.getId());
+            if (Objects.nonNull(previous)) {
+                change.messageList.addAll(0, previous.messageList);
+                coalescedCount.add(previous.messageList.size());
+            }
+            changeMap.put(change.article.getId(), change);
+        }
+        try {
+            if (!changeMap.isEmpty()) {
+                deadLetterList.addAll(bulk(new ArrayList<>(changeMap.values())));
+            }
+        } catch (Exception e) {
+            failedBatchCount.increment();
+            if (isRetryable(e) && !exceedsMaxRetries(messageList)) {
+                log.error(StrUtil.format("maxwell同步es失败,稍后重试,消息数:{},堆栈:{}", messageList.size(), ExceptionUtil.stacktraceToString(e)));
+                requeue(channel, deliveryTag);
+                return;
+            }
+            log.error(StrUtil.format("maxwell同步es失败,转入死信队列,消息数:{},堆栈:{}", messageList.size(), ExceptionUtil.stacktraceToString(e)));
+            changeMap.values().forEach(change -> deadLetterList.addAll(change.messageList));
+        }
+        try {
+            deadLetterList.forEach(message -> rabbitTemplate.send(MAXWELL_DEAD_LETTER_EXCHANGE, "*", message));
+        } catch (AmqpException e) {
+            log.error(StrUtil.format("maxwell消息转入死信队列失败,稍后重试,消息数:{},堆栈:{}", deadLetterList.size(), ExceptionUtil.stacktraceToString(e)));
+            requeue(channel, deliveryTag);
+            return;
+        }
+        deadLetterCount.add(deadLetterList.size());
+        channel.basicAck(deliveryTag, true);
+        messageList.forEach(message -> retryCountCache.invalidate(DigestUtils.md5Hex(message.getBody())));
+    }
+
+    /**
+     * 退避后整批重新入队
+     */
+    private void requeue(Channel channel, long deliveryTag) throws IOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(retryInterval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.basicNack(deliveryTag, true, true);
+    }
+
+    /**
+     * 只有es不可用时重试：网络异常、5xx或429，请求本身被拒绝（其他4xx）或文档转换失败重试也不会成功
+     *
+     * @param e 异常
+     * @return 是否可以重试
+     */
+    static boolean isRetryable(Exception e) {
+        if (e instanceof ElasticsearchException) {
+            return isRetryableStatus(((ElasticsearchException) e).status().getStatus());
+        }
+        if (e instanceof ResponseException) {
+            return isRetryableStatus(((ResponseException) e).getResponse().getStatusLine().getStatusCode());
+        }
+        return e instanceof IOException;
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * 记录本批消息的重新入队次数
+     *
+     * @param messageList 消息
+     * @return 是否有消息超过最多重试次数
+     */
+    private boolean exceedsMaxRetries(List<Message> messageList) {
+        boolean exceeded = false;
+        for (Message message : messageList) {
+            String key = DigestUtils.md5Hex(message.getBody());
+            int retryCount = Boolean.TRUE.equals(message.getMessageProperties().getRedelivered())
+                ? retryCountCache.asMap().merge(key, 1, Integer::sum)
+                : 1;
+            if (retryCount == 1) {
+                retryCountCache.put(key, 1);
+            }
+            exceeded |= retryCount > maxRetries;
+        }
+        return exceeded;
+    }
+
+    /**
+     * 查看同步指标
+     *
+     * @return {@link MaxwellMetricsDTO} 同步指标
+     */
+    public MaxwellMetricsDTO getMetrics() {
+        return MaxwellMetricsDTO.builder()
+            .batchCount(batchCount.sum())
+            .messageCount(messageCount.sum())
+            .coalescedCount(coalescedCount.sum())
+            .skippedCount(skippedCount.sum())
+            .indexedCount(indexedCount.sum())
+            .deletedCount(deletedCount.sum())
+            .deadLetterCount(deadLetterCount.sum())
+            .failedBatchCount(failedBatchCount.sum())
+            .lastBatchSize(lastBatchSize)
+            .lastLag(lastLag)
+            .maxLag(maxLag)
+            .build();
+    }
+
+    /**
+     * 解析消息，数据直接转换为es文档，不再经过中间对象
+     *
+     * @param message 消息
+     * @return 文章变更，非文章表或不需要同步的操作返回null
+     */
+    private Change parse(Message message) {
+        MaxwellDataDTO maxwellDataDTO = JSON.parseObject(message.getBody(), MaxwellDataDTO.class);
+        if (!ARTICLE_TABLE.equals(maxwellDataDTO.getTable())
+            || !(DELETE.equals(maxwellDataDTO.getType()) || INDEX_TYPES.contains(maxwellDataDTO.getType()))) {
+            return null;
+        }
+        ArticleSearchDTO article = new JSONObject(maxwellDataDTO.getData()).toJavaObject(ArticleSearchDTO.class);
+        Objects.requireNonNull(article.getId(), "文章id为空");
+        return new Change(maxwellDataDTO.getType(), article, maxwellDataDTO.getTs(), message);
+    }
+
+    /**
+     * 整批变更用一个bulk请求写入es
+     *
+     * @param changeList 合并后的变更
+     * @return 转换失败或es拒绝的变更对应的消息
+     * @throws IOException es不可用
+     */
+    private List<Message> bulk(List<Change> changeList) throws IOException {
+        String index = elasticsearchRestTemplate.getIndexCoordinatesFor(ArticleSearchDTO.class).getIndexName();
+        BulkRequest bulkRequest = new BulkRequest();
+        List<Message> rejectedList = new ArrayList<>();
+        List<Change> requestChangeList = new ArrayList<>(changeList.size());
+        for (Change change : changeList) {
+            String id = change.article.getId().toString();
+            if (DELETE.equals(change.type)) {
+                bulkRequest.add(new DeleteRequest(index, id));
+            } else {
+                String source;
+                try {
+                    source = elasticsearchRestTemplate.getElasticsearchConverter().mapObject(change.article).toJson();
+                } catch (Exception e) {
+                    log.warn("maxwell文章转换es文档失败,文章id:{},原因:{}", change.article.getId(), e.getMessage());
+                    rejectedList.addAll(change.messageList);
+                    continue;
+                }
+                bulkRequest.add(new IndexRequest(index).id(id).source(source, XContentType.JSON));
+            }
+            requestChangeList.add(change);
+        }
+        if (requestChangeList.isEmpty()) {
+            return rejectedList;
+        }
+        BulkResponse bulkResponse = restHighLevelClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+        long now = System.currentTimeMillis();
+        BulkItemResponse[] items = bulkResponse.getItems();
+        for (int i = 0; i < items.length; i++) {
+            Change change = requestChangeList.get(i);
+            if (items[i].isFailed()) {
+                log.warn("maxwell同步es被拒绝,文章id:{},原因:{}", change.article.getId(), items[i].getFailureMessage());
+                rejectedList.addAll(change.messageList);
+                continue;
+            }
+            if (items[i].getOpType() == DocWriteRequest.OpType.DELETE) {
+                deletedCount.increment();
+            } else {
+                indexedCount.increment();
+            }
+            if (Objects.nonNull(change.ts)) {
+                recordLag(now - TimeUnit.SECONDS.toMillis(change.ts));
+            }
+        }
+        return rejectedList;
+    }
+
+    /**
+     * 记录binlog时间到写入es的延迟
+     *
+     * @param lag 延迟（毫秒）
+     */
+    private void recordLag(long lag) {
+        lag = Math.max(lag, 0);
+        lastLag = lag;
+        if (lag > maxLag) {
+            maxLag = lag;
+        }
+        latencyService.record(LAG_METRIC_NAME, TimeUnit.MILLISECONDS.toNanos(lag));
+    }
+
+    /**
+     * 文章变更
+     */
+    private static class Change {
+
+        /**
+         * 操作类型
+         */
+        private final String type;
+
+        /**
+         * 变更后的文章
+         */
+        private final ArticleSearchDTO article;
+
+        /**
+         * binlog时间（秒）
+         */
+        private final Integer ts;
+
+        /**
+         * 合并到此变更的消息
+         */
+        private final List<Message> messageList = new ArrayList<>(1);
+
+        Change(String type, ArticleSearchDTO article, Integer ts, Message message) {
+            this.type = type;
+            this.article = article;
+            this.ts = ts;
+            this.messageList.add(message);
+        }
+    }
+
+}
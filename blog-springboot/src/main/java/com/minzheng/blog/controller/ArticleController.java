@@ -3,14 +3,14 @@ package com.minzheng.blog.controller;
 
 import com.minzheng.blog.annotation.OptLog;
 import com.minzheng.blog.annotation.Timer;
-import com.minzheng.blog.dao.ElasticsearchDao;
 import com.minzheng.blog.dto.*;
-import com.minzheng.blog.entity.Article;
 import com.minzheng.blog.enums.FilePathEnum;
 import com.minzheng.blog.service.ArticleService;
+import com.minzheng.blog.service.ArticleViewsCountService;
+import com.minzheng.blog.service.EsReindexService;
+import com.minzheng.blog.service.SearchSuggestService;
 import com.minzheng.blog.strategy.context.ArticleImportStrategyContext;
 import com.minzheng.blog.strategy.context.UploadStrategyContext;
-import com.minzheng.blog.util.BeanCopyUtils;
 import com.minzheng.blog.vo.*;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiImplicitParam;
@@ -38,7 +38,11 @@ public class ArticleController {
     @Autowired
     private ArticleImportStrategyContext articleImportStrategyContext;
     @Autowired
-    private ElasticsearchDao elasticsearchDao;
+    private EsReindexService esReindexService;
+    @Autowired
+    private SearchSuggestService searchSuggestService;
+    @Autowired
+    private ArticleViewsCountService articleViewsCountService;
 
     /**
      * 查看文章归档
@@ -156,6 +160,17 @@ public class ArticleController {
         return Result.ok(articleService.getArticleBackById(articleId));
     }
 
+    /**
+     * 查看文章浏览量缓冲指标
+     *
+     * @return {@link Result<ArticleViewsMetricsDTO>} 缓冲指标
+     */
+    @ApiOperation(value = "查看文章浏览量缓冲指标")
+    @GetMapping("/admin/articles/views/metrics")
+    public Result<ArticleViewsMetricsDTO> getArticleViewsMetrics() {
+        return Result.ok(articleViewsCountService.getMetrics());
+    }
+
     /**
      * 前台根据id查看文章
      *
@@ -182,14 +197,27 @@ public class ArticleController {
     }
 
     /**
-     * 先删除全部数据，再重新导入数据
+     * 重建es索引
+     *
+     * @param resume 是否从上次失败的检查点继续
+     * @return {@link Result<EsReindexProgressDTO>} 重建进度
+     */
+    @ApiOperation(value = "重建es索引")
+    @ApiImplicitParam(name = "resume", value = "是否从检查点继续", dataType = "Boolean")
+    @PostMapping("/admin/articles/elasticsearch/reindex")
+    public Result<EsReindexProgressDTO> reindex(@RequestParam(defaultValue = "false") Boolean resume) {
+        return Result.ok(esReindexService.reindex(resume));
+    }
+
+    /**
+     * 查看es索引重建进度
+     *
+     * @return {@link Result<EsReindexProgressDTO>} 重建进度
      */
-    public void importDataIntoES() {
-        elasticsearchDao.deleteAll();
-        List<Article> articles = articleService.list();
-        for (Article article : articles) {
-            elasticsearchDao.save(BeanCopyUtils.copyObject(article, ArticleSearchDTO.class));
-        }
+    @ApiOperation(value = "查看es索引重建进度")
+    @GetMapping("/admin/articles/elasticsearch/reindex")
+    public Result<EsReindexProgressDTO> getReindexProgress() {
+        return Result.ok(esReindexService.getProgress());
     }
 
     /**
@@ -206,6 +234,19 @@ public class ArticleController {
         return Result.ok(articleService.listArticlesBySearch(condition));
     }
 
+    /**
+     * 搜索提示
+     *
+     * @param keywords 已输入的内容
+     * @return {@link Result<String>} 文章标题和标签
+     */
+    @ApiOperation(value = "搜索提示")
+    @ApiImplicitParam(name = "keywords", value = "已输入的内容", required = true, dataType = "String")
+    @GetMapping("/articles/search/suggestions")
+    public Result<List<String>> listSearchSuggestions(String keywords) {
+        return Result.ok(searchSuggestService.listSuggestions(keywords));
+    }
+
     /**
      * 点赞文章
      *
@@ -0,0 +1,116 @@
+package com.minzheng.blog.controller;
+
+import com.minzheng.blog.dto.ChunkUploadDTO;
+import com.minzheng.blog.service.ChunkUploadService;
+import com.minzheng.blog.service.UploadIndexService;
+import com.minzheng.blog.strategy.context.UploadStrategyContext;
+import com.minzheng.blog.vo.ChunkUploadVO;
+import com.minzheng.blog.vo.Result;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+
+/**
+ * 分片上传控制器
+ * 分片以请求体原样上传，不经过multipart解析，边读边写入存储
+ *
+ */
+@Api(tags = "分片上传模块")
+@RestController
+public class ChunkUploadController {
+    @Autowired
+    private ChunkUploadService chunkUploadService;
+    @Autowired
+    private UploadIndexService uploadIndexService;
+    @Autowired
+    private UploadStrategyContext uploadStrategyContext;
+
+    /**
+     * 初始化分片上传
+     *
+     * @param chunkUploadVO 分片上传信息
+     * @return {@link Result<ChunkUploadDTO>} 分片上传任务
+     */
+    @ApiOperation(value = "初始化分片上传")
+    @PostMapping("/admin/uploads")
+    public Result<ChunkUploadDTO> initiateChunkUpload(@Valid @RequestBody ChunkUploadVO chunkUploadVO) {
+        return Result.ok(chunkUploadService.initiateChunkUpload(chunkUploadVO));
+    }
+
+    /**
+     * 上传分片
+     *
+     * @param uploadId    上传id
+     * @param chunkNumber 分片序号
+     * @param md5         分片md5
+     * @param request     请求，请求体为分片内容
+     * @return {@link Result<>}
+     */
+    @ApiOperation(value = "上传分片")
+    @ApiImplicitParam(name = "chunkNumber", value = "分片序号，从1开始", required = true, dataType = "Integer")
+    @PutMapping("/admin/uploads/{uploadId}/chunks/{chunkNumber}")
+    public Result<?> uploadChunk(@PathVariable("uploadId") String uploadId, @PathVariable("chunkNumber") Integer chunkNumber,
+                                 @RequestParam(value = "md5", required = false) String md5, HttpServletRequest request) throws IOException {
+        chunkUploadService.uploadChunk(uploadId, chunkNumber, md5, request.getInputStream());
+        return Result.ok();
+    }
+
+    /**
+     * 查看分片上传任务
+     *
+     * @param uploadId 上传id
+     * @return {@link Result<ChunkUploadDTO>} 分片上传任务
+     */
+    @ApiOperation(value = "查看已上传分片")
+    @ApiImplicitParam(name = "uploadId", value = "上传id", required = true, dataType = "String")
+    @GetMapping("/admin/uploads/{uploadId}")
+    public Result<ChunkUploadDTO> getChunkUpload(@PathVariable("uploadId") String uploadId) {
+        return Result.ok(chunkUploadService.getChunkUpload(uploadId));
+    }
+
+    /**
+     * 合并分片
+     *
+     * @param uploadId 上传id
+     * @return {@link Result<String>} 文件地址
+     */
+    @ApiOperation(value = "合并分片")
+    @ApiImplicitParam(name = "uploadId", value = "上传id", required = true, dataType = "String")
+    @PostMapping("/admin/uploads/{uploadId}/complete")
+    public Result<String> completeChunkUpload(@PathVariable("uploadId") String uploadId) {
+        return Result.ok(chunkUploadService.completeChunkUpload(uploadId));
+    }
+
+    /**
+     * 取消分片上传
+     *
+     * @param uploadId 上传id
+     * @return {@link Result<>}
+     */
+    @ApiOperation(value = "取消分片上传")
+    @ApiImplicitParam(name = "uploadId", value = "上传id", required = true, dataType = "String")
+    @DeleteMapping("/admin/uploads/{uploadId}")
+    public Result<?> abortChunkUpload(@PathVariable("uploadId") String uploadId) {
+        chunkUploadService.abortChunkUpload(uploadId);
+        return Result.ok();
+    }
+
+    /**
+     * 重建上传索引
+     *
+     * @return {@link Result<>}
+     */
+    @ApiOperation(value = "列出存储中的文件重建上传索引")
+    @PostMapping("/admin/uploads/index")
+    public Result<?> rebuildUploadIndex() {
+        uploadIndexService.rebuild(uploadStrategyContext.getUploadStrategy());
+        return Result.ok();
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.minzheng.blog.controller;
+
+import com.minzheng.blog.dto.AccessLimitMetricsDTO;
+import com.minzheng.blog.dto.ChatBroadcastMetricsDTO;
+import com.minzheng.blog.dto.ExecutorMetricsDTO;
+import com.minzheng.blog.dto.LatencyMetricsDTO;
+import com.minzheng.blog.dto.MaxwellMetricsDTO;
+import com.minzheng.blog.dto.OperationLogMetricsDTO;
+import com.minzheng.blog.dto.UploadMetricsDTO;
+import com.minzheng.blog.service.MonitorService;
+import com.minzheng.blog.vo.Result;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 监控控制器
+ * 接口都在/admin/monitor下，未在tb_resource登记时也只允许管理员访问
+ *
+ */
+@Api(tags = "监控模块")
+@RestController
+public class MonitorController {
+    @Autowired
+    private MonitorService monitorService;
+
+    /**
+     * 查看线程池指标
+     *
+     * @return {@link Result<ExecutorMetricsDTO>} 线程池指标
+     */
+    @ApiOperation(value = "查看线程池指标")
+    @GetMapping("/admin/monitor/executors")
+    public Result<List<ExecutorMetricsDTO>> listExecutorMetrics() {
+        return Result.ok(monitorService.listExecutorMetrics());
+    }
+
+    /**
+     * 查看接口限流指标
+     *
+     * @return {@link Result<AccessLimitMetricsDTO>} 限流指标
+     */
+    @ApiOperation(value = "查看接口限流指标")
+    @GetMapping("/admin/monitor/access-limits")
+    public Result<AccessLimitMetricsDTO> getAccessLimitMetrics() {
+        return Result.ok(monitorService.getAccessLimitMetrics());
+    }
+
+    /**
+     * 查看操作日志队列指标
+     *
+     * @return {@link Result<OperationLogMetricsDTO>} 队列指标
+     */
+    @ApiOperation(value = "查看操作日志队列指标")
+    @GetMapping("/admin/monitor/operation-logs")
+    public Result<OperationLogMetricsDTO> getOperationLogMetrics() {
+        return Result.ok(monitorService.getOperationLogMetrics());
+    }
+
+    /**
+     * 查看方法和接口耗时指标
+     *
+     * @return {@link Result<LatencyMetricsDTO>} 耗时指标
+     */
+    @ApiOperation(value = "查看方法和接口耗时指标")
+    @GetMapping("/admin/monitor/latencies")
+    public Result<List<LatencyMetricsDTO>> listLatencyMetrics() {
+        return Result.ok(monitorService.listLatencyMetrics());
+    }
+
+    /**
+     * 查看maxwell同步指标
+     *
+     * @return {@link Result<MaxwellMetricsDTO>} 同步指标
+     */
+    @ApiOperation(value = "查看maxwell同步指标")
+    @GetMapping("/admin/monitor/maxwell")
+    public Result<MaxwellMetricsDTO> getMaxwellMetrics() {
+        return Result.ok(monitorService.getMaxwellMetrics());
+    }
+
+    /**
+     * 查看上传指标
+     *
+     * @return {@link Result<UploadMetricsDTO>} 上传指标
+     */
+    @ApiOperation(value = "查看上传指标")
+    @GetMapping("/admin/monitor/uploads")
+    public Result<List<UploadMetricsDTO>> listUploadMetrics() {
+        return Result.ok(monitorService.listUploadMetrics());
+    }
+
+    /**
+     * 查看聊天室广播指标
+     *
+     * @return {@link Result<ChatBroadcastMetricsDTO>} 广播指标
+     */
+    @ApiOperation(value = "查看聊天室广播指标")
+    @GetMapping("/admin/monitor/chat")
+    public Result<ChatBroadcastMetricsDTO> getChatBroadcastMetrics() {
+        return Result.ok(monitorService.getChatBroadcastMetrics());
+    }
+
+}
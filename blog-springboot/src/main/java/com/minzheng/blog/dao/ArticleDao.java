@@ -4,7 +4,9 @@ import com.minzheng.blog.dto.*;
 import com.minzheng.blog.entity.Article;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.minzheng.blog.vo.ConditionVO;
+import com.minzheng.blog.util.PageCursor;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -42,9 +44,10 @@ public interface ArticleDao extends BaseMapper<Article> {
      * @param current   页码
      * @param size      大小
      * @param condition 条件
+     * @param cursor    分页游标
      * @return 文章列表
      */
-    List<ArticlePreviewDTO> listArticlesByCondition(@Param("current") Long current, @Param("size") Long size, @Param("condition") ConditionVO condition);
+    List<ArticlePreviewDTO> listArticlesByCondition(@Param("current") Long current, @Param("size") Long size, @Param("condition") ConditionVO condition, @Param("cursor") PageCursor cursor);
 
     /**
      * 查询后台文章
@@ -52,9 +55,10 @@ public interface ArticleDao extends BaseMapper<Article> {
      * @param current   页码
      * @param size      大小
      * @param condition 条件
+     * @param cursor    分页游标
      * @return 文章列表
      */
-    List<ArticleBackDTO> listArticleBacks(@Param("current") Long current, @Param("size") Long size, @Param("condition") ConditionVO condition);
+    List<ArticleBackDTO> listArticleBacks(@Param("current") Long current, @Param("size") Long size, @Param("condition") ConditionVO condition, @Param("cursor") PageCursor cursor);
 
     /**
      * 查询后台文章总量
@@ -79,4 +83,26 @@ public interface ArticleDao extends BaseMapper<Article> {
      */
     List<ArticleStatisticsDTO> listArticleStatistics();
 
+    /**
+     * 流式读取文章搜索数据，按id升序
+     *
+     * @param lastId 从该id之后开始读取
+     * @return {@link Cursor<ArticleSearchDTO>} 文章游标
+     */
+    Cursor<ArticleSearchDTO> cursorArticleSearch(@Param("lastId") Integer lastId);
+
+    /**
+     * 全文索引搜索公开文章，按相关度排序，内容只返回关键词附近的片段
+     *
+     * @param keywords      关键字
+     * @param preLength     片段中关键词前面的字数
+     * @param snippetLength 片段长度
+     * @param current       偏移量
+     * @param size          条数
+     * @return {@link List<ArticleSearchDTO>} 文章列表
+     */
+    List<ArticleSearchDTO> searchArticlesByFullText(@Param("keywords") String keywords, @Param("preLength") Integer preLength,
+                                                    @Param("snippetLength") Integer snippetLength,
+                                                    @Param("current") Long current, @Param("size") Long size);
+
 }
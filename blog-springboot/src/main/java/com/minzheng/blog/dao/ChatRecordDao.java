@@ -2,8 +2,11 @@ package com.minzheng.blog.dao;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.minzheng.blog.entity.ChatRecord;
+import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * 聊天记录
  *
@@ -12,4 +15,13 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface ChatRecordDao extends BaseMapper<ChatRecord> {
+
+    /**
+     * 多行插入聊天记录，id已分配，重复插入时忽略
+     *
+     * @param chatRecordList 聊天记录列表
+     * @return 影响行数
+     */
+    int insertBatch(@Param("chatRecordList") List<ChatRecord> chatRecordList);
+
 }
@@ -5,6 +5,7 @@ import com.minzheng.blog.entity.Comment;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.minzheng.blog.vo.CommentVO;
 import com.minzheng.blog.vo.ConditionVO;
+import com.minzheng.blog.util.PageCursor;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
@@ -26,9 +27,10 @@ public interface CommentDao extends BaseMapper<Comment> {
      * @param current   当前页码
      * @param size      大小
      * @param commentVO 评论信息
+     * @param cursor    分页游标
      * @return 评论集合
      */
-    List<CommentDTO> listComments(@Param("current") Long current, @Param("size") Long size, @Param("commentVO") CommentVO commentVO);
+    List<CommentDTO> listComments(@Param("current") Long current, @Param("size") Long size, @Param("commentVO") CommentVO commentVO, @Param("cursor") PageCursor cursor);
 
     /**
      * 根据评论的id集合查询回复数据replyDTOList
@@ -2,8 +2,11 @@ package com.minzheng.blog.dao;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.minzheng.blog.entity.OperationLog;
+import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 /**
  * 操作日志
@@ -11,4 +14,13 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface OperationLogDao extends BaseMapper<OperationLog> {
+
+    /**
+     * 多行插入操作日志
+     *
+     * @param operationLogList 操作日志列表
+     * @return 插入行数
+     */
+    int insertBatch(@Param("operationLogList") List<OperationLog> operationLogList);
+
 }
@@ -5,6 +5,7 @@ import com.minzheng.blog.dto.TalkDTO;
 import com.minzheng.blog.entity.Talk;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.minzheng.blog.vo.ConditionVO;
+import com.minzheng.blog.util.PageCursor;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
@@ -24,9 +25,10 @@ public interface TalkDao extends BaseMapper<Talk> {
      *
      * @param current 页码
      * @param size    大小
+     * @param cursor  分页游标
      * @return {@link List<TalkDTO>}
      */
-    List<TalkDTO> listTalks(@Param("current") Long current, @Param("size") Long size);
+    List<TalkDTO> listTalks(@Param("current") Long current, @Param("size") Long size, @Param("cursor") PageCursor cursor);
 
     /**
      * 查看后台说说
@@ -0,0 +1,40 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 接口限流指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessLimitMetricsDTO {
+
+    /**
+     * 本地预过滤拒绝次数
+     */
+    private Long localRejectCount;
+
+    /**
+     * redis限流拒绝次数
+     */
+    private Long redisRejectCount;
+
+    /**
+     * redis异常次数
+     */
+    private Long redisErrorCount;
+
+    /**
+     * 各接口各维度的拒绝次数，key为 接口:维度
+     */
+    private Map<String, Long> rejectCountMap;
+
+}
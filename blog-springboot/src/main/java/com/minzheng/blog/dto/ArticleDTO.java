@@ -1,5 +1,7 @@
 package com.minzheng.blog.dto;
 
+import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -111,4 +113,11 @@ public class ArticleDTO {
      */
     private List<ArticleRecommendDTO> hotArticleList;
 
+    /**
+     * 推荐、最新或热门文章查询超时或失败，结果不完整，不写入redis，本地只短时间缓存
+     */
+    @JsonIgnore
+    @JSONField(serialize = false, deserialize = false)
+    private boolean degraded;
+
 }
@@ -31,6 +31,11 @@ public class ArticleHomeDTO {
      */
     private String articleCover;
 
+    /**
+     * 文章缩略图srcset
+     */
+    private String articleCoverSrcSet;
+
     /**
      * 标题
      */
@@ -28,4 +28,9 @@ public class ArticlePreviewListDTO {
      */
     private String name;
 
+    /**
+     * 下一页游标
+     */
+    private String nextCursor;
+
 }
@@ -0,0 +1,48 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 文章浏览量缓冲指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ArticleViewsMetricsDTO {
+
+    /**
+     * 未刷入redis的浏览量
+     */
+    private Long pendingCount;
+
+    /**
+     * 距上次刷入的毫秒数
+     */
+    private Long flushLag;
+
+    /**
+     * 上次刷入耗时（毫秒）
+     */
+    private Long lastFlushCost;
+
+    /**
+     * 上次刷入的文章数
+     */
+    private Integer lastBatchSize;
+
+    /**
+     * 累计刷入次数
+     */
+    private Long flushCount;
+
+    /**
+     * 累计刷入失败次数
+     */
+    private Long flushFailCount;
+
+}
@@ -0,0 +1,53 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 聊天室广播指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatBroadcastMetricsDTO {
+
+    /**
+     * 连接数
+     */
+    private Integer connectionCount;
+
+    /**
+     * 分片数
+     */
+    private Integer shardCount;
+
+    /**
+     * 各连接待发送消息总数
+     */
+    private Integer queuedCount;
+
+    /**
+     * 单个连接最大待发送消息数
+     */
+    private Integer maxQueueDepth;
+
+    /**
+     * 已发送消息数
+     */
+    private Long sentCount;
+
+    /**
+     * 发送失败数
+     */
+    private Long failedCount;
+
+    /**
+     * 因消息堆积断开的连接数
+     */
+    private Long droppedCount;
+
+}
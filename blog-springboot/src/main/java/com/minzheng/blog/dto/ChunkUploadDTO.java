@@ -0,0 +1,45 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分片上传任务
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkUploadDTO {
+
+    /**
+     * 上传id，文件已存在时为空
+     */
+    private String uploadId;
+
+    /**
+     * 分片大小
+     */
+    private Long chunkSize;
+
+    /**
+     * 分片数
+     */
+    private Integer chunkCount;
+
+    /**
+     * 已上传的分片序号
+     */
+    private List<Integer> uploadedChunkList;
+
+    /**
+     * 文件地址，上传完成后才有
+     */
+    private String url;
+
+}
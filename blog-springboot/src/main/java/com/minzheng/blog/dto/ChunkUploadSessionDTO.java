@@ -0,0 +1,58 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 分片上传会话，保存在redis中，服务重启后可以继续上传
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkUploadSessionDTO {
+
+    /**
+     * 上传id
+     */
+    private String uploadId;
+
+    /**
+     * 文件路径
+     */
+    private String filePath;
+
+    /**
+     * 暂存路径，分片合并到这里，校验md5后再移动到文件路径
+     */
+    private String stagingPath;
+
+    /**
+     * 客户端声明的整个文件md5
+     */
+    private String md5;
+
+    /**
+     * 存储端的分片上传id
+     */
+    private String partUploadId;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小
+     */
+    private Long chunkSize;
+
+    /**
+     * 分片数
+     */
+    private Integer chunkCount;
+
+}
@@ -0,0 +1,75 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * es重建索引进度
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EsReindexProgressDTO {
+
+    /**
+     * 新索引名
+     */
+    private String index;
+
+    /**
+     * 状态 running运行中 completed已完成 failed失败
+     */
+    private String status;
+
+    /**
+     * 文章总数
+     */
+    private Long total;
+
+    /**
+     * 已写入文档数
+     */
+    private Long indexed;
+
+    /**
+     * 写入失败文档数
+     */
+    private Long failed;
+
+    /**
+     * 检查点，该id及之前的文章都已写入
+     */
+    private Integer lastId;
+
+    /**
+     * 检查点及之前的文章写入的文档数，从检查点继续时以此为已写入数
+     */
+    private Long checkpointIndexed;
+
+    /**
+     * 写入速度（条/秒）
+     */
+    private Double throughput;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime endTime;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+}
@@ -0,0 +1,63 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 线程池指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecutorMetricsDTO {
+
+    /**
+     * 线程池名
+     */
+    private String name;
+
+    /**
+     * 核心线程数
+     */
+    private Integer corePoolSize;
+
+    /**
+     * 最大线程数
+     */
+    private Integer maxPoolSize;
+
+    /**
+     * 当前线程数
+     */
+    private Integer poolSize;
+
+    /**
+     * 执行中的任务数
+     */
+    private Integer activeCount;
+
+    /**
+     * 队列中的任务数
+     */
+    private Integer queueSize;
+
+    /**
+     * 队列剩余容量
+     */
+    private Integer queueRemainingCapacity;
+
+    /**
+     * 已完成任务数
+     */
+    private Long completedTaskCount;
+
+    /**
+     * 拒绝次数
+     */
+    private Long rejectedCount;
+
+}
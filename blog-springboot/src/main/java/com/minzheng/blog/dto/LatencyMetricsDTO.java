@@ -0,0 +1,63 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 耗时指标，耗时单位毫秒
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatencyMetricsDTO {
+
+    /**
+     * 方法名或接口路由
+     */
+    private String name;
+
+    /**
+     * 总调用次数
+     */
+    private Long count;
+
+    /**
+     * 平均耗时
+     */
+    private Double mean;
+
+    /**
+     * 50分位耗时
+     */
+    private Double p50;
+
+    /**
+     * 90分位耗时
+     */
+    private Double p90;
+
+    /**
+     * 99分位耗时
+     */
+    private Double p99;
+
+    /**
+     * 最大耗时
+     */
+    private Double max;
+
+    /**
+     * 最近一个统计周期的调用次数
+     */
+    private Long intervalCount;
+
+    /**
+     * 最近一个统计周期的99分位耗时
+     */
+    private Double intervalP99;
+
+}
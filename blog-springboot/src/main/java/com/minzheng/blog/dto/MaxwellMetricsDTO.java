@@ -0,0 +1,73 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * maxwell同步指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MaxwellMetricsDTO {
+
+    /**
+     * 已处理批次数
+     */
+    private Long batchCount;
+
+    /**
+     * 已接收消息数
+     */
+    private Long messageCount;
+
+    /**
+     * 被同一文章后续变更合并掉的消息数
+     */
+    private Long coalescedCount;
+
+    /**
+     * 非文章表跳过的消息数
+     */
+    private Long skippedCount;
+
+    /**
+     * 写入es的文档数
+     */
+    private Long indexedCount;
+
+    /**
+     * 从es删除的文档数
+     */
+    private Long deletedCount;
+
+    /**
+     * 转入死信队列的消息数
+     */
+    private Long deadLetterCount;
+
+    /**
+     * 写入失败重新入队的批次数
+     */
+    private Long failedBatchCount;
+
+    /**
+     * 最近一批消息数
+     */
+    private Integer lastBatchSize;
+
+    /**
+     * 最近一批binlog到写入es的延迟（毫秒）
+     */
+    private Long lastLag;
+
+    /**
+     * 最大延迟（毫秒）
+     */
+    private Long maxLag;
+
+}
@@ -0,0 +1,73 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 操作日志队列指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OperationLogMetricsDTO {
+
+    /**
+     * 队列中待写入的日志数
+     */
+    private Integer queueSize;
+
+    /**
+     * 队列剩余容量
+     */
+    private Integer remainingCapacity;
+
+    /**
+     * 已写入数据库的日志数
+     */
+    private Long writtenCount;
+
+    /**
+     * 丢弃的日志数
+     */
+    private Long droppedCount;
+
+    /**
+     * 写入溢出文件的日志数
+     */
+    private Long spilledCount;
+
+    /**
+     * 从溢出文件补写的日志数
+     */
+    private Long replayedCount;
+
+    /**
+     * 写入失败的批次数
+     */
+    private Long failedBatchCount;
+
+    /**
+     * 溢出文件中解析失败跳过的行数
+     */
+    private Long skippedLineCount;
+
+    /**
+     * 移入死信文件的日志数
+     */
+    private Long deadLetterCount;
+
+    /**
+     * 最近一批日志数
+     */
+    private Integer lastBatchSize;
+
+    /**
+     * 最近一批写入耗时（毫秒）
+     */
+    private Long lastFlushCost;
+
+}
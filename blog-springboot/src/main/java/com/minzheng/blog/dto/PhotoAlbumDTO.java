@@ -37,4 +37,9 @@ public class PhotoAlbumDTO {
      */
     private String albumCover;
 
+    /**
+     * 相册封面srcset
+     */
+    private String albumCoverSrcSet;
+
 }
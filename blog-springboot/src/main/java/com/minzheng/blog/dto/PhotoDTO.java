@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 照片dto
@@ -34,4 +35,9 @@ public class PhotoDTO {
      */
     private List<String> photoList;
 
+    /**
+     * 照片和相册封面地址对应的srcset，没有缩略图的不在其中
+     */
+    private Map<String, String> srcSetMap;
+
 }
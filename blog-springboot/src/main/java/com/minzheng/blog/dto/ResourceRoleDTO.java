@@ -28,6 +28,11 @@ public class ResourceRoleDTO {
      */
     private String requestMethod;
 
+    /**
+     * 是否匿名访问
+     */
+    private Integer isAnonymous;
+
     /**
      * 角色名
      */
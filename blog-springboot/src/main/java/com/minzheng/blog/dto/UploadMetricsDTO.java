@@ -0,0 +1,60 @@
+package com.minzheng.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上传指标
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadMetricsDTO {
+
+    /**
+     * 上传策略
+     */
+    private String name;
+
+    /**
+     * 上传次数
+     */
+    private Long count;
+
+    /**
+     * 失败次数
+     */
+    private Long failedCount;
+
+    /**
+     * 上传字节数
+     */
+    private Long bytes;
+
+    /**
+     * 平均吞吐量（MB/s）
+     */
+    private Double throughput;
+
+    /**
+     * 最近一次吞吐量（MB/s）
+     */
+    private Double lastThroughput;
+
+    /**
+     * 最近一次失败原因
+     */
+    private String lastError;
+
+    /**
+     * 最近一次失败时间
+     */
+    private LocalDateTime lastErrorTime;
+
+}
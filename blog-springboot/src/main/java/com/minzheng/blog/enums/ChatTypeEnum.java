@@ -35,7 +35,11 @@ public enum ChatTypeEnum {
     /**
      * 心跳消息
      */
-    HEART_BEAT(6,"心跳消息");
+    HEART_BEAT(6,"心跳消息"),
+    /**
+     * 更早的聊天记录
+     */
+    OLDER_RECORD(7, "更早的聊天记录");
 
     /**
      * 类型
@@ -0,0 +1,36 @@
+package com.minzheng.blog.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 限流维度枚举
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum LimitTypeEnum {
+    /**
+     * 按ip限流
+     */
+    IP("ip", "ip"),
+    /**
+     * 按用户限流，未登录时按ip
+     */
+    USER("user", "用户"),
+    /**
+     * 接口全局限流
+     */
+    GLOBAL("global", "全局");
+
+    /**
+     * 类型
+     */
+    private final String type;
+
+    /**
+     * 描述
+     */
+    private final String desc;
+
+}
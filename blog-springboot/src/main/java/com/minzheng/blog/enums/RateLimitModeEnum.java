@@ -0,0 +1,47 @@
+package com.minzheng.blog.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 限流模式枚举
+ *
+ */
+@Getter
+@AllArgsConstructor
+public enum RateLimitModeEnum {
+    /**
+     * 令牌桶
+     */
+    TOKEN_BUCKET("token-bucket", "tokenBucketRateLimitStrategyImpl"),
+    /**
+     * 滑动窗口
+     */
+    SLIDING_WINDOW("sliding-window", "slidingWindowRateLimitStrategyImpl");
+
+    /**
+     * 模式
+     */
+    private final String mode;
+
+    /**
+     * 策略
+     */
+    private final String strategy;
+
+    /**
+     * 获取策略
+     *
+     * @param mode 模式
+     * @return {@link String} 限流策略
+     */
+    public static String getStrategy(String mode) {
+        for (RateLimitModeEnum value : RateLimitModeEnum.values()) {
+            if (value.getMode().equals(mode)) {
+                return value.getStrategy();
+            }
+        }
+        return null;
+    }
+
+}
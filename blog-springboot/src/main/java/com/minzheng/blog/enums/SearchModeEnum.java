@@ -19,7 +19,15 @@ public enum SearchModeEnum {
     /**
      * elasticsearch
      */
-    ELASTICSEARCH("elasticsearch", "esSearchStrategyImpl");
+    ELASTICSEARCH("elasticsearch", "esSearchStrategyImpl"),
+    /**
+     * 本地lucene索引
+     */
+    LUCENE("lucene", "luceneSearchStrategyImpl"),
+    /**
+     * mysql全文索引
+     */
+    FULLTEXT("fulltext", "fullTextSearchStrategyImpl");
 
     /**
      * 模式
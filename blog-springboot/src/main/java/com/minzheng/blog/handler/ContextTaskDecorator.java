@@ -0,0 +1,57 @@
+package com.minzheng.blog.handler;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.minzheng.blog.util.PageUtils;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Objects;
+
+/**
+ * 线程池任务装饰器，把提交线程的分页参数、游标和登录信息带到工作线程；
+ * 线程池满时任务由提交线程执行，执行完要恢复提交线程原来的上下文而不是清除
+ *
+ */
+public class ContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        // 不能用getPage，会在没有分页参数的定时任务线程上留下默认分页
+        Page<?> page = PageUtils.peekPage();
+        String cursor = PageUtils.getCursorParam();
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        return () -> {
+            Page<?> previousPage = PageUtils.peekPage();
+            String previousCursor = PageUtils.getCursorParam();
+            SecurityContext previousContext = SecurityContextHolder.getContext();
+            PageUtils.setCurrentPage(page);
+            PageUtils.setCursorParam(cursor);
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                runnable.run();
+            } finally {
+                restore(previousPage, previousCursor, previousContext);
+            }
+        };
+    }
+
+    /**
+     * 恢复执行线程原来的上下文，工作线程原来没有上下文，相当于清除
+     */
+    private static void restore(Page<?> page, String cursor, SecurityContext securityContext) {
+        PageUtils.remove();
+        if (Objects.nonNull(page)) {
+            PageUtils.setCurrentPage(page);
+        }
+        if (Objects.nonNull(cursor)) {
+            PageUtils.setCursorParam(cursor);
+        }
+        if (Objects.nonNull(securityContext.getAuthentication())) {
+            SecurityContextHolder.setContext(securityContext);
+        } else {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+}
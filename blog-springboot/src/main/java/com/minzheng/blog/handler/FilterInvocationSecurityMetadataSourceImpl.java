@@ -1,19 +1,18 @@
 package com.minzheng.blog.handler;
 
 import com.minzheng.blog.dao.RoleDao;
-import com.minzheng.blog.dto.ResourceRoleDTO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.ConfigAttribute;
-import org.springframework.security.access.SecurityConfig;
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.access.intercept.FilterInvocationSecurityMetadataSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.CollectionUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.PostConstruct;
 import java.util.Collection;
-import java.util.List;
+import java.util.Objects;
 
 /**
  * 接口拦截规则
@@ -25,51 +24,66 @@ import java.util.List;
 public class FilterInvocationSecurityMetadataSourceImpl implements FilterInvocationSecurityMetadataSource {
 
     /**
-     * 资源角色列表
+     * 接口角色索引，组件和安全配置里的实例共用
      */
-    private static List<ResourceRoleDTO> resourceRoleList;
+    private static volatile ResourceRoleIndex resourceRoleIndex;
 
     @Autowired
     private RoleDao roleDao;
 
+    /**
+     * 缓存的请求方式+路径匹配结果数
+     */
+    @Value("${security.match-cache-size:10000}")
+    private long matchCacheSize;
+
+    /**
+     * 后台接口路径模式，没有登记的只允许admin-role访问
+     */
+    @Value("${security.admin-pattern:/admin/**}")
+    private String adminPattern;
+
+    /**
+     * 没有登记的后台接口需要的角色
+     */
+    @Value("${security.admin-role:admin}")
+    private String adminRole;
+
     /**
      * 加载资源角色信息
      */
     @PostConstruct
     private void loadDataSource() {
-        resourceRoleList = roleDao.listResourceRoles();
+        // 新索引建好后再替换，查询线程要么用旧索引要么用新索引
+        resourceRoleIndex = new ResourceRoleIndex(roleDao.listResourceRoles(), matchCacheSize, adminPattern, adminRole);
     }
 
     /**
-     * 清空接口角色信息
+     * 重新加载接口角色信息，在事务中调用时等事务提交后再加载
      */
-    public void clearDataSource() {
-        resourceRoleList = null;
+    public void reloadDataSource() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    loadDataSource();
+                }
+            });
+            return;
+        }
+        loadDataSource();
     }
 
     @Override
     public Collection<ConfigAttribute> getAttributes(Object object) throws IllegalArgumentException {
-        // 修改接口角色关系后重新加载
-        if (CollectionUtils.isEmpty(resourceRoleList)) {
+        ResourceRoleIndex index = resourceRoleIndex;
+        if (Objects.isNull(index)) {
             this.loadDataSource();
+            index = resourceRoleIndex;
         }
         FilterInvocation fi = (FilterInvocation) object;
-        // 获取用户请求方式
-        String method = fi.getRequest().getMethod();
-        // 获取用户请求Url
-        String url = fi.getRequest().getRequestURI();
-        AntPathMatcher antPathMatcher = new AntPathMatcher();
-        // 获取接口角色信息，若为匿名接口则放行，若无对应角色则禁止
-        for (ResourceRoleDTO resourceRoleDTO : resourceRoleList) {
-            if (antPathMatcher.match(resourceRoleDTO.getUrl(), url) && resourceRoleDTO.getRequestMethod().equals(method)) {
-                List<String> roleList = resourceRoleDTO.getRoleList();
-                if (CollectionUtils.isEmpty(roleList)) {
-                    return SecurityConfig.createList("disable");
-                }
-                return SecurityConfig.createList(roleList.toArray(new String[]{}));
-            }
-        }
-        return null;
+        // 获取接口角色信息，若为匿名接口则放行，若无对应角色则禁止，没有登记的后台接口只允许管理员
+        return index.getAttributes(fi.getRequest().getMethod(), fi.getRequest().getRequestURI());
     }
 
     @Override
@@ -0,0 +1,95 @@
+package com.minzheng.blog.handler;
+
+import com.minzheng.blog.service.LatencyService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法耗时拦截器
+ * 记录 类名.方法名 的耗时，控制器方法再按 请求方式+路由 记录一份
+ *
+ */
+public class LatencyInterceptor implements MethodInterceptor {
+
+    private final LatencyService latencyService;
+
+    /**
+     * 方法对应的统计名，避免每次调用拼接字符串
+     */
+    private final Map<Class<?>, Map<Method, String>> nameMap = new ConcurrentHashMap<>();
+
+    /**
+     * 是否控制器
+     */
+    private final Map<Class<?>, Boolean> controllerMap = new ConcurrentHashMap<>();
+
+    public LatencyInterceptor(LatencyService latencyService) {
+        this.latencyService = latencyService;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            Class<?> targetClass = getTargetClass(invocation);
+            latencyService.record(getName(targetClass, invocation.getMethod()), nanos);
+            if (controllerMap.computeIfAbsent(targetClass, key -> AnnotatedElementUtils.hasAnnotation(key, Controller.class))) {
+                recordRoute(nanos);
+            }
+        }
+    }
+
+    /**
+     * 按路由记录控制器耗时
+     *
+     * @param nanos 耗时
+     */
+    private void recordRoute(long nanos) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes instanceof ServletRequestAttributes) {
+            Object pattern = requestAttributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (Objects.nonNull(pattern)) {
+                latencyService.record(((ServletRequestAttributes) requestAttributes).getRequest().getMethod() + " " + pattern, nanos);
+            }
+        }
+    }
+
+    private String getName(Class<?> targetClass, Method method) {
+        return nameMap.computeIfAbsent(targetClass, key -> new ConcurrentHashMap<>(16))
+            .computeIfAbsent(method, key -> targetClass.getSimpleName() + "." + key.getName());
+    }
+
+    /**
+     * mapper是jdk代理，取其实现的dao接口
+     *
+     * @param invocation 调用
+     * @return 目标类
+     */
+    private Class<?> getTargetClass(MethodInvocation invocation) {
+        if (Objects.isNull(invocation.getThis())) {
+            return invocation.getMethod().getDeclaringClass();
+        }
+        Class<?> targetClass = AopUtils.getTargetClass(invocation.getThis());
+        if (Proxy.isProxyClass(targetClass) && targetClass.getInterfaces().length > 0) {
+            return targetClass.getInterfaces()[0];
+        }
+        return targetClass;
+    }
+
+}
@@ -22,8 +22,15 @@ public class PageableHandlerInterceptor implements HandlerInterceptor {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         String currentPage = request.getParameter(CURRENT);
         String pageSize = Optional.ofNullable(request.getParameter(SIZE)).orElse(DEFAULT_SIZE);
+        String cursor = request.getParameter(CURSOR);
         if (!StringUtils.isNullOrEmpty(currentPage)) {
             PageUtils.setCurrentPage(new Page<>(Long.parseLong(currentPage), Long.parseLong(pageSize)));
+        } else if (!StringUtils.isNullOrEmpty(cursor)) {
+            PageUtils.setCurrentPage(new Page<>(1, Long.parseLong(pageSize)));
+        }
+        if (!StringUtils.isNullOrEmpty(cursor)) {
+            // 游标在支持游标分页的接口里按各自的排序方式解析，其余接口仍按页码查
+            PageUtils.setCursorParam(cursor);
         }
         return true;
     }
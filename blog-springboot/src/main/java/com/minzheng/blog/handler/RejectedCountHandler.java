@@ -0,0 +1,47 @@
+package com.minzheng.blog.handler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程池拒绝策略，记录拒绝次数后交给委托策略处理，默认由提交线程执行
+ *
+ */
+@Slf4j
+public class RejectedCountHandler implements RejectedExecutionHandler {
+
+    /**
+     * 拒绝次数
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * 委托的拒绝策略
+     */
+    private final RejectedExecutionHandler delegate;
+
+    public RejectedCountHandler() {
+        this(new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public RejectedCountHandler(RejectedExecutionHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        long count = rejectedCount.incrementAndGet();
+        if (count % 100 == 1) {
+            log.warn("线程池队列已满,拒绝策略:{},累计拒绝次数:{}", delegate.getClass().getSimpleName(), count);
+        }
+        delegate.rejectedExecution(runnable, executor);
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.minzheng.blog.handler;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.minzheng.blog.dto.ResourceRoleDTO;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * 接口角色索引
+ * 资源按请求方式分组，路径按段建成前缀树，查询只走和请求路径匹配的分支，
+ * 命中的候选再用AntPathMatcher确认，保证和逐条匹配的结果一致；
+ * 没有登记的后台接口只允许管理员访问，漏登记时默认拒绝而不是放行
+ *
+ */
+public class ResourceRoleIndex {
+
+    /**
+     * 路径分隔符
+     */
+    private static final String SEPARATOR = "/";
+
+    /**
+     * 多段通配
+     */
+    private static final String DOUBLE_WILDCARD = "**";
+
+    /**
+     * 未匹配到资源的占位，caffeine不能缓存null
+     */
+    private static final Optional<Collection<ConfigAttribute>> NO_MATCH = Optional.empty();
+
+    /**
+     * AntPathMatcher线程安全且会缓存解析后的模式，全局共用一个
+     */
+    private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+
+    /**
+     * 请求方式对应的前缀树
+     */
+    private final Map<String, Node> rootMap = new HashMap<>(16);
+
+    /**
+     * 请求方式+路径的匹配结果
+     */
+    private final Cache<String, Optional<Collection<ConfigAttribute>>> matchCache;
+
+    /**
+     * 后台接口路径模式
+     */
+    private final String adminPattern;
+
+    /**
+     * 没有登记的后台接口需要的角色
+     */
+    private final Optional<Collection<ConfigAttribute>> adminAttributes;
+
+    /**
+     * @param resourceRoleList 资源角色
+     * @param cacheSize        缓存的匹配结果数
+     * @param adminPattern     后台接口路径模式
+     * @param adminRole        没有登记的后台接口需要的角色
+     */
+    public ResourceRoleIndex(List<ResourceRoleDTO> resourceRoleList, long cacheSize, String adminPattern, String adminRole) {
+        this.adminPattern = adminPattern;
+        this.adminAttributes = Optional.of(SecurityConfig.createList(adminRole));
+        for (int i = 0; i < resourceRoleList.size(); i++) {
+            ResourceRoleDTO resourceRoleDTO = resourceRoleList.get(i);
+            if (Objects.isNull(resourceRoleDTO.getUrl()) || Objects.isNull(resourceRoleDTO.getRequestMethod())) {
+                continue;
+            }
+            Node node = rootMap.computeIfAbsent(resourceRoleDTO.getRequestMethod(), key -> new Node());
+            for (String segment : tokenize(resourceRoleDTO.getUrl())) {
+                node = node.child(segment);
+            }
+            // 匿名接口也要登记，否则匿名的后台接口会落到管理员规则
+            Collection<ConfigAttribute> attributes = Objects.equals(resourceRoleDTO.getIsAnonymous(), 1)
+                ? null : createAttributes(resourceRoleDTO.getRoleList());
+            node.entryList.add(new Entry(i, resourceRoleDTO.getUrl(), attributes));
+        }
+        matchCache = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /**
+     * 查询接口需要的角色
+     *
+     * @param method 请求方式
+     * @param url    请求路径
+     * @return 角色，匿名接口和没有登记的前台接口返回null，无对应角色返回disable
+     */
+    public Collection<ConfigAttribute> getAttributes(String method, String url) {
+        return matchCache.get(method + " " + url, key -> match(method, url)).orElse(null);
+    }
+
+    /**
+     * 在前缀树中查找候选资源，按资源原有顺序取第一个确认匹配的
+     *
+     * @param method 请求方式
+     * @param url    请求路径
+     * @return 角色
+     */
+    private Optional<Collection<ConfigAttribute>> match(String method, String url) {
+        Node root = rootMap.get(method);
+        if (Objects.nonNull(root)) {
+            TreeMap<Integer, Entry> candidateMap = new TreeMap<>();
+            collect(root, tokenize(url), 0, candidateMap);
+            for (Entry entry : candidateMap.values()) {
+                if (ANT_PATH_MATCHER.match(entry.pattern, url)) {
+                    return Optional.ofNullable(entry.attributes);
+                }
+            }
+        }
+        return ANT_PATH_MATCHER.match(adminPattern, url) ? adminAttributes : NO_MATCH;
+    }
+
+    /**
+     * 深度遍历和请求路径各段匹配的分支，收集候选资源
+     *
+     * @param node         当前节点
+     * @param segments     请求路径各段
+     * @param index        当前段下标
+     * @param candidateMap 候选资源，key为资源顺序
+     */
+    private void collect(Node node, String[] segments, int index, Map<Integer, Entry> candidateMap) {
+        if (Objects.nonNull(node.doubleWildcard)) {
+            // **可以匹配剩余的任意段数
+            for (int i = index; i <= segments.length; i++) {
+                collect(node.doubleWildcard, segments, i, candidateMap);
+            }
+        }
+        if (index == segments.length) {
+            node.entryList.forEach(entry -> candidateMap.putIfAbsent(entry.order, entry));
+            return;
+        }
+        Node literal = node.literalMap.get(segments[index]);
+        if (Objects.nonNull(literal)) {
+            collect(literal, segments, index + 1, candidateMap);
+        }
+        if (Objects.nonNull(node.wildcard)) {
+            collect(node.wildcard, segments, index + 1, candidateMap);
+        }
+    }
+
+    /**
+     * 按分隔符拆分路径，规则和AntPathMatcher一致，忽略空段
+     *
+     * @param path 路径
+     * @return 各段
+     */
+    private static String[] tokenize(String path) {
+        return StringUtils.tokenizeToStringArray(path, SEPARATOR, false, true);
+    }
+
+    /**
+     * 生成角色配置
+     *
+     * @param roleList 角色列表
+     * @return 角色配置
+     */
+    private static Collection<ConfigAttribute> createAttributes(List<String> roleList) {
+        if (CollectionUtils.isEmpty(roleList)) {
+            return SecurityConfig.createList("disable");
+        }
+        return SecurityConfig.createList(roleList.toArray(new String[]{}));
+    }
+
+    /**
+     * 前缀树节点
+     */
+    private static class Node {
+
+        /**
+         * 固定段子节点
+         */
+        private final Map<String, Node> literalMap = new HashMap<>(4);
+
+        /**
+         * 单段通配子节点，包括*、?和{变量}，具体是否匹配由AntPathMatcher确认
+         */
+        private Node wildcard;
+
+        /**
+         * 多段通配子节点
+         */
+        private Node doubleWildcard;
+
+        /**
+         * 路径在此结束的资源
+         */
+        private final List<Entry> entryList = new ArrayList<>(1);
+
+        Node child(String segment) {
+            if (DOUBLE_WILDCARD.equals(segment)) {
+                if (Objects.isNull(doubleWildcard)) {
+                    doubleWildcard = new Node();
+                }
+                return doubleWildcard;
+            }
+            if (ANT_PATH_MATCHER.isPattern(segment)) {
+                if (Objects.isNull(wildcard)) {
+                    wildcard = new Node();
+                }
+                return wildcard;
+            }
+            return literalMap.computeIfAbsent(segment, key -> new Node());
+        }
+    }
+
+    /**
+     * 资源
+     */
+    private static class Entry {
+
+        /**
+         * 资源在列表中的顺序，多个资源匹配时取靠前的
+         */
+        private final int order;
+
+        /**
+         * 路径模式
+         */
+        private final String pattern;
+
+        /**
+         * 角色配置，匿名接口为null
+         */
+        private final Collection<ConfigAttribute> attributes;
+
+        Entry(int order, String pattern, Collection<ConfigAttribute> attributes) {
+            this.order = order;
+            this.pattern = pattern;
+            this.attributes = attributes;
+        }
+    }
+
+}
@@ -2,12 +2,15 @@ package com.minzheng.blog.handler;
 
 import com.alibaba.fastjson.JSON;
 import com.minzheng.blog.annotation.AccessLimit;
-import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.dto.UserDetailDTO;
+import com.minzheng.blog.enums.LimitTypeEnum;
+import com.minzheng.blog.service.AccessLimitService;
 import com.minzheng.blog.util.IpUtils;
 import com.minzheng.blog.vo.Result;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
@@ -15,6 +18,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 
 import static com.minzheng.blog.constant.CommonConst.APPLICATION_JSON;
 
@@ -24,7 +28,7 @@ import static com.minzheng.blog.constant.CommonConst.APPLICATION_JSON;
 @Log4j2
 public class WebSecurityHandler implements HandlerInterceptor {
     @Autowired
-    private RedisService redisService;
+    private AccessLimitService accessLimitService;
 
     @Override
     public boolean preHandle(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, Object handler) throws Exception {
@@ -36,27 +40,45 @@ public class WebSecurityHandler implements HandlerInterceptor {
             if (accessLimit != null) {
                 long seconds = accessLimit.seconds();
                 int maxCount = accessLimit.maxCount();
-                // 关于key的生成规则可以自己定义 本项目需求是对每个方法都加上限流功能，如果你只是针对ip地址限流，那么key只需要只用ip就好
-                String key = IpUtils.getIpAddress(httpServletRequest) + hm.getMethod().getName();
-                // 从redis中获取用户访问的次数
-                try {
-                    // 此操作代表获取该key对应的值自增1后的结果
-                    long q = redisService.incrExpire(key, seconds);
-                    if (q > maxCount) {
+                String methodName = hm.getBeanType().getSimpleName() + "." + hm.getMethod().getName();
+                // 每个维度单独计数，任一维度超限就拒绝
+                for (LimitTypeEnum limitType : accessLimit.limitType()) {
+                    String name = methodName + ":" + limitType.getType();
+                    String key = name + ":" + getIdentity(httpServletRequest, limitType);
+                    if (!accessLimitService.tryAcquire(name, key, maxCount, seconds)) {
                         render(httpServletResponse, Result.fail("请求过于频繁，请稍候再试"));
                         log.warn(key + "请求次数超过每" + seconds + "秒" + maxCount + "次");
                         return false;
                     }
-                    return true;
-                } catch (RedisConnectionFailureException e) {
-                    log.warn("redis错误: " + e.getMessage());
-                    return false;
                 }
             }
         }
         return true;
     }
 
+    /**
+     * 获取限流对象标识
+     *
+     * @param request   请求
+     * @param limitType 限流维度
+     * @return 标识
+     */
+    private String getIdentity(HttpServletRequest request, LimitTypeEnum limitType) {
+        switch (limitType) {
+            case GLOBAL:
+                return "all";
+            case USER:
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (Objects.nonNull(authentication) && authentication.getPrincipal() instanceof UserDetailDTO) {
+                    return ((UserDetailDTO) authentication.getPrincipal()).getUserInfoId().toString();
+                }
+                // 未登录按ip
+                return IpUtils.getIpAddress(request);
+            default:
+                return IpUtils.getIpAddress(request);
+        }
+    }
+
     private void render(HttpServletResponse response, Result<?> result) throws Exception {
         response.setContentType(APPLICATION_JSON);
         OutputStream out = response.getOutputStream();
@@ -0,0 +1,29 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.AccessLimitMetricsDTO;
+
+/**
+ * 接口限流服务
+ *
+ */
+public interface AccessLimitService {
+
+    /**
+     * 尝试获取一次访问许可
+     *
+     * @param name     统计名（接口:维度）
+     * @param key      限流key
+     * @param maxCount 单位时间最大请求次数
+     * @param seconds  单位时间（秒）
+     * @return 是否允许访问
+     */
+    boolean tryAcquire(String name, String key, int maxCount, long seconds);
+
+    /**
+     * 查看限流指标
+     *
+     * @return {@link AccessLimitMetricsDTO} 限流指标
+     */
+    AccessLimitMetricsDTO getMetrics();
+
+}
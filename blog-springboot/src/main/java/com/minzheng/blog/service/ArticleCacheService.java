@@ -0,0 +1,30 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.ArticleDTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 文章详情缓存服务
+ *
+ */
+public interface ArticleCacheService {
+
+    /**
+     * 获取文章详情，先查本地缓存再查redis，都没有则加载，同一篇文章同时只加载一次
+     *
+     * @param articleId 文章id
+     * @param loader    从数据库加载文章详情
+     * @return {@link ArticleDTO} 文章详情，不含浏览量和点赞量
+     */
+    ArticleDTO getArticle(Integer articleId, Function<Integer, ArticleDTO> loader);
+
+    /**
+     * 删除文章详情缓存，事务中调用时提交后再删除一次；只能清除本机的本地缓存，其他实例的本地缓存等过期
+     *
+     * @param articleIdList 文章id列表
+     */
+    void deleteArticles(List<Integer> articleIdList);
+
+}
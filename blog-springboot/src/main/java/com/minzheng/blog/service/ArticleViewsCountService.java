@@ -0,0 +1,39 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.ArticleViewsMetricsDTO;
+
+/**
+ * 文章浏览量缓冲服务
+ *
+ */
+public interface ArticleViewsCountService {
+
+    /**
+     * 文章浏览量+1
+     *
+     * @param articleId 文章id
+     * @return 加上未刷入redis的增量后的浏览量
+     */
+    Integer incrViewsCount(Integer articleId);
+
+    /**
+     * 查询文章浏览量
+     *
+     * @param articleId 文章id
+     * @return 加上未刷入redis的增量后的浏览量
+     */
+    Integer getViewsCount(Integer articleId);
+
+    /**
+     * 将缓冲的浏览量批量刷入redis
+     */
+    void flush();
+
+    /**
+     * 查看浏览量缓冲指标
+     *
+     * @return {@link ArticleViewsMetricsDTO} 缓冲指标
+     */
+    ArticleViewsMetricsDTO getMetrics();
+
+}
@@ -0,0 +1,64 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.ChatBroadcastMetricsDTO;
+import com.minzheng.blog.dto.WebsocketMessageDTO;
+
+import javax.websocket.Session;
+
+/**
+ * 聊天室广播服务
+ *
+ */
+public interface ChatBroadcastService {
+
+    /**
+     * 加入连接
+     *
+     * @param session 会话
+     */
+    void register(Session session);
+
+    /**
+     * 移除连接
+     *
+     * @param session 会话
+     */
+    void unregister(Session session);
+
+    /**
+     * 给单个连接发送消息
+     *
+     * @param session    会话
+     * @param messageDTO 消息
+     */
+    void send(Session session, WebsocketMessageDTO messageDTO);
+
+    /**
+     * 给所有连接广播消息
+     *
+     * @param messageDTO 消息
+     */
+    void broadcast(WebsocketMessageDTO messageDTO);
+
+    /**
+     * 给所有连接广播已序列化的消息
+     *
+     * @param text 消息json
+     */
+    void broadcast(String text);
+
+    /**
+     * 获取连接数
+     *
+     * @return 连接数
+     */
+    int getConnectionCount();
+
+    /**
+     * 查看广播指标
+     *
+     * @return {@link ChatBroadcastMetricsDTO} 广播指标
+     */
+    ChatBroadcastMetricsDTO getMetrics();
+
+}
@@ -0,0 +1,23 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.WebsocketMessageDTO;
+
+/**
+ * 聊天室集群消息总线
+ *
+ */
+public interface ChatBusService {
+
+    /**
+     * 发布消息，所有节点都会广播给本机的连接
+     *
+     * @param messageDTO 消息
+     */
+    void publish(WebsocketMessageDTO messageDTO);
+
+    /**
+     * 上报本机连接数并发布集群在线人数
+     */
+    void updateOnlineCount();
+
+}
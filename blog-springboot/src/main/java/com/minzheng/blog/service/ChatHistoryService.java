@@ -0,0 +1,36 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.WebsocketMessageDTO;
+import com.minzheng.blog.entity.ChatRecord;
+
+import java.util.List;
+
+/**
+ * 聊天记录缓存服务
+ *
+ */
+public interface ChatHistoryService {
+
+    /**
+     * 获取最近的聊天记录，按id升序
+     *
+     * @return {@link List<ChatRecord>} 聊天记录
+     */
+    List<ChatRecord> listRecentRecords();
+
+    /**
+     * 获取id之前的聊天记录，按id升序
+     *
+     * @param id 当前最早一条记录的id
+     * @return {@link List<ChatRecord>} 聊天记录
+     */
+    List<ChatRecord> listOlderRecords(Integer id);
+
+    /**
+     * 根据集群广播的消息更新缓存
+     *
+     * @param messageDTO 消息
+     */
+    void apply(WebsocketMessageDTO messageDTO);
+
+}
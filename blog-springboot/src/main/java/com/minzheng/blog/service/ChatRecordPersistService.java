@@ -0,0 +1,25 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.entity.ChatRecord;
+
+/**
+ * 聊天记录异步写入服务
+ *
+ */
+public interface ChatRecordPersistService {
+
+    /**
+     * 分配id和创建时间，写入本地日志后放入待写队列，由后台线程批量插入
+     *
+     * @param chatRecord 聊天记录，id和创建时间由本方法填充
+     */
+    void save(ChatRecord chatRecord);
+
+    /**
+     * 删除聊天记录，还未写入数据库的直接从待写队列移除
+     *
+     * @param id 聊天记录id
+     */
+    void delete(Integer id);
+
+}
@@ -0,0 +1,55 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.ChunkUploadDTO;
+import com.minzheng.blog.vo.ChunkUploadVO;
+
+import java.io.InputStream;
+
+/**
+ * 分片上传服务
+ *
+ */
+public interface ChunkUploadService {
+
+    /**
+     * 初始化分片上传，文件已存在时直接返回地址，同一文件未完成的上传会继续使用
+     *
+     * @param chunkUploadVO 分片上传信息
+     * @return {@link ChunkUploadDTO} 分片上传任务
+     */
+    ChunkUploadDTO initiateChunkUpload(ChunkUploadVO chunkUploadVO);
+
+    /**
+     * 上传分片
+     *
+     * @param uploadId    上传id
+     * @param chunkNumber 分片序号，从1开始
+     * @param md5         分片md5，为空时不校验
+     * @param inputStream 分片输入流
+     */
+    void uploadChunk(String uploadId, Integer chunkNumber, String md5, InputStream inputStream);
+
+    /**
+     * 查看分片上传任务
+     *
+     * @param uploadId 上传id
+     * @return {@link ChunkUploadDTO} 分片上传任务
+     */
+    ChunkUploadDTO getChunkUpload(String uploadId);
+
+    /**
+     * 合并分片
+     *
+     * @param uploadId 上传id
+     * @return {@link String} 文件地址
+     */
+    String completeChunkUpload(String uploadId);
+
+    /**
+     * 取消分片上传
+     *
+     * @param uploadId 上传id
+     */
+    void abortChunkUpload(String uploadId);
+
+}
@@ -0,0 +1,26 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.EsReindexProgressDTO;
+
+/**
+ * es重建索引服务
+ *
+ */
+public interface EsReindexService {
+
+    /**
+     * 开始重建索引，后台执行
+     *
+     * @param resume 是否从上次失败的检查点继续
+     * @return {@link EsReindexProgressDTO} 重建进度
+     */
+    EsReindexProgressDTO reindex(boolean resume);
+
+    /**
+     * 查看重建进度
+     *
+     * @return {@link EsReindexProgressDTO} 重建进度
+     */
+    EsReindexProgressDTO getProgress();
+
+}
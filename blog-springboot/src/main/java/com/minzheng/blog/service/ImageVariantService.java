@@ -0,0 +1,49 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.strategy.UploadStrategy;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片缩略图服务
+ *
+ */
+public interface ImageVariantService {
+
+    /**
+     * 是否为需要生成缩略图的图片
+     *
+     * @param filePath 原图路径
+     * @return 是否需要生成
+     */
+    boolean isSupported(String filePath);
+
+    /**
+     * 原图上传成功后异步生成缩略图，图片文件交给缩略图服务，处理完后删除
+     *
+     * @param uploadStrategy 上传策略
+     * @param filePath       原图路径
+     * @param imageFile      原图文件的副本
+     */
+    void generate(UploadStrategy uploadStrategy, String filePath, Path imageFile);
+
+    /**
+     * 为还没有缩略图的图片下载原图异步生成
+     *
+     * @param uploadStrategy 上传策略
+     * @param urlList        原图地址列表
+     */
+    void generate(UploadStrategy uploadStrategy, List<String> urlList);
+
+    /**
+     * 获取图片的srcset，没有缩略图的图片不在结果中
+     *
+     * @param urlList 原图地址列表
+     * @return 原图地址对应的srcset
+     */
+    Map<String, String> getSrcSetMap(Collection<String> urlList);
+
+}
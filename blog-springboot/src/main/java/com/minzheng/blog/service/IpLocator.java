@@ -0,0 +1,33 @@
+package com.minzheng.blog.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * ip归属地查询
+ *
+ */
+public interface IpLocator {
+
+    /**
+     * 解析ip归属地
+     *
+     * @param ipAddress ip地址
+     * @return 省份+城市，解析失败返回空字符串
+     */
+    String getIpSource(String ipAddress);
+
+    /**
+     * 批量解析ip归属地
+     *
+     * @param ipAddressList ip地址集合
+     * @return key为ip地址，value为归属地
+     */
+    Map<String, String> listIpSources(Collection<String> ipAddressList);
+
+    /**
+     * 重新加载ip库
+     */
+    void reload();
+
+}
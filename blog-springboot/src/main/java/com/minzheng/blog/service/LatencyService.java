@@ -0,0 +1,28 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.LatencyMetricsDTO;
+
+import java.util.List;
+
+/**
+ * 耗时统计服务
+ *
+ */
+public interface LatencyService {
+
+    /**
+     * 记录一次耗时
+     *
+     * @param name  方法名或接口路由
+     * @param nanos 耗时（纳秒）
+     */
+    void record(String name, long nanos);
+
+    /**
+     * 查看耗时指标，按99分位耗时倒序
+     *
+     * @return {@link List<LatencyMetricsDTO>} 耗时指标
+     */
+    List<LatencyMetricsDTO> listLatencyMetrics();
+
+}
@@ -0,0 +1,28 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.ArticleSearchDTO;
+
+import java.util.List;
+
+/**
+ * 本地lucene文章索引服务
+ *
+ */
+public interface LuceneIndexService {
+
+    /**
+     * 事务提交后从数据库重新读取文章并更新索引，未启用lucene搜索时不处理
+     *
+     * @param articleIdList 文章id列表
+     */
+    void updateArticles(List<Integer> articleIdList);
+
+    /**
+     * 搜索文章并高亮
+     *
+     * @param keywords 关键字
+     * @return {@link List<ArticleSearchDTO>} 文章列表
+     */
+    List<ArticleSearchDTO> searchArticle(String keywords);
+
+}
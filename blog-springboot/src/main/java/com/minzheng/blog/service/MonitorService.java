@@ -0,0 +1,68 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.AccessLimitMetricsDTO;
+import com.minzheng.blog.dto.ChatBroadcastMetricsDTO;
+import com.minzheng.blog.dto.ExecutorMetricsDTO;
+import com.minzheng.blog.dto.LatencyMetricsDTO;
+import com.minzheng.blog.dto.MaxwellMetricsDTO;
+import com.minzheng.blog.dto.OperationLogMetricsDTO;
+import com.minzheng.blog.dto.UploadMetricsDTO;
+
+import java.util.List;
+
+/**
+ * 系统监控服务
+ *
+ */
+public interface MonitorService {
+
+    /**
+     * 查看线程池指标
+     *
+     * @return {@link List<ExecutorMetricsDTO>} 线程池指标
+     */
+    List<ExecutorMetricsDTO> listExecutorMetrics();
+
+    /**
+     * 查看接口限流指标
+     *
+     * @return {@link AccessLimitMetricsDTO} 限流指标
+     */
+    AccessLimitMetricsDTO getAccessLimitMetrics();
+
+    /**
+     * 查看操作日志队列指标
+     *
+     * @return {@link OperationLogMetricsDTO} 队列指标
+     */
+    OperationLogMetricsDTO getOperationLogMetrics();
+
+    /**
+     * 查看方法和接口耗时指标
+     *
+     * @return {@link List<LatencyMetricsDTO>} 耗时指标
+     */
+    List<LatencyMetricsDTO> listLatencyMetrics();
+
+    /**
+     * 查看maxwell同步指标
+     *
+     * @return {@link MaxwellMetricsDTO} 同步指标
+     */
+    MaxwellMetricsDTO getMaxwellMetrics();
+
+    /**
+     * 查看上传指标
+     *
+     * @return {@link List<UploadMetricsDTO>} 上传指标
+     */
+    List<UploadMetricsDTO> listUploadMetrics();
+
+    /**
+     * 查看聊天室广播指标
+     *
+     * @return {@link ChatBroadcastMetricsDTO} 广播指标
+     */
+    ChatBroadcastMetricsDTO getChatBroadcastMetrics();
+
+}
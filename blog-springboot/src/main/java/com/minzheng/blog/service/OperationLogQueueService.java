@@ -0,0 +1,28 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.OperationLogMetricsDTO;
+import com.minzheng.blog.entity.OperationLog;
+
+/**
+ * 操作日志异步写入服务
+ *
+ */
+public interface OperationLogQueueService {
+
+    /**
+     * 日志放入队列，由后台线程序列化参数、解析ip归属地后批量写入
+     *
+     * @param operationLog 操作日志，请求参数、返回结果和ip归属地由后台线程填充
+     * @param requestParam 请求参数
+     * @param responseData 返回结果
+     */
+    void offer(OperationLog operationLog, Object requestParam, Object responseData);
+
+    /**
+     * 查看操作日志队列指标
+     *
+     * @return {@link OperationLogMetricsDTO} 队列指标
+     */
+    OperationLogMetricsDTO getMetrics();
+
+}
@@ -5,7 +5,9 @@ import org.springframework.data.geo.Distance;
 import org.springframework.data.geo.GeoResults;
 import org.springframework.data.geo.Point;
 import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.core.script.RedisScript;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -146,6 +148,15 @@ public interface RedisService {
      */
     Map<String, Object> hGetAll(String key);
 
+    /**
+     * 批量获取Hash结构中的属性，只取指定的内部key
+     *
+     * @param key      外部key值
+     * @param hashKeys 内部key集合
+     * @return 内部key及value，不存在的属性不放入
+     */
+    Map<String, Object> hMultiGet(String key, Collection<String> hashKeys);
+
     /**
      * 直接设置整个Hash结构
      *
@@ -211,6 +222,15 @@ public interface RedisService {
      */
     Double zIncr(String key, Object value, Double score);
 
+    /**
+     * zset批量添加分数，管道一次提交
+     *
+     * @param key      关键
+     * @param scoreMap 元素及增加的分数
+     * @return {@link Map} 元素及增加后的分数
+     */
+    Map<Object, Double> zIncrBatch(String key, Map<Object, Double> scoreMap);
+
     /**
      * zset减少分数
      *
@@ -248,6 +268,15 @@ public interface RedisService {
      */
     Map<Object, Double> zAllScore(String key);
 
+    /**
+     * 批量获取zset指定元素分数，管道一次提交
+     *
+     * @param key    关键
+     * @param values 元素集合
+     * @return {@link Map} 元素及分数，不存在的元素不放入
+     */
+    Map<Object, Double> zMultiScore(String key, Collection<?> values);
+
     /**
      * 获取Set结构
      *
@@ -495,5 +524,15 @@ public interface RedisService {
      * @return 返回集合
      */
     List<String> geoGetHash(String key, String... place);
+
+    /**
+     * 执行lua脚本，脚本内的命令原子执行
+     *
+     * @param script 脚本
+     * @param keys   key列表
+     * @param args   参数
+     * @return 脚本返回值
+     */
+    <T> T execute(RedisScript<T> script, List<String> keys, Object... args);
 }
 
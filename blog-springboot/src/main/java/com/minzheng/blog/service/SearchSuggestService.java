@@ -0,0 +1,24 @@
+package com.minzheng.blog.service;
+
+import java.util.List;
+
+/**
+ * 搜索提示服务
+ *
+ */
+public interface SearchSuggestService {
+
+    /**
+     * 按前缀查询文章标题和标签，按热度排序
+     *
+     * @param keywords 已输入的内容
+     * @return {@link List<String>} 提示列表
+     */
+    List<String> listSuggestions(String keywords);
+
+    /**
+     * 文章或标签修改后标记需要重建，事务中调用时提交后再标记
+     */
+    void refresh();
+
+}
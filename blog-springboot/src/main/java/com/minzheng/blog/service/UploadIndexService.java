@@ -0,0 +1,40 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.strategy.UploadStrategy;
+
+/**
+ * 上传文件索引服务
+ *
+ */
+public interface UploadIndexService {
+
+    /**
+     * 判断索引中是否有该文件
+     *
+     * @param filePath 文件路径
+     * @return {@link Boolean}
+     */
+    Boolean contains(String filePath);
+
+    /**
+     * 索引是否由存储的完整列表构建，是则索引中没有的文件一定不存在
+     *
+     * @return {@link Boolean}
+     */
+    Boolean isComplete();
+
+    /**
+     * 上传后加入索引
+     *
+     * @param filePath 文件路径
+     */
+    void add(String filePath);
+
+    /**
+     * 异步列出存储中的文件重建索引
+     *
+     * @param uploadStrategy 当前上传策略
+     */
+    void rebuild(UploadStrategy uploadStrategy);
+
+}
@@ -0,0 +1,38 @@
+package com.minzheng.blog.service;
+
+import com.minzheng.blog.dto.UploadMetricsDTO;
+
+import java.util.List;
+
+/**
+ * 上传指标服务
+ *
+ */
+public interface UploadMetricsService {
+
+    /**
+     * 记录一次上传
+     *
+     * @param name    上传策略
+     * @param bytes   字节数
+     * @param nanos   耗时（纳秒）
+     * @param success 是否成功
+     */
+    void record(String name, long bytes, long nanos, boolean success);
+
+    /**
+     * 记录失败原因，用于判断存储服务是否可用
+     *
+     * @param name 上传策略
+     * @param e    异常
+     */
+    void recordError(String name, Exception e);
+
+    /**
+     * 查看上传指标
+     *
+     * @return {@link List<UploadMetricsDTO>} 上传指标
+     */
+    List<UploadMetricsDTO> listUploadMetrics();
+
+}
@@ -0,0 +1,128 @@
+package com.minzheng.blog.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.minzheng.blog.dto.AccessLimitMetricsDTO;
+import com.minzheng.blog.service.AccessLimitService;
+import com.minzheng.blog.strategy.context.RateLimitStrategyContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.ACCESS_LIMIT;
+
+/**
+ * 接口限流服务
+ * 先用本地计数拦下明显的刷接口请求，剩下的再由redis脚本原子判断
+ *
+ */
+@Slf4j
+@Service
+public class AccessLimitServiceImpl implements AccessLimitService {
+    @Autowired
+    private RateLimitStrategyContext rateLimitStrategyContext;
+
+    /**
+     * 是否开启本地预过滤
+     */
+    @Value("${access-limit.local-filter:true}")
+    private boolean localFilter;
+
+    /**
+     * 本地单位时间内请求数超过上限的多少倍直接拒绝
+     */
+    @Value("${access-limit.local-flood-factor:10}")
+    private int localFloodFactor;
+
+    /**
+     * 本地最多记录的限流key数
+     */
+    @Value("${access-limit.local-maximum-size:10000}")
+    private long localMaximumSize;
+
+    private Cache<String, LocalWindow> localWindowCache;
+
+    private final LongAdder localRejectCount = new LongAdder();
+
+    private final LongAdder redisRejectCount = new LongAdder();
+
+    private final LongAdder redisErrorCount = new LongAdder();
+
+    private final Map<String, LongAdder> rejectCountMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        localWindowCache = Caffeine.newBuilder()
+            .maximumSize(localMaximumSize)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+    }
+
+    @Override
+    public boolean tryAcquire(String name, String key, int maxCount, long seconds) {
+        if (localFilter) {
+            LocalWindow window = localWindowCache.get(key, k -> new LocalWindow());
+            if (window.incrementAndGet(seconds * 1000) > (long) maxCount * localFloodFactor) {
+                localRejectCount.increment();
+                countReject(name);
+                return false;
+            }
+        }
+        try {
+            if (!rateLimitStrategyContext.executeRateLimitStrategy(ACCESS_LIMIT + key, maxCount, seconds)) {
+                redisRejectCount.increment();
+                countReject(name);
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            redisErrorCount.increment();
+            log.warn("限流redis错误: {}", e.getMessage());
+            // redis不可用时开启了本地预过滤就只靠本地计数，否则拒绝
+            return localFilter;
+        }
+    }
+
+    @Override
+    public AccessLimitMetricsDTO getMetrics() {
+        return AccessLimitMetricsDTO.builder()
+            .localRejectCount(localRejectCount.sum())
+            .redisRejectCount(redisRejectCount.sum())
+            .redisErrorCount(redisErrorCount.sum())
+            .rejectCountMap(rejectCountMap.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum())))
+            .build();
+    }
+
+    private void countReject(String name) {
+        rejectCountMap.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 本地固定窗口计数
+     */
+    private static class LocalWindow {
+
+        private long windowStart = System.currentTimeMillis();
+
+        private long count;
+
+        synchronized long incrementAndGet(long windowMillis) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= windowMillis) {
+                windowStart = now;
+                count = 0;
+            }
+            return ++count;
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.minzheng.blog.dto.ArticleDTO;
+import com.minzheng.blog.service.ArticleCacheService;
+import com.minzheng.blog.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.ARTICLE_DETAIL;
+import static com.minzheng.blog.constant.RedisPrefixConst.ARTICLE_DETAIL_VERSION;
+
+/**
+ * 文章详情缓存服务
+ * 一级缓存caffeine，二级缓存redis
+ * 推荐、最新、热门、上下篇依赖其他文章，靠过期时间刷新；这几项查询超时的不完整结果不写入redis，本地只缓存几秒
+ * 文章修改时递增版本号，加载前后版本号不一致说明加载期间文章被修改，结果不写入redis，避免删除缓存后又写回旧数据
+ * 本地缓存只清除本机的，多实例部署时其他实例的本地缓存要等local-expire过期
+ *
+ */
+@Slf4j
+@Service
+public class ArticleCacheServiceImpl implements ArticleCacheService {
+    @Autowired
+    private RedisService redisService;
+
+    /**
+     * 本地缓存最大文章数
+     */
+    @Value("${article.cache.maximum-size:1000}")
+    private long maximumSize;
+
+    /**
+     * 本地缓存过期时间（秒）
+     */
+    @Value("${article.cache.local-expire:60}")
+    private long localExpire;
+
+    /**
+     * redis缓存过期时间（秒）
+     */
+    @Value("${article.cache.redis-expire:600}")
+    private long redisExpire;
+
+    /**
+     * 不完整的文章详情本地缓存时间（秒）
+     */
+    @Value("${article.cache.degraded-expire:5}")
+    private long degradedExpire;
+
+    private static final DefaultRedisScript<Long> SET_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        SET_SCRIPT.setLocation(new ClassPathResource("lua/article_cache_set.lua"));
+        SET_SCRIPT.setResultType(Long.class);
+    }
+
+    private Cache<Integer, ArticleDTO> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(new Expiry<Integer, ArticleDTO>() {
+                @Override
+                public long expireAfterCreate(Integer key, ArticleDTO value, long currentTime) {
+                    return TimeUnit.SECONDS.toNanos(value.isDegraded() ? degradedExpire : localExpire);
+                }
+
+                @Override
+                public long expireAfterUpdate(Integer key, ArticleDTO value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(Integer key, ArticleDTO value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    @Override
+    public ArticleDTO getArticle(Integer articleId, Function<Integer, ArticleDTO> loader) {
+        // caffeine的get保证同一个key只有一个线程执行加载，其余线程等待结果
+        return localCache.get(articleId, key -> {
+            ArticleDTO articleDTO = getRedisArticle(key);
+            if (Objects.isNull(articleDTO)) {
+                // 版本号要在查数据库之前读
+                Long version = getVersion(key);
+                articleDTO = loader.apply(key);
+                // 不完整的结果只在本地短时间缓存，数据库恢复后尽快重新加载
+                if (!articleDTO.isDegraded() && !setRedisArticle(key, articleDTO, version)) {
+                    // 加载期间文章被修改或redis不可用，结果可能是旧的，本地也只短时间缓存
+                    articleDTO.setDegraded(true);
+                }
+            }
+            return articleDTO;
+        });
+    }
+
+    @Override
+    public void deleteArticles(List<Integer> articleIdList) {
+        evict(articleIdList);
+        // 事务提交前其他请求可能把旧数据重新放进缓存，提交后再删一次
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(articleIdList);
+                }
+            });
+        }
+    }
+
+    /**
+     * 递增版本号并删除一二级缓存，版本号先于缓存删除，正在加载的旧数据不会再写入redis
+     *
+     * @param articleIdList 文章id列表
+     */
+    private void evict(List<Integer> articleIdList) {
+        try {
+            articleIdList.forEach(articleId -> redisService.incr(ARTICLE_DETAIL_VERSION + articleId, 1L));
+        } catch (Exception e) {
+            log.error(StrUtil.format("递增文章缓存版本号失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+        }
+        localCache.invalidateAll(articleIdList);
+        try {
+            redisService.del(articleIdList.stream()
+                .map(articleId -> ARTICLE_DETAIL + articleId)
+                .collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.error(StrUtil.format("删除文章缓存失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 从redis获取文章详情，redis异常时当作未命中
+     *
+     * @param articleId 文章id
+     * @return {@link ArticleDTO} 文章详情
+     */
+    private ArticleDTO getRedisArticle(Integer articleId) {
+        try {
+            Object article = redisService.get(ARTICLE_DETAIL + articleId);
+            if (Objects.nonNull(article)) {
+                return JSON.parseObject(article.toString(), ArticleDTO.class);
+            }
+        } catch (Exception e) {
+            log.error(StrUtil.format("读取文章缓存失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+        }
+        return null;
+    }
+
+    /**
+     * 获取文章详情版本号，redis异常时返回null
+     *
+     * @param articleId 文章id
+     * @return 版本号，没有修改过为0
+     */
+    private Long getVersion(Integer articleId) {
+        try {
+            Object version = redisService.get(ARTICLE_DETAIL_VERSION + articleId);
+            return Objects.isNull(version) ? 0L : Long.parseLong(version.toString());
+        } catch (Exception e) {
+            log.error(StrUtil.format("读取文章缓存版本号失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+            return null;
+        }
+    }
+
+    /**
+     * 版本号未变时文章详情存入redis
+     *
+     * @param articleId  文章id
+     * @param articleDTO 文章详情
+     * @param version    加载前的版本号
+     * @return 是否写入
+     */
+    private boolean setRedisArticle(Integer articleId, ArticleDTO articleDTO, Long version) {
+        if (Objects.isNull(version)) {
+            return false;
+        }
+        try {
+            Long result = redisService.execute(SET_SCRIPT,
+                Arrays.asList(ARTICLE_DETAIL + articleId, ARTICLE_DETAIL_VERSION + articleId),
+                version, JSON.toJSONString(articleDTO), redisExpire);
+            return Long.valueOf(1L).equals(result);
+        } catch (Exception e) {
+            log.error(StrUtil.format("写入文章缓存失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+            return false;
+        }
+    }
+
+}
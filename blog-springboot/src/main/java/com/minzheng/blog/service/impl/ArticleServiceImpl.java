@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.minzheng.blog.config.ExecutorConfigProperties;
 import com.minzheng.blog.dao.*;
 import com.minzheng.blog.dto.*;
 import com.minzheng.blog.entity.Article;
@@ -19,6 +20,7 @@ import com.minzheng.blog.service.*;
 import com.minzheng.blog.strategy.context.SearchStrategyContext;
 import com.minzheng.blog.strategy.context.UploadStrategyContext;
 import com.minzheng.blog.util.BeanCopyUtils;
+import com.minzheng.blog.util.PageCursor;
 import com.minzheng.blog.util.PageUtils;
 import com.minzheng.blog.util.UserUtils;
 import com.minzheng.blog.vo.*;
@@ -27,10 +29,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.Resource;
 import javax.servlet.http.HttpSession;
 import java.io.ByteArrayInputStream;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static com.minzheng.blog.constant.CommonConst.FALSE;
@@ -70,20 +76,20 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
     private BlogInfoService blogInfoService;
     @Autowired
     private UploadStrategyContext uploadStrategyContext;
-
     @Autowired
-    private ElasticsearchDao elasticsearchDao;
-
-    /**
-     * 先删除全部数据，再重新导入数据
-     */
-    public void importDataIntoES() {
-        elasticsearchDao.deleteAll();
-        List<Article> articles = articleService.list();
-        for (Article article : articles) {
-            elasticsearchDao.save(BeanCopyUtils.copyObject(article, ArticleSearchDTO.class));
-        }
-    }
+    private ArticleViewsCountService articleViewsCountService;
+    @Autowired
+    private ArticleCacheService articleCacheService;
+    @Autowired
+    private ImageVariantService imageVariantService;
+    @Autowired
+    private ExecutorConfigProperties executorConfigProperties;
+    @Resource
+    private Executor dbFanoutExecutor;
+    @Autowired
+    private LuceneIndexService luceneIndexService;
+    @Autowired
+    private SearchSuggestService searchSuggestService;
 
     /**
      * 查询文章归档
@@ -100,7 +106,6 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         Page<Article> page = new Page<>(PageUtils.getCurrent(), PageUtils.getSize());
         Page<Article> articlePage = articleDao.selectPage(page, wrapper);
         List<ArchiveDTO> archiveDTOList = BeanCopyUtils.copyList(articlePage.getRecords(), ArchiveDTO.class);
-        //importDataIntoES();
         //强转成PageResult类型
         PageResult<ArchiveDTO> result = new PageResult<>(archiveDTOList, (int) articlePage.getTotal());
         return result;
@@ -117,13 +122,17 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         //查询文章总数量
         Integer countArticleBacks = articleDao.countArticleBacks(condition);
         //查询后台文章，但是文章点赞量和浏览量likeCount、viewsCount要从redis中获取
-        List<ArticleBackDTO> articleBackDTOList = articleDao.listArticleBacks(PageUtils.getLimitCurrent(), PageUtils.getSize(), condition);
+        PageCursor cursor = PageUtils.getCursor(true);
+        List<ArticleBackDTO> articleBackDTOList = articleDao.listArticleBacks(PageUtils.getLimitCurrent(cursor), PageUtils.getSize(), condition, cursor);
 
-        //从redis中获取所有的文章点赞量和浏览量likeCount、viewsCount集合
-        //todo redisTemplate.opsForHash().entries(key);
-        Map<String, Object> likeCountMap = redisService.hGetAll(ARTICLE_LIKE_COUNT);
-        //todo redisTemplate.opsForZSet().rangeWithScores(key, 0, -1)然后用stream流遍历zset--》map
-        Map<Object, Double> viewsCountMap = redisService.zAllScore(ARTICLE_VIEWS_COUNT);
+        //从redis中只获取本页文章的点赞量和浏览量likeCount、viewsCount
+        List<Integer> articleIdList = articleBackDTOList.stream()
+            .map(ArticleBackDTO::getId)
+            .collect(Collectors.toList());
+        Map<String, Object> likeCountMap = redisService.hMultiGet(ARTICLE_LIKE_COUNT, articleIdList.stream()
+            .map(Object::toString)
+            .collect(Collectors.toList()));
+        Map<Object, Double> viewsCountMap = redisService.zMultiScore(ARTICLE_VIEWS_COUNT, articleIdList);
         //遍历赋值给对应的文章
         articleBackDTOList.forEach(articleBackDTO -> {
             //根据viewsCountMap的key获取浏览量的值
@@ -137,8 +146,9 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
             Integer likeCount = (Integer) likeCountMap.get(articleBackDTO.getId().toString());
             articleBackDTO.setLikeCount(likeCount);
         });
-        //importDataIntoES();
-        return new PageResult<>(articleBackDTOList, countArticleBacks);
+        PageResult<ArticleBackDTO> pageResult = new PageResult<>(articleBackDTOList, countArticleBacks);
+        pageResult.setNextCursor(PageUtils.getNextCursor(articleBackDTOList, ArticleBackDTO::getIsTop, ArticleBackDTO::getId));
+        return pageResult;
     }
 
     /**
@@ -149,6 +159,11 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
     @Override
     public List<ArticleHomeDTO> listArticles() {
         List<ArticleHomeDTO> listArticles = articleDao.listArticles(PageUtils.getLimitCurrent(), PageUtils.getSize());
+        // 封面缩略图
+        Map<String, String> srcSetMap = imageVariantService.getSrcSetMap(listArticles.stream()
+            .map(ArticleHomeDTO::getArticleCover)
+            .collect(Collectors.toList()));
+        listArticles.forEach(item -> item.setArticleCoverSrcSet(srcSetMap.get(item.getArticleCover())));
         return listArticles;
     }
 
@@ -161,7 +176,8 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
     @Override
     public ArticlePreviewListDTO listArticlesByCondition(ConditionVO condition) {
         //根据条件查询文章
-        List<ArticlePreviewDTO> articlePreviewDTOList = articleDao.listArticlesByCondition(PageUtils.getLimitCurrent(), PageUtils.getSize(), condition);
+        PageCursor cursor = PageUtils.getCursor(false);
+        List<ArticlePreviewDTO> articlePreviewDTOList = articleDao.listArticlesByCondition(PageUtils.getLimitCurrent(cursor), PageUtils.getSize(), condition, cursor);
         // 搜索条件对应名(标签或分类名)
         String name=null;
         if (condition.getCategoryId() != null){
@@ -182,6 +198,7 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
             .builder()
             .articlePreviewDTOList(articlePreviewDTOList)
             .name(name)
+            .nextCursor(PageUtils.getNextCursor(articlePreviewDTOList, null, ArticlePreviewDTO::getId))
             .build();
         return articlePreviewListDTO;
     }
@@ -228,11 +245,12 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
      * 根据文章id查询文章即用户跳转到具体文章时浏览量+1
      *
      * @param articleId 文章id
+     * @return 最新浏览量
      */
-    public void updateArticleViewsCount(Integer articleId) {
+    public Integer updateArticleViewsCount(Integer articleId) {
 
-        // todo redis文章浏览量+1，redisTemplate.opsForZSet().incrementScore(key, value, score);
-        redisService.zIncr(ARTICLE_VIEWS_COUNT, articleId, 1D);
+        // 浏览量先累加在本地缓冲，定时批量刷入redis的ARTICLE_VIEWS_COUNT
+        return articleViewsCountService.incrViewsCount(articleId);
 
         // 判断是否第一次访问，增加浏览量
         // Set<Integer> articleSet = CommonUtils.castSet(Optional.ofNullable(session.getAttribute(ARTICLE_SET)).orElseGet(HashSet::new), Integer.class);
@@ -288,8 +306,26 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
      * @return {@link ArticleDTO} 文章信息
      */
     @Override
-    //todo 多线程 异步任务编排
     public ArticleDTO getArticleById(Integer articleId) {
+        // 缓存中的文章详情不含浏览量、点赞量，复制一份再赋值，避免修改共享的缓存对象
+        ArticleDTO articleDTO = BeanCopyUtils.copyObject(articleCacheService.getArticle(articleId, this::loadArticleById), ArticleDTO.class);
+        //如果文章存在，浏览量+1，返回的浏览量包含还没刷入redis的增量
+        articleDTO.setViewsCount(updateArticleViewsCount(articleId));
+        //todo 获取Hash结构中的属性,redisTemplate.opsForHash().get(key, hashKey);根据文章id获取点赞量
+        Integer likeCount = (Integer) redisService.hGet(ARTICLE_LIKE_COUNT, articleId.toString());
+        //点赞量
+        articleDTO.setLikeCount(likeCount);
+        return articleDTO;
+    }
+
+    /**
+     * 从数据库加载文章详情，不含浏览量、点赞量
+     *
+     * @param articleId 文章id
+     * @return {@link ArticleDTO} 文章信息
+     */
+    //todo 多线程 异步任务编排
+    private ArticleDTO loadArticleById(Integer articleId) {
 
         //根据id查询文章--》把实体类基础的信息先查询出来
         ArticleDTO articleDTO = articleDao.getArticleById(articleId);
@@ -299,7 +335,7 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
 
         //todo 查询推荐文章RecommendArticleList
         CompletableFuture<List<ArticleRecommendDTO>> recommendArticleList = CompletableFuture.supplyAsync(() ->
-            articleDao.listRecommendArticles(articleId));
+            articleDao.listRecommendArticles(articleId), dbFanoutExecutor);
 
         //查询最新的5篇文章--》状态公开、没有被删除，按修改时间、id排序，取5篇
         CompletableFuture<List<ArticleRecommendDTO>> newestArticleList = CompletableFuture.supplyAsync(() -> {
@@ -314,7 +350,7 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
             List<Article> articles = articleDao.selectList(articleWrapper);
             List<ArticleRecommendDTO> articleRecommendDTOList = BeanCopyUtils.copyList(articles, ArticleRecommendDTO.class);
             return articleRecommendDTOList;
-        });
+        }, dbFanoutExecutor);
         //热门文章
         CompletableFuture<List<ArticleRecommendDTO>> hotArticleList = CompletableFuture.supplyAsync(() ->{
 
@@ -329,21 +365,14 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
                 return articleHotDTOList;
             }
             return null;
-            }
-
-
-        );
-        try {
-            //推荐文章
-            articleDTO.setRecommendArticleList(recommendArticleList.get());
-            //最新文章
-            articleDTO.setNewestArticleList(newestArticleList.get());
-            //热门文章
-            articleDTO.setHotArticleList(hotArticleList.get());
-
-        } catch (Exception e) {
-            log.error(StrUtil.format("堆栈信息:{}", ExceptionUtil.stacktraceToString(e)));
-        }
+            }, dbFanoutExecutor);
+        // 每个查询单独超时，一个慢查询不影响其他结果
+        //推荐文章
+        articleDTO.setRecommendArticleList(getFutureResult(recommendArticleList, articleDTO));
+        //最新文章
+        articleDTO.setNewestArticleList(getFutureResult(newestArticleList, articleDTO));
+        //热门文章
+        articleDTO.setHotArticleList(getFutureResult(hotArticleList, articleDTO));
 
         // 查询上一篇，下一篇文章
         LambdaQueryWrapper<Article> lastWrapper = new LambdaQueryWrapper<>();
@@ -372,20 +401,28 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         articleDTO.setLastArticle(lastArticlePaginationDTO);
         //下一篇
         articleDTO.setNextArticle(nextArticlePaginationDTO);
+        return articleDTO;
+    }
 
-        //如果文章存在，浏览量+1，从redis中更新浏览量+1
-        updateArticleViewsCount(articleId);
-        //todo 获取zset指定元素分数,redisTemplate.opsForZSet().score(key, value); 根据文章id获取该文章的浏览量
-        Double score = redisService.zScore(ARTICLE_VIEWS_COUNT, articleId);
-        if (score != null){
-            //浏览量
-            articleDTO.setViewsCount(score.intValue());
+    /**
+     * 获取异步查询结果，超时或异常返回null并把文章详情标记为不完整
+     *
+     * @param future     异步查询
+     * @param articleDTO 文章详情
+     * @return {@link T} 查询结果
+     */
+    private <T> T getFutureResult(CompletableFuture<T> future, ArticleDTO articleDTO) {
+        try {
+            return future.get(executorConfigProperties.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // CompletableFuture的cancel不会中断线程，只能让还在排队的查询不再执行，已经开始的jdbc查询会继续到结束
+            future.cancel(false);
+            log.warn("文章详情异步查询超时,超时时间:{}ms", executorConfigProperties.getTimeout());
+        } catch (Exception e) {
+            log.error(StrUtil.format("堆栈信息:{}", ExceptionUtil.stacktraceToString(e)));
         }
-        //todo 获取Hash结构中的属性,redisTemplate.opsForHash().get(key, hashKey);根据文章id获取点赞量
-        Integer likeCount = (Integer) redisService.hGet(ARTICLE_LIKE_COUNT, articleId.toString());
-        //点赞量
-        articleDTO.setLikeCount(likeCount);
-        return articleDTO;
+        articleDTO.setDegraded(true);
+        return null;
     }
 
     /**
@@ -560,11 +597,11 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         //elasticsearchDao.save(BeanCopyUtils.copyObject(article, ArticleSearchDTO.class));
         article.setUserId(UserUtils.getLoginUser().getUserInfoId());
         // todo 多线程 任务编排 查询博客配置信息
-        CompletableFuture<WebsiteConfigVO> webConfig = CompletableFuture.supplyAsync(() -> blogInfoService.getWebsiteConfig());
+        CompletableFuture<WebsiteConfigVO> webConfig = CompletableFuture.supplyAsync(() -> blogInfoService.getWebsiteConfig(), dbFanoutExecutor);
         //如果封面为空，设置默认封面
         if (StrUtil.isBlank(article.getArticleCover())){
             try {
-                article.setArticleCover(webConfig.get().getArticleCover());
+                article.setArticleCover(webConfig.get(executorConfigProperties.getTimeout(), TimeUnit.MILLISECONDS).getArticleCover());
             } catch (Exception e) {
                 throw new BizException("设定默认文章封面失败");
             }
@@ -586,7 +623,10 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         this.saveOrUpdate(article);
         //保存文章标签"tagNameList": [],--》实体类没有--》添加到文章标签表
         saveArticleTag(articleVO, article.getId());
-        //importDataIntoES();
+        articleCacheService.deleteArticles(Collections.singletonList(article.getId()));
+        luceneIndexService.updateArticles(Collections.singletonList(article.getId()));
+        searchStrategyContext.clearCache();
+        searchSuggestService.refresh();
 
     }
 
@@ -604,6 +644,7 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
             .isTop(articleTopVO.getIsTop())
             .build();
         articleDao.updateById(article);
+        articleCacheService.deleteArticles(Collections.singletonList(articleTopVO.getId()));
     }
 
     /**
@@ -623,6 +664,10 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         ).collect(Collectors.toList());
 
         this.updateBatchById(articleList);
+        articleCacheService.deleteArticles(deleteVO.getIdList());
+        luceneIndexService.updateArticles(deleteVO.getIdList());
+        searchStrategyContext.clearCache();
+        searchSuggestService.refresh();
     }
 
     /**
@@ -639,6 +684,10 @@ public class ArticleServiceImpl extends ServiceImpl<ArticleDao, Article> impleme
         articleTagDao.delete(wrapper);
         //彻底从数据库删除文章
         articleDao.deleteBatchIds(articleIdList);
+        articleCacheService.deleteArticles(articleIdList);
+        luceneIndexService.updateArticles(articleIdList);
+        searchStrategyContext.clearCache();
+        searchSuggestService.refresh();
 
     }
 
@@ -0,0 +1,273 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.minzheng.blog.dto.ArticleViewsMetricsDTO;
+import com.minzheng.blog.service.ArticleViewsCountService;
+import com.minzheng.blog.service.RedisService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.ARTICLE_VIEWS_COUNT;
+
+/**
+ * 文章浏览量缓冲服务
+ * 浏览量先累加在本地，定时或累计到一定数量后用管道批量刷入redis；
+ * 刷入失败后按指数退避，退避期间不再刷入，连续失败只打印一次堆栈
+ *
+ */
+@Slf4j
+@Service
+public class ArticleViewsCountServiceImpl implements ArticleViewsCountService {
+    @Autowired
+    private RedisService redisService;
+    @Resource
+    private Executor indexingExecutor;
+
+    /**
+     * 累计多少次浏览后立即刷入
+     */
+    @Value("${article.views.flush-threshold:500}")
+    private long flushThreshold;
+
+    /**
+     * 刷入失败后第一次重试的等待时间（毫秒），之后每次失败翻倍
+     */
+    @Value("${article.views.retry-interval:1000}")
+    private long retryInterval;
+
+    /**
+     * 刷入失败后最长等待时间（毫秒）
+     */
+    @Value("${article.views.max-retry-interval:60000}")
+    private long maxRetryInterval;
+
+    /**
+     * 文章浏览量计数器
+     */
+    private final Map<Integer, ViewsCounter> counterMap = new ConcurrentHashMap<>();
+
+    /**
+     * 未刷入的浏览量
+     */
+    private final LongAdder pendingCount = new LongAdder();
+
+    /**
+     * 刷入锁，同一时间只有一个线程刷入
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile long lastFlushTime = System.currentTimeMillis();
+
+    private volatile long lastFlushCost;
+
+    private volatile int lastBatchSize;
+
+    private final AtomicLong flushCount = new AtomicLong();
+
+    private final AtomicLong flushFailCount = new AtomicLong();
+
+    /**
+     * 连续失败次数，只在刷入锁内修改
+     */
+    private int failureCount;
+
+    /**
+     * 刷入失败后下次可以刷入的时间
+     */
+    private volatile long nextFlushTime;
+
+    @Override
+    public Integer incrViewsCount(Integer articleId) {
+        ViewsCounter counter = counterMap.computeIfAbsent(articleId, key -> new ViewsCounter());
+        counter.total.increment();
+        pendingCount.increment();
+        if (pendingCount.sum() >= flushThreshold && !flushLock.isLocked() && System.currentTimeMillis() >= nextFlushTime) {
+            CompletableFuture.runAsync(this::tryFlush, indexingExecutor);
+        }
+        return getViewsCount(articleId, counter);
+    }
+
+    @Override
+    public Integer getViewsCount(Integer articleId) {
+        return getViewsCount(articleId, counterMap.computeIfAbsent(articleId, key -> new ViewsCounter()));
+    }
+
+    @Scheduled(fixedDelayString = "${article.views.flush-interval:1000}")
+    @Override
+    public void flush() {
+        if (System.currentTimeMillis() < nextFlushTime) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭前刷入剩余的浏览量，不等待退避
+     */
+    @PreDestroy
+    public void destroy() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public ArticleViewsMetricsDTO getMetrics() {
+        return ArticleViewsMetricsDTO.builder()
+            .pendingCount(pendingCount.sum())
+            .flushLag(System.currentTimeMillis() - lastFlushTime)
+            .lastFlushCost(lastFlushCost)
+            .lastBatchSize(lastBatchSize)
+            .flushCount(flushCount.get())
+            .flushFailCount(flushFailCount.get())
+            .build();
+    }
+
+    /**
+     * 已有线程在刷入则跳过
+     */
+    private void tryFlush() {
+        if (System.currentTimeMillis() >= nextFlushTime && flushLock.tryLock()) {
+            try {
+                doFlush();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 计算每篇文章的增量，管道批量执行zincrby
+     */
+    private void doFlush() {
+        long start = System.currentTimeMillis();
+        Map<Object, Double> deltaMap = new HashMap<>(16);
+        Map<Integer, Long> totalMap = new HashMap<>(16);
+        counterMap.forEach((articleId, counter) -> {
+            long total = counter.total.sum();
+            if (total > counter.flushed) {
+                deltaMap.put(articleId, (double) (total - counter.flushed));
+                totalMap.put(articleId, total);
+            }
+        });
+        if (deltaMap.isEmpty()) {
+            lastFlushTime = start;
+            return;
+        }
+        try {
+            Map<Object, Double> scoreMap = redisService.zIncrBatch(ARTICLE_VIEWS_COUNT, deltaMap);
+            totalMap.forEach((articleId, total) -> {
+                ViewsCounter counter = counterMap.get(articleId);
+                counter.flushed = total;
+                Double score = scoreMap.get(articleId);
+                if (Objects.nonNull(score)) {
+                    counter.snapshot.set(new ViewsSnapshot(score, total));
+                }
+            });
+            pendingCount.add(-deltaMap.values().stream().mapToLong(Double::longValue).sum());
+            lastBatchSize = deltaMap.size();
+            lastFlushTime = System.currentTimeMillis();
+            lastFlushCost = lastFlushTime - start;
+            flushCount.incrementAndGet();
+            if (failureCount > 0) {
+                log.info("文章浏览量刷入redis已恢复,连续失败次数:{}", failureCount);
+                failureCount = 0;
+                nextFlushTime = 0;
+            }
+        } catch (Exception e) {
+            // 增量保留在本地，退避后继续刷入
+            flushFailCount.incrementAndGet();
+            failureCount++;
+            long delay = Math.min(retryInterval << Math.min(failureCount - 1, 30), maxRetryInterval);
+            nextFlushTime = System.currentTimeMillis() + delay;
+            if (failureCount == 1) {
+                log.error(StrUtil.format("文章浏览量刷入redis失败,{}毫秒后重试,堆栈:{}", delay, ExceptionUtil.stacktraceToString(e)));
+            } else {
+                log.warn("文章浏览量刷入redis仍然失败,连续失败次数:{},{}毫秒后重试,原因:{}", failureCount, delay, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 上次刷入后的分数加上未刷入的增量
+     *
+     * @param articleId 文章id
+     * @param counter   计数器
+     * @return 浏览量
+     */
+    private Integer getViewsCount(Integer articleId, ViewsCounter counter) {
+        ViewsSnapshot snapshot = counter.snapshot.get();
+        if (Objects.isNull(snapshot)) {
+            // 第一次访问该文章，从redis加载已有的浏览量
+            Double score = redisService.zScore(ARTICLE_VIEWS_COUNT, articleId);
+            counter.snapshot.compareAndSet(null, new ViewsSnapshot(Objects.isNull(score) ? 0D : score, counter.flushed));
+            snapshot = counter.snapshot.get();
+        }
+        return (int) (snapshot.score + counter.total.sum() - snapshot.flushed);
+    }
+
+    /**
+     * 文章浏览量计数器
+     */
+    private static class ViewsCounter {
+
+        /**
+         * 本地累计浏览量
+         */
+        private final LongAdder total = new LongAdder();
+
+        /**
+         * 已刷入redis的浏览量，只在刷入锁内修改
+         */
+        private volatile long flushed;
+
+        /**
+         * 最近一次从redis得到的分数
+         */
+        private final AtomicReference<ViewsSnapshot> snapshot = new AtomicReference<>();
+    }
+
+    /**
+     * redis分数快照
+     */
+    @AllArgsConstructor
+    private static class ViewsSnapshot {
+
+        /**
+         * redis中的分数
+         */
+        private final double score;
+
+        /**
+         * 得到该分数时已刷入的浏览量
+         */
+        private final long flushed;
+    }
+
+}
@@ -10,6 +10,7 @@ import com.minzheng.blog.entity.Article;
 import com.minzheng.blog.entity.Tag;
 import com.minzheng.blog.entity.WebsiteConfig;
 import com.minzheng.blog.service.BlogInfoService;
+import com.minzheng.blog.service.IpLocator;
 import com.minzheng.blog.service.PageService;
 import com.minzheng.blog.service.RedisService;
 import com.minzheng.blog.service.UniqueViewService;
@@ -61,6 +62,8 @@ public class BlogInfoServiceImpl implements BlogInfoService {
     private HttpServletRequest request;
     @Autowired
     private PageService pageService;
+    @Autowired
+    private IpLocator ipLocator;
 
     /**
      * 获取网站配置
@@ -289,7 +292,7 @@ public class BlogInfoServiceImpl implements BlogInfoService {
         //todo redisTemplate.opsForSet().isMember(key, value)，是否为Set中的属性
         if (!redisService.sIsMember(UNIQUE_VISITOR, md5)) {
             // 统计游客地域分布
-            String ipSource = IpUtils.getIpSource(ipAddress);
+            String ipSource = ipLocator.getIpSource(ipAddress);
             if (StringUtils.isNotBlank(ipSource)) {
                 ipSource = ipSource.substring(0, 2)
                     .replaceAll(PROVINCE, "")
@@ -0,0 +1,254 @@
+package com.minzheng.blog.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.minzheng.blog.dto.ChatBroadcastMetricsDTO;
+import com.minzheng.blog.dto.WebsocketMessageDTO;
+import com.minzheng.blog.service.ChatBroadcastService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.websocket.CloseReason;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 聊天室广播服务
+ * 连接按会话id分到多个分片，每个分片一个线程负责把消息放进各连接的发送队列；
+ * 消息只序列化一次，各连接用异步发送依次发出队列中的消息，慢连接不会阻塞其他连接，
+ * 队列满或发送超时的连接直接断开
+ *
+ */
+@Slf4j
+@Service
+public class ChatBroadcastServiceImpl implements ChatBroadcastService {
+
+    /**
+     * 分片数
+     */
+    @Value("${chat.broadcast.shards:4}")
+    private int shardCount;
+
+    /**
+     * 单个连接最多待发送消息数
+     */
+    @Value("${chat.broadcast.queue-size:256}")
+    private int queueSize;
+
+    /**
+     * 单条消息发送超时时间（毫秒）
+     */
+    @Value("${chat.broadcast.send-timeout:10000}")
+    private long sendTimeout;
+
+    private Shard[] shards;
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        shards = new Shard[Math.max(shardCount, 1)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard("chat-broadcast-" + i);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    @Override
+    public void register(Session session) {
+        session.getAsyncRemote().setSendTimeout(sendTimeout);
+        getShard(session).connectionMap.put(session.getId(), new Connection(session));
+    }
+
+    @Override
+    public void unregister(Session session) {
+        getShard(session).connectionMap.remove(session.getId());
+    }
+
+    @Override
+    public void send(Session session, WebsocketMessageDTO messageDTO) {
+        Connection connection = getShard(session).connectionMap.get(session.getId());
+        if (Objects.nonNull(connection)) {
+            connection.offer(JSON.toJSONString(messageDTO));
+        }
+    }
+
+    @Override
+    public void broadcast(WebsocketMessageDTO messageDTO) {
+        broadcast(JSON.toJSONString(messageDTO));
+    }
+
+    @Override
+    public void broadcast(String text) {
+        // 所有连接共用同一份序列化结果
+        for (Shard shard : shards) {
+            shard.executor.execute(() -> shard.connectionMap.values().forEach(connection -> {
+                // 单个连接出错不能中断整个分片的投递
+                try {
+                    connection.offer(text);
+                } catch (Exception e) {
+                    failedCount.increment();
+                    log.warn("聊天消息投递失败,会话:{},原因:{}", connection.session.getId(), e.getMessage());
+                    connection.close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "消息发送失败"));
+                }
+            }));
+        }
+    }
+
+    @Override
+    public int getConnectionCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.connectionMap.size();
+        }
+        return count;
+    }
+
+    @Override
+    public ChatBroadcastMetricsDTO getMetrics() {
+        int connectionCount = 0;
+        int queuedCount = 0;
+        int maxQueueDepth = 0;
+        for (Shard shard : shards) {
+            for (Connection connection : shard.connectionMap.values()) {
+                int depth = connection.queue.size();
+                connectionCount++;
+                queuedCount += depth;
+                maxQueueDepth = Math.max(maxQueueDepth, depth);
+            }
+        }
+        return ChatBroadcastMetricsDTO.builder()
+            .connectionCount(connectionCount)
+            .shardCount(shards.length)
+            .queuedCount(queuedCount)
+            .maxQueueDepth(maxQueueDepth)
+            .sentCount(sentCount.sum())
+            .failedCount(failedCount.sum())
+            .droppedCount(droppedCount.sum())
+            .build();
+    }
+
+    private Shard getShard(Session session) {
+        return shards[(session.getId().hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    /**
+     * 分片，单线程投递，同一分片内的消息按广播顺序进入各连接队列
+     */
+    private static class Shard {
+
+        private final Map<String, Connection> connectionMap = new ConcurrentHashMap<>();
+
+        private final ExecutorService executor;
+
+        Shard(String threadName) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * 连接，同一时间只有一条消息在异步发送，发送完成后再发下一条
+     */
+    private class Connection {
+
+        private final Session session;
+
+        private final Queue<String> queue = new ArrayBlockingQueue<>(queueSize);
+
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        Connection(Session session) {
+            this.session = session;
+        }
+
+        void offer(String text) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(text)) {
+                droppedCount.increment();
+                close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "消息堆积"));
+                return;
+            }
+            sendNext();
+        }
+
+        void sendNext() {
+            while (!closed.get() && sending.compareAndSet(false, true)) {
+                String text = queue.poll();
+                if (Objects.nonNull(text)) {
+                    try {
+                        session.getAsyncRemote().sendText(text, this::onResult);
+                    } catch (Exception e) {
+                        // 连接已关闭或上一条还没发完时会直接抛异常，不会回调onResult
+                        sending.set(false);
+                        failedCount.increment();
+                        log.warn("聊天消息发送失败,会话:{},原因:{}", session.getId(), e.getMessage());
+                        close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "消息发送失败"));
+                    }
+                    return;
+                }
+                sending.set(false);
+                // 释放标记前可能有新消息入队
+                if (queue.isEmpty()) {
+                    return;
+                }
+            }
+        }
+
+        void onResult(SendResult result) {
+            if (result.isOK()) {
+                sentCount.increment();
+            } else {
+                failedCount.increment();
+                log.warn("聊天消息发送失败,会话:{},原因:{}", session.getId(), result.getException().getMessage());
+                close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "消息发送失败"));
+                return;
+            }
+            sending.set(false);
+            sendNext();
+        }
+
+        /**
+         * 断开连接，onClose中会移除连接并更新在线人数
+         */
+        void close(CloseReason closeReason) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            queue.clear();
+            unregister(session);
+            try {
+                session.close(closeReason);
+            } catch (IOException | RuntimeException e) {
+                log.warn("关闭聊天连接失败,会话:{},原因:{}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSON;
+import com.minzheng.blog.dto.RecallMessageDTO;
+import com.minzheng.blog.dto.WebsocketMessageDTO;
+import com.minzheng.blog.service.ChatBroadcastService;
+import com.minzheng.blog.service.ChatBusService;
+import com.minzheng.blog.service.ChatHistoryService;
+import com.minzheng.blog.service.ChatRecordPersistService;
+import com.minzheng.blog.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.*;
+import static com.minzheng.blog.enums.ChatTypeEnum.ONLINE_COUNT;
+import static com.minzheng.blog.enums.ChatTypeEnum.RECALL_MESSAGE;
+
+/**
+ * 聊天室集群消息总线
+ * 消息、撤回和在线人数都发布到redis频道，每个节点（包括发布者）收到后广播给本机连接并同步聊天记录缓存和待写队列；
+ * 各节点定时上报本机连接数和心跳，在线人数为心跳未过期节点的连接数之和，节点宕机后过期自动剔除；
+ * 心跳使用单独的线程，不和其他定时任务共用spring的调度线程，避免其他任务耗时过长时本节点被当作宕机剔除
+ *
+ */
+@Slf4j
+@Service
+public class ChatBusServiceImpl implements ChatBusService, MessageListener {
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired
+    private RedisService redisService;
+    @Autowired
+    private ChatBroadcastService chatBroadcastService;
+    @Autowired
+    private ChatHistoryService chatHistoryService;
+    @Autowired
+    private ChatRecordPersistService chatRecordPersistService;
+
+    /**
+     * 节点心跳过期时间（毫秒）
+     */
+    @Value("${chat.cluster.node-expire:15000}")
+    private long nodeExpire;
+
+    /**
+     * 心跳间隔（毫秒）
+     */
+    @Value("${chat.cluster.heartbeat-interval:5000}")
+    private long heartbeatInterval;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    /**
+     * 节点id
+     */
+    private final String nodeId = IdUtil.simpleUUID();
+
+    /**
+     * 上次发布的在线人数
+     */
+    private volatile long lastOnlineCount = -1;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHAT_CHANNEL));
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        // 先停止心跳，避免删除后又被上报
+        heartbeatExecutor.shutdownNow();
+        heartbeatExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        redisService.hDel(CHAT_NODE, nodeId);
+        redisService.hDel(CHAT_ONLINE, nodeId);
+    }
+
+    @Override
+    public void publish(WebsocketMessageDTO messageDTO) {
+        String text = JSON.toJSONString(messageDTO);
+        try {
+            stringRedisTemplate.convertAndSend(CHAT_CHANNEL, text);
+        } catch (Exception e) {
+            // redis不可用时至少保证本机连接收到
+            log.error(StrUtil.format("聊天消息发布失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+            deliver(text);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        deliver(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 广播给本机连接并同步聊天记录缓存，撤回的记录可能还在任一节点的待写队列中，每个节点都要删除
+     *
+     * @param text 消息json
+     */
+    private void deliver(String text) {
+        chatBroadcastService.broadcast(text);
+        try {
+            WebsocketMessageDTO messageDTO = JSON.parseObject(text, WebsocketMessageDTO.class);
+            chatHistoryService.apply(messageDTO);
+            if (RECALL_MESSAGE.getType().equals(messageDTO.getType())) {
+                RecallMessageDTO recallMessage = JSON.parseObject(JSON.toJSONString(messageDTO.getData()), RecallMessageDTO.class);
+                chatRecordPersistService.delete(recallMessage.getId());
+            }
+        } catch (Exception e) {
+            log.warn("聊天记录更新失败:{}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void updateOnlineCount() {
+        try {
+            report();
+            publishOnlineCount(countOnline());
+        } catch (Exception e) {
+            log.error(StrUtil.format("在线人数更新失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+            chatBroadcastService.broadcast(WebsocketMessageDTO.builder()
+                .type(ONLINE_COUNT.getType())
+                .data(chatBroadcastService.getConnectionCount())
+                .build());
+        }
+    }
+
+    /**
+     * 定时上报心跳，剔除过期节点，在线人数变化时发布
+     */
+    private void heartbeat() {
+        try {
+            report();
+            long onlineCount = countOnline();
+            if (onlineCount != lastOnlineCount) {
+                publishOnlineCount(onlineCount);
+            }
+        } catch (Exception e) {
+            log.warn("聊天节点心跳失败:{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 上报本机连接数和心跳时间
+     */
+    private void report() {
+        redisService.hSet(CHAT_ONLINE, nodeId, chatBroadcastService.getConnectionCount());
+        redisService.hSet(CHAT_NODE, nodeId, System.currentTimeMillis());
+    }
+
+    /**
+     * 汇总心跳未过期节点的连接数，顺便删除过期节点
+     */
+    private long countOnline() {
+        long expireTime = System.currentTimeMillis() - nodeExpire;
+        Map<String, Object> onlineMap = redisService.hGetAll(CHAT_ONLINE);
+        long onlineCount = 0;
+        for (Map.Entry<String, Object> entry : redisService.hGetAll(CHAT_NODE).entrySet()) {
+            if (((Number) entry.getValue()).longValue() < expireTime) {
+                redisService.hDel(CHAT_NODE, entry.getKey());
+                redisService.hDel(CHAT_ONLINE, entry.getKey());
+                continue;
+            }
+            Object count = onlineMap.get(entry.getKey());
+            if (Objects.nonNull(count)) {
+                onlineCount += ((Number) count).longValue();
+            }
+        }
+        return onlineCount;
+    }
+
+    private void publishOnlineCount(long onlineCount) {
+        lastOnlineCount = onlineCount;
+        publish(WebsocketMessageDTO.builder()
+            .type(ONLINE_COUNT.getType())
+            .data(onlineCount)
+            .build());
+    }
+
+}
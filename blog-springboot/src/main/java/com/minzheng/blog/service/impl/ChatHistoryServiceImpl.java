@@ -0,0 +1,148 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.date.DateUtil;
+import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.minzheng.blog.dao.ChatRecordDao;
+import com.minzheng.blog.dto.RecallMessageDTO;
+import com.minzheng.blog.dto.WebsocketMessageDTO;
+import com.minzheng.blog.entity.ChatRecord;
+import com.minzheng.blog.enums.ChatTypeEnum;
+import com.minzheng.blog.service.ChatHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 聊天记录缓存服务
+ * 内存中按id保存最近的聊天记录，新消息和撤回通过集群广播同步到每个节点，
+ * 新连接只从内存取最近若干条，更早的记录按id向前翻页查询
+ *
+ */
+@Service
+public class ChatHistoryServiceImpl implements ChatHistoryService {
+    @Autowired
+    private ChatRecordDao chatRecordDao;
+
+    /**
+     * 只展示最近多少小时的聊天记录
+     */
+    private static final int HISTORY_HOURS = 12;
+
+    /**
+     * 内存中最多保存条数
+     */
+    @Value("${chat.history.capacity:200}")
+    private int capacity;
+
+    /**
+     * 建立连接时发送的条数
+     */
+    @Value("${chat.history.initial-size:50}")
+    private int initialSize;
+
+    /**
+     * 向前翻页每页条数
+     */
+    @Value("${chat.history.page-size:50}")
+    private int pageSize;
+
+    /**
+     * 最近的聊天记录，超过容量时丢弃id最小的
+     */
+    private final TreeMap<Integer, ChatRecord> recordMap = new TreeMap<>();
+
+    private volatile boolean loaded;
+
+    @Override
+    public List<ChatRecord> listRecentRecords() {
+        load();
+        LocalDateTime startTime = LocalDateTime.now().minusHours(HISTORY_HOURS);
+        List<ChatRecord> chatRecordList = new ArrayList<>(initialSize);
+        synchronized (recordMap) {
+            for (ChatRecord chatRecord : recordMap.descendingMap().values()) {
+                if (chatRecordList.size() >= initialSize || isBefore(chatRecord, startTime)) {
+                    break;
+                }
+                chatRecordList.add(chatRecord);
+            }
+        }
+        Collections.reverse(chatRecordList);
+        return chatRecordList;
+    }
+
+    @Override
+    public List<ChatRecord> listOlderRecords(Integer id) {
+        List<ChatRecord> chatRecordList = chatRecordDao.selectList(new LambdaQueryWrapper<ChatRecord>()
+            .lt(ChatRecord::getId, id)
+            .ge(ChatRecord::getCreateTime, DateUtil.offsetHour(new Date(), -HISTORY_HOURS))
+            .orderByDesc(ChatRecord::getId)
+            .last("limit " + pageSize));
+        Collections.reverse(chatRecordList);
+        return chatRecordList;
+    }
+
+    @Override
+    public void apply(WebsocketMessageDTO messageDTO) {
+        ChatTypeEnum chatType = ChatTypeEnum.getChatType(messageDTO.getType());
+        if (Objects.isNull(chatType) || Objects.isNull(messageDTO.getData())) {
+            return;
+        }
+        switch (chatType) {
+            case SEND_MESSAGE:
+            case VOICE_MESSAGE:
+                ChatRecord chatRecord = JSON.parseObject(JSON.toJSONString(messageDTO.getData()), ChatRecord.class);
+                if (Objects.nonNull(chatRecord.getId())) {
+                    synchronized (recordMap) {
+                        recordMap.put(chatRecord.getId(), chatRecord);
+                        trim();
+                    }
+                }
+                break;
+            case RECALL_MESSAGE:
+                RecallMessageDTO recallMessage = JSON.parseObject(JSON.toJSONString(messageDTO.getData()), RecallMessageDTO.class);
+                synchronized (recordMap) {
+                    recordMap.remove(recallMessage.getId());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 第一次使用时从数据库加载最近的记录
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (recordMap) {
+            if (loaded) {
+                return;
+            }
+            List<ChatRecord> chatRecordList = chatRecordDao.selectList(new LambdaQueryWrapper<ChatRecord>()
+                .ge(ChatRecord::getCreateTime, DateUtil.offsetHour(new Date(), -HISTORY_HOURS))
+                .orderByDesc(ChatRecord::getId)
+                .last("limit " + capacity));
+            // 加载前广播过来的记录已在其中，不会被覆盖
+            chatRecordList.forEach(chatRecord -> recordMap.putIfAbsent(chatRecord.getId(), chatRecord));
+            trim();
+            loaded = true;
+        }
+    }
+
+    private void trim() {
+        while (recordMap.size() > capacity) {
+            recordMap.pollFirstEntry();
+        }
+    }
+
+    private static boolean isBefore(ChatRecord chatRecord, LocalDateTime startTime) {
+        return Objects.nonNull(chatRecord.getCreateTime()) && chatRecord.getCreateTime().isBefore(startTime);
+    }
+
+}
@@ -0,0 +1,384 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.minzheng.blog.dao.ChatRecordDao;
+import com.minzheng.blog.entity.ChatRecord;
+import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.ChatRecordPersistService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.CHAT_RECORD_ID;
+
+/**
+ * 聊天记录异步写入服务
+ * id从redis按段分配，消息不等数据库就可以广播；记录先追加到本地日志并刷盘，
+ * 后台线程定时或攒够一批后多行插入，写入后压缩日志只保留未写入的部分，启动时回放日志补写宕机前未写入的记录
+ *
+ */
+@Slf4j
+@Service
+public class ChatRecordPersistServiceImpl implements ChatRecordPersistService {
+    @Autowired
+    private ChatRecordDao chatRecordDao;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 插入日志前缀
+     */
+    private static final String INSERT = "I ";
+
+    /**
+     * 删除日志前缀
+     */
+    private static final String DELETE = "D ";
+
+    /**
+     * 每批最多写入条数，待写记录达到该数量时立即写入
+     */
+    @Value("${chat.persist.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 写入间隔（毫秒）
+     */
+    @Value("${chat.persist.flush-interval:1000}")
+    private long flushInterval;
+
+    /**
+     * 每次从redis分配的id数量，多节点时大于1会使不同节点的消息id不按时间有序
+     */
+    @Value("${chat.persist.id-block-size:1}")
+    private int idBlockSize;
+
+    /**
+     * 本地日志路径
+     */
+    @Value("${chat.persist.journal-path:/usr/local/blog/chat-record.journal}")
+    private String journalPath;
+
+    /**
+     * 待插入的记录，按id去重
+     */
+    private final Map<Integer, ChatRecord> pendingInsertMap = new LinkedHashMap<>();
+
+    /**
+     * 待删除的已写入记录id
+     */
+    private final Set<Integer> pendingDeleteSet = new LinkedHashSet<>();
+
+    /**
+     * 待写队列和日志锁
+     */
+    private final Object lock = new Object();
+
+    /**
+     * id分配锁
+     */
+    private final Object idLock = new Object();
+
+    /**
+     * 当前号段下一个可用id
+     */
+    private long nextId;
+
+    /**
+     * 当前号段最大id
+     */
+    private long maxId = -1;
+
+    private FileChannel journal;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path path = Paths.get(journalPath);
+        if (Objects.nonNull(path.getParent())) {
+            Files.createDirectories(path.getParent());
+        }
+        // 回放宕机前未写入的记录，号段要从日志和数据库中最大的id之后开始
+        long journalMaxId = replay(path);
+        initIdGenerator(Math.max(journalMaxId, selectMaxId()));
+        synchronized (lock) {
+            journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            compact();
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "chat-record-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止并写完待写记录
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException, IOException {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (lock) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public void save(ChatRecord chatRecord) {
+        chatRecord.setId(nextId());
+        // 多行插入不经过自动填充
+        chatRecord.setCreateTime(LocalDateTime.now());
+        String line = INSERT + JSON.toJSONString(chatRecord);
+        synchronized (lock) {
+            append(line);
+            pendingInsertMap.put(chatRecord.getId(), chatRecord);
+            if (pendingInsertMap.size() >= batchSize) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        if (Objects.isNull(id)) {
+            return;
+        }
+        synchronized (lock) {
+            append(DELETE + id);
+            if (Objects.isNull(pendingInsertMap.remove(id))) {
+                pendingDeleteSet.add(id);
+            }
+        }
+    }
+
+    /**
+     * 后台写入循环，停止后写完剩余记录再退出
+     */
+    private void writeLoop() {
+        while (true) {
+            List<ChatRecord> chatRecordList;
+            List<Integer> idList;
+            synchronized (lock) {
+                if (running && pendingInsertMap.size() < batchSize) {
+                    try {
+                        lock.wait(flushInterval);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        running = false;
+                    }
+                }
+                if (pendingInsertMap.isEmpty() && pendingDeleteSet.isEmpty()) {
+                    // 发出后又撤回的记录不用写入，只需清空日志
+                    compact();
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                chatRecordList = new ArrayList<>(pendingInsertMap.values());
+                idList = new ArrayList<>(pendingDeleteSet);
+                pendingInsertMap.clear();
+                pendingDeleteSet.clear();
+            }
+            boolean success = write(chatRecordList, idList);
+            synchronized (lock) {
+                if (!success) {
+                    // 写入期间被撤回的记录已经在待删除集合里，重新插入后会再删除
+                    chatRecordList.forEach(chatRecord -> pendingInsertMap.putIfAbsent(chatRecord.getId(), chatRecord));
+                    pendingDeleteSet.addAll(idList);
+                }
+                compact();
+            }
+            if (!success) {
+                if (!running) {
+                    return;
+                }
+                sleep();
+            }
+        }
+    }
+
+    /**
+     * 先插入再删除，写入期间撤回的记录下一批删除
+     *
+     * @param chatRecordList 待插入记录
+     * @param idList         待删除id
+     * @return 是否成功
+     */
+    private boolean write(List<ChatRecord> chatRecordList, List<Integer> idList) {
+        try {
+            for (int i = 0; i < chatRecordList.size(); i += batchSize) {
+                chatRecordDao.insertBatch(chatRecordList.subList(i, Math.min(i + batchSize, chatRecordList.size())));
+            }
+            if (!idList.isEmpty()) {
+                chatRecordDao.deleteBatchIds(idList);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error(StrUtil.format("聊天记录写入失败,插入:{},删除:{},堆栈:{}", chatRecordList.size(), idList.size(),
+                ExceptionUtil.stacktraceToString(e)));
+            return false;
+        }
+    }
+
+    /**
+     * 追加日志并刷盘，调用方持有锁
+     *
+     * @param line 日志行
+     */
+    private void append(String line) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journal.force(false);
+        } catch (IOException e) {
+            log.error(StrUtil.format("聊天记录日志写入失败,路径:{},堆栈:{}", journalPath, ExceptionUtil.stacktraceToString(e)));
+            throw new BizException("消息发送失败");
+        }
+    }
+
+    /**
+     * 用待写记录重写日志，调用方持有锁
+     */
+    private void compact() {
+        try {
+            if (pendingInsertMap.isEmpty() && pendingDeleteSet.isEmpty()) {
+                if (journal.size() == 0) {
+                    return;
+                }
+                journal.truncate(0);
+                journal.force(false);
+                return;
+            }
+            Path path = Paths.get(journalPath);
+            Path compacting = Paths.get(journalPath + ".compacting");
+            try (BufferedWriter out = Files.newBufferedWriter(compacting, StandardCharsets.UTF_8)) {
+                for (ChatRecord chatRecord : pendingInsertMap.values()) {
+                    out.write(INSERT + JSON.toJSONString(chatRecord));
+                    out.newLine();
+                }
+                for (Integer id : pendingDeleteSet) {
+                    out.write(DELETE + id);
+                    out.newLine();
+                }
+            }
+            try (FileChannel channel = FileChannel.open(compacting, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(compacting, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.close();
+            journal = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // 压缩失败时原日志仍完整，回放时重复插入会被忽略
+            log.error(StrUtil.format("聊天记录日志压缩失败,路径:{},堆栈:{}", journalPath, ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 回放日志到待写队列，最后一行可能只写了一半，解析失败的行跳过
+     *
+     * @param path 日志路径
+     * @return 日志中最大的id
+     */
+    private long replay(Path path) throws IOException {
+        if (Files.notExists(path)) {
+            return 0;
+        }
+        long journalMaxId = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            try {
+                if (line.startsWith(INSERT)) {
+                    ChatRecord chatRecord = JSON.parseObject(line.substring(INSERT.length()), ChatRecord.class);
+                    pendingInsertMap.put(chatRecord.getId(), chatRecord);
+                    journalMaxId = Math.max(journalMaxId, chatRecord.getId());
+                } else if (line.startsWith(DELETE)) {
+                    Integer id = Integer.valueOf(line.substring(DELETE.length()).trim());
+                    if (Objects.isNull(pendingInsertMap.remove(id))) {
+                        pendingDeleteSet.add(id);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("聊天记录日志行解析失败:{}", line);
+            }
+        }
+        if (!pendingInsertMap.isEmpty() || !pendingDeleteSet.isEmpty()) {
+            log.info("聊天记录日志回放,待插入:{},待删除:{}", pendingInsertMap.size(), pendingDeleteSet.size());
+        }
+        return journalMaxId;
+    }
+
+    /**
+     * redis中的id不小于已用过的最大id，redis数据丢失后从数据库恢复
+     *
+     * @param usedMaxId 已用过的最大id
+     */
+    private void initIdGenerator(long usedMaxId) {
+        stringRedisTemplate.opsForValue().setIfAbsent(CHAT_RECORD_ID, String.valueOf(usedMaxId));
+        long current = Long.parseLong(Objects.requireNonNull(stringRedisTemplate.opsForValue().get(CHAT_RECORD_ID)));
+        if (current < usedMaxId) {
+            stringRedisTemplate.opsForValue().increment(CHAT_RECORD_ID, usedMaxId - current);
+        }
+    }
+
+    private long selectMaxId() {
+        ChatRecord chatRecord = chatRecordDao.selectOne(new LambdaQueryWrapper<ChatRecord>()
+            .select(ChatRecord::getId)
+            .orderByDesc(ChatRecord::getId)
+            .last("limit 1"));
+        return Objects.nonNull(chatRecord) ? chatRecord.getId() : 0;
+    }
+
+    /**
+     * 号段用完时从redis再取一段，各节点的号段互不重叠
+     *
+     * @return id
+     */
+    private Integer nextId() {
+        synchronized (idLock) {
+            if (nextId > maxId) {
+                Long end = stringRedisTemplate.opsForValue().increment(CHAT_RECORD_ID, idBlockSize);
+                if (Objects.isNull(end)) {
+                    throw new BizException("消息发送失败");
+                }
+                nextId = end - idBlockSize + 1;
+                maxId = end;
+            }
+            return Math.toIntExact(nextId++);
+        }
+    }
+
+    private void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(flushInterval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSON;
+import com.minzheng.blog.dto.ChunkUploadDTO;
+import com.minzheng.blog.dto.ChunkUploadSessionDTO;
+import com.minzheng.blog.enums.FilePathEnum;
+import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.ChunkUploadService;
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.service.UploadIndexService;
+import com.minzheng.blog.strategy.UploadStrategy;
+import com.minzheng.blog.strategy.context.UploadStrategyContext;
+import com.minzheng.blog.util.FileUtils;
+import com.minzheng.blog.vo.ChunkUploadVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.*;
+
+/**
+ * 分片上传服务
+ * 文件名由客户端计算的整个文件md5决定，和普通上传一样按内容去重；分片先合并到按上传id命名的暂存路径，
+ * 服务端校验整个文件的md5后才移动到md5命名的路径，错误的md5不会污染去重索引；
+ * 分片直接流式写入本地分片目录或对象存储的分片上传接口，任务和已上传分片记录在redis中，中断后可以继续上传
+ *
+ */
+@Slf4j
+@Service
+public class ChunkUploadServiceImpl implements ChunkUploadService {
+    @Autowired
+    private RedisService redisService;
+    @Autowired
+    private UploadStrategyContext uploadStrategyContext;
+    @Autowired
+    private UploadIndexService uploadIndexService;
+
+    /**
+     * 最多分片数，对象存储的分片上传最多10000片
+     */
+    private static final int MAX_CHUNK_COUNT = 10000;
+
+    /**
+     * 暂存路径，不在任何上传目录下，不会被上传索引收录
+     */
+    private static final String STAGING_PATH = "chunks/";
+
+    /**
+     * 文件扩展名，文件名来自客户端，不允许路径字符
+     */
+    private static final Pattern EXT_NAME_PATTERN = Pattern.compile("^\\.[0-9A-Za-z]{1,10}$");
+
+    /**
+     * 分片大小，除最后一片外对象存储要求不小于1MB
+     */
+    @Value("${upload.chunk.size:5242880}")
+    private long chunkSize;
+
+    /**
+     * 文件最大大小
+     */
+    @Value("${upload.chunk.max-file-size:2147483648}")
+    private long maxFileSize;
+
+    /**
+     * 分片上传过期时间（秒）
+     */
+    @Value("${upload.chunk.expire:86400}")
+    private long expire;
+
+    @Override
+    public ChunkUploadDTO initiateChunkUpload(ChunkUploadVO chunkUploadVO) {
+        if (chunkUploadVO.getFileSize() > maxFileSize) {
+            throw new BizException("文件过大");
+        }
+        String path = Arrays.stream(FilePathEnum.values())
+            .filter(filePathEnum -> filePathEnum.name().equalsIgnoreCase(chunkUploadVO.getType()))
+            .map(FilePathEnum::getPath)
+            .findFirst()
+            .orElseThrow(() -> new BizException("上传路径不正确"));
+        String fileName = chunkUploadVO.getFileName();
+        String extName = fileName.contains(".") ? FileUtils.getExtName(fileName) : "";
+        if (!extName.isEmpty() && !EXT_NAME_PATTERN.matcher(extName).matches()) {
+            throw new BizException("文件类型不正确");
+        }
+        String md5 = chunkUploadVO.getMd5().toLowerCase(Locale.ROOT);
+        String filePath = path + md5 + extName;
+        UploadStrategy uploadStrategy = uploadStrategyContext.getUploadStrategy();
+        // 文件已存在则不需要上传
+        if (uploadStrategy.isUploaded(filePath)) {
+            return ChunkUploadDTO.builder()
+                .url(uploadStrategy.getFileAccessUrl(filePath))
+                .build();
+        }
+        // 同一文件未完成的上传继续使用
+        Object unfinishedUploadId = redisService.get(CHUNK_UPLOAD_FILE + filePath);
+        if (Objects.nonNull(unfinishedUploadId)) {
+            ChunkUploadSessionDTO session = loadSession(unfinishedUploadId.toString());
+            if (Objects.nonNull(session) && Objects.nonNull(session.getStagingPath())
+                && session.getFileSize().equals(chunkUploadVO.getFileSize())) {
+                return buildChunkUpload(session);
+            }
+        }
+        int chunkCount = (int) ((chunkUploadVO.getFileSize() + chunkSize - 1) / chunkSize);
+        if (chunkCount > MAX_CHUNK_COUNT) {
+            throw new BizException("分片数过多");
+        }
+        String uploadId = IdUtil.simpleUUID();
+        ChunkUploadSessionDTO session = ChunkUploadSessionDTO.builder()
+            .uploadId(uploadId)
+            .filePath(filePath)
+            .stagingPath(STAGING_PATH + uploadId + extName)
+            .md5(md5)
+            .fileSize(chunkUploadVO.getFileSize())
+            .chunkSize(chunkSize)
+            .chunkCount(chunkCount)
+            .build();
+        try {
+            session.setPartUploadId(uploadStrategy.initiateMultipartUpload(session.getStagingPath()));
+        } catch (Exception e) {
+            log.error(StrUtil.format("分片上传初始化失败,路径:{},堆栈:{}", filePath, ExceptionUtil.stacktraceToString(e)));
+            throw new BizException("文件上传失败");
+        }
+        redisService.set(CHUNK_UPLOAD + session.getUploadId(), JSON.toJSONString(session), expire);
+        redisService.set(CHUNK_UPLOAD_FILE + filePath, session.getUploadId(), expire);
+        return buildChunkUpload(session);
+    }
+
+    @Override
+    public void uploadChunk(String uploadId, Integer chunkNumber, String md5, InputStream inputStream) {
+        ChunkUploadSessionDTO session = getSession(uploadId);
+        if (chunkNumber < 1 || chunkNumber > session.getChunkCount()) {
+            throw new BizException("分片序号不正确");
+        }
+        // 最后一片为剩余大小
+        long partSize = chunkNumber < session.getChunkCount()
+            ? session.getChunkSize()
+            : session.getFileSize() - session.getChunkSize() * (session.getChunkCount() - 1);
+        String eTag = uploadStrategyContext.getUploadStrategy().uploadPart(session.getStagingPath(), session.getPartUploadId(),
+            chunkNumber, inputStream, partSize, md5);
+        redisService.hSet(CHUNK_UPLOAD_PART + uploadId, chunkNumber.toString(), eTag, expire);
+        // 上传过程中续期
+        redisService.expire(CHUNK_UPLOAD + uploadId, expire);
+        redisService.expire(CHUNK_UPLOAD_FILE + session.getFilePath(), expire);
+    }
+
+    @Override
+    public ChunkUploadDTO getChunkUpload(String uploadId) {
+        return buildChunkUpload(getSession(uploadId));
+    }
+
+    @Override
+    public String completeChunkUpload(String uploadId) {
+        ChunkUploadSessionDTO session = getSession(uploadId);
+        Map<Integer, String> partMap = getPartMap(uploadId);
+        if (partMap.size() != session.getChunkCount()) {
+            throw new BizException("分片未上传完整");
+        }
+        UploadStrategy uploadStrategy = uploadStrategyContext.getUploadStrategy();
+        try {
+            uploadStrategy.completeMultipartUpload(session.getStagingPath(), session.getPartUploadId(), partMap,
+                session.getFilePath(), session.getMd5());
+        } catch (BizException e) {
+            // 校验失败后分片已合并删除，任务不能继续
+            deleteSession(session);
+            throw e;
+        } catch (Exception e) {
+            log.error(StrUtil.format("分片合并失败,路径:{},堆栈:{}", session.getFilePath(), ExceptionUtil.stacktraceToString(e)));
+            throw new BizException("文件上传失败");
+        }
+        uploadIndexService.add(session.getFilePath());
+        deleteSession(session);
+        return uploadStrategy.getFileAccessUrl(session.getFilePath());
+    }
+
+    @Override
+    public void abortChunkUpload(String uploadId) {
+        ChunkUploadSessionDTO session = getSession(uploadId);
+        try {
+            uploadStrategyContext.getUploadStrategy().abortMultipartUpload(session.getStagingPath(), session.getPartUploadId());
+        } catch (Exception e) {
+            log.warn("取消分片上传失败,路径:{},原因:{}", session.getFilePath(), e.getMessage());
+        }
+        deleteSession(session);
+    }
+
+    private ChunkUploadDTO buildChunkUpload(ChunkUploadSessionDTO session) {
+        return ChunkUploadDTO.builder()
+            .uploadId(session.getUploadId())
+            .chunkSize(session.getChunkSize())
+            .chunkCount(session.getChunkCount())
+            .uploadedChunkList(new ArrayList<>(getPartMap(session.getUploadId()).keySet()))
+            .build();
+    }
+
+    private ChunkUploadSessionDTO getSession(String uploadId) {
+        ChunkUploadSessionDTO session = loadSession(uploadId);
+        // 没有暂存路径的是升级前创建的任务，不能校验md5，需要重新上传
+        if (Objects.isNull(session) || Objects.isNull(session.getStagingPath())) {
+            throw new BizException("上传任务不存在或已过期");
+        }
+        return session;
+    }
+
+    private ChunkUploadSessionDTO loadSession(String uploadId) {
+        Object session = redisService.get(CHUNK_UPLOAD + uploadId);
+        if (Objects.isNull(session)) {
+            return null;
+        }
+        return JSON.parseObject(session.toString(), ChunkUploadSessionDTO.class);
+    }
+
+    /**
+     * 已上传的分片，按序号排序
+     */
+    private Map<Integer, String> getPartMap(String uploadId) {
+        return redisService.hGetAll(CHUNK_UPLOAD_PART + uploadId).entrySet().stream()
+            .collect(Collectors.toMap(entry -> Integer.valueOf(entry.getKey()), entry -> entry.getValue().toString(),
+                (oldValue, newValue) -> newValue, TreeMap::new));
+    }
+
+    private void deleteSession(ChunkUploadSessionDTO session) {
+        redisService.del(Arrays.asList(CHUNK_UPLOAD + session.getUploadId(), CHUNK_UPLOAD_PART + session.getUploadId(),
+            CHUNK_UPLOAD_FILE + session.getFilePath()));
+    }
+
+}
@@ -16,6 +16,7 @@ import com.minzheng.blog.service.CommentService;
 import com.minzheng.blog.service.RedisService;
 import com.minzheng.blog.util.BeanCopyUtils;
 import com.minzheng.blog.util.HTMLUtils;
+import com.minzheng.blog.util.PageCursor;
 import com.minzheng.blog.util.PageUtils;
 import com.minzheng.blog.util.UserUtils;
 import com.minzheng.blog.vo.*;
@@ -26,11 +27,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.minzheng.blog.constant.CommonConst.*;
 import static com.minzheng.blog.constant.MQPrefixConst.EMAIL_EXCHANGE;
@@ -58,6 +62,8 @@ public class CommentServiceImpl extends ServiceImpl<CommentDao, Comment> impleme
     private RabbitTemplate rabbitTemplate;
     @Autowired
     private BlogInfoService blogInfoService;
+    @Resource
+    private Executor notificationExecutor;
 
     /**
      * 网站网址
@@ -82,15 +88,11 @@ public class CommentServiceImpl extends ServiceImpl<CommentDao, Comment> impleme
             return new PageResult<>();
         }else{
             // 分页查询评论数据
-            List<CommentDTO> commentDTOList = commentDao.listComments(PageUtils.getLimitCurrent(), PageUtils.getSize(), commentVO);
+            PageCursor cursor = PageUtils.getCursor(false);
+            List<CommentDTO> commentDTOList = commentDao.listComments(PageUtils.getLimitCurrent(cursor), PageUtils.getSize(), commentVO, cursor);
             if (CollectionUtils.isEmpty(commentDTOList)) {
                 return new PageResult<>();
             }
-            //todo 查询redis的评论点赞数据 Hash结构 redisTemplate.opsForHash().entries(key)
-            Map<String, Object> likeCountMap = redisService.hGetAll(COMMENT_LIKE_COUNT);
-
-            //遍历
-
             //遍历commentDTOList提取评论id集合---》根据评论id集合查询回复数据replyDTOList--》从redis获取点赞数，给该说说下的每条回复点赞量赋值
             List<Integer> commentIdList = commentDTOList
                 .stream()
@@ -98,6 +100,11 @@ public class CommentServiceImpl extends ServiceImpl<CommentDao, Comment> impleme
                 .collect(Collectors.toList());
             //根据评论的id集合查询回复数据replyDTOList
             List<ReplyDTO> replyDTOList = commentDao.listReplies(commentIdList);
+            //只查询本页评论和回复的点赞数据
+            List<String> likeIdList = Stream.concat(commentIdList.stream(), replyDTOList.stream().map(ReplyDTO::getId))
+                .map(Object::toString)
+                .collect(Collectors.toList());
+            Map<String, Object> likeCountMap = redisService.hMultiGet(COMMENT_LIKE_COUNT, likeIdList);
             //给该评论下的每条回复点赞量赋值
             for (ReplyDTO replyDTO : replyDTOList) {
                 replyDTO.setLikeCount((Integer) likeCountMap.get(replyDTO.getId().toString()));
@@ -117,7 +124,9 @@ public class CommentServiceImpl extends ServiceImpl<CommentDao, Comment> impleme
                 commentDTO.setReplyCount(replyCountMap.get(commentDTO.getId()));
                 commentDTO.setReplyDTOList(replyMap.get(commentDTO.getId()));
             });
-            return new PageResult<>(commentDTOList,commentCount);
+            PageResult<CommentDTO> pageResult = new PageResult<>(commentDTOList, commentCount);
+            pageResult.setNextCursor(PageUtils.getNextCursor(commentDTOList, null, CommentDTO::getId));
+            return pageResult;
         }
     }
 
@@ -147,9 +156,10 @@ public class CommentServiceImpl extends ServiceImpl<CommentDao, Comment> impleme
 
         // 转换页码查询评论下的回复
         List<ReplyDTO> replyDTOList = commentDao.listRepliesByCommentId(PageUtils.getLimitCurrent(), PageUtils.getSize(), commentId);
-        // 查询redis的评论点赞数据
-        //todo 查询redis的评论点赞数据 Hash结构 redisTemplate.opsForHash().entries(key)
-        Map<String, Object> likeCountMap = redisService.hGetAll(COMMENT_LIKE_COUNT);
+        // 只查询本页回复的点赞数据
+        Map<String, Object> likeCountMap = redisService.hMultiGet(COMMENT_LIKE_COUNT, replyDTOList.stream()
+            .map(replyDTO -> replyDTO.getId().toString())
+            .collect(Collectors.toList()));
         //给该评论下的每条回复点赞量赋值
         for (ReplyDTO replyDTO : replyDTOList) {
             replyDTO.setLikeCount((Integer) likeCountMap.get(replyDTO.getId().toString()));
@@ -249,7 +259,7 @@ public class CommentServiceImpl extends ServiceImpl<CommentDao, Comment> impleme
         commentDao.insert(comment);
         // 判断是否开启邮箱通知,通知用户
         if (websiteConfig.getIsEmailNotice().equals(TRUE)) {
-            CompletableFuture.runAsync(() -> notice(comment));
+            CompletableFuture.runAsync(() -> notice(comment), notificationExecutor);
         }
     }
 
@@ -0,0 +1,405 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.minzheng.blog.dao.ArticleDao;
+import com.minzheng.blog.dao.ElasticsearchDao;
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.minzheng.blog.dto.EsReindexProgressDTO;
+import com.minzheng.blog.entity.Article;
+import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.EsReindexService;
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.util.BeanCopyUtils;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.ES_REINDEX;
+
+/**
+ * es重建索引服务
+ * 游标流式读取文章，分块并发bulk写入新的带版本号的索引，完成后原子切换别名；
+ * 检查点记录在redis，失败后可以从检查点继续
+ *
+ */
+@Slf4j
+@Service
+public class EsReindexServiceImpl implements EsReindexService {
+    @Autowired
+    private ArticleDao articleDao;
+    @Autowired
+    private ElasticsearchDao elasticsearchDao;
+    @Autowired
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+    @Autowired
+    private RestHighLevelClient restHighLevelClient;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private RedisService redisService;
+    @Resource
+    private Executor indexingExecutor;
+
+    private static final String RUNNING = "running";
+
+    private static final String COMPLETED = "completed";
+
+    private static final String FAILED = "failed";
+
+    private static final DateTimeFormatter VERSION_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /**
+     * 每个bulk请求的文档数
+     */
+    @Value("${search.reindex.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 同时进行的bulk请求数
+     */
+    @Value("${search.reindex.concurrency:2}")
+    private int concurrency;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile String index;
+
+    private volatile String status;
+
+    private volatile String message;
+
+    private volatile Integer lastId;
+
+    private volatile long checkpointIndexed;
+
+    private volatile long total;
+
+    private volatile long resumedCount;
+
+    private volatile LocalDateTime startTime;
+
+    private volatile LocalDateTime endTime;
+
+    @Override
+    public EsReindexProgressDTO reindex(boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BizException("索引正在重建");
+        }
+        try {
+            EsReindexProgressDTO last = loadProgress();
+            if (resume && Objects.nonNull(last) && !COMPLETED.equals(last.getStatus())) {
+                // 从检查点继续写入上次的索引
+                index = last.getIndex();
+                // 检查点之后的块可能已写入，继续时会重新写入，已写入数只算到检查点
+                lastId = last.getLastId();
+                resumedCount = Objects.nonNull(last.getCheckpointIndexed()) ? last.getCheckpointIndexed() : 0L;
+            } else {
+                index = getAlias() + "_" + LocalDateTime.now().format(VERSION_FORMATTER);
+                lastId = 0;
+                resumedCount = 0;
+                createIndex(index);
+            }
+            checkpointIndexed = resumedCount;
+            indexedCount.set(resumedCount);
+            failedCount.set(0);
+            total = articleDao.selectCount(null);
+            status = RUNNING;
+            message = null;
+            startTime = LocalDateTime.now();
+            endTime = null;
+            saveProgress();
+            Thread thread = new Thread(this::run, "es-reindex");
+            thread.setDaemon(true);
+            thread.start();
+            return buildProgress();
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    @Override
+    public EsReindexProgressDTO getProgress() {
+        if (Objects.isNull(index)) {
+            return loadProgress();
+        }
+        return buildProgress();
+    }
+
+    /**
+     * 重建索引
+     */
+    private void run() {
+        try {
+            Deque<Chunk> pendingChunks = new ArrayDeque<>();
+            Semaphore semaphore = new Semaphore(concurrency);
+            // 游标需要在同一个连接上读完
+            transactionTemplate.execute(transactionStatus -> {
+                try (Cursor<ArticleSearchDTO> cursor = articleDao.cursorArticleSearch(lastId)) {
+                    List<ArticleSearchDTO> articleList = new ArrayList<>(chunkSize);
+                    for (ArticleSearchDTO article : cursor) {
+                        articleList.add(article);
+                        if (articleList.size() == chunkSize) {
+                            submit(articleList, semaphore, pendingChunks);
+                            articleList = new ArrayList<>(chunkSize);
+                        }
+                    }
+                    if (!articleList.isEmpty()) {
+                        submit(articleList, semaphore, pendingChunks);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            for (Chunk chunk : pendingChunks) {
+                chunk.future.exceptionally(e -> null).join();
+            }
+            advanceCheckpoint(pendingChunks);
+            if (failedCount.get() > 0) {
+                throw new BizException(StrUtil.format("{}条文档写入失败", failedCount.get()));
+            }
+            restoreSettings(index);
+            swapAlias(index);
+            catchUp();
+            status = COMPLETED;
+        } catch (Exception e) {
+            status = FAILED;
+            message = e.getMessage();
+            log.error(StrUtil.format("es重建索引失败,索引:{},堆栈:{}", index, ExceptionUtil.stacktraceToString(e)));
+        } finally {
+            endTime = LocalDateTime.now();
+            saveProgress();
+            running.set(false);
+        }
+    }
+
+    /**
+     * 提交一个bulk请求，达到并发数时阻塞游标读取
+     *
+     * @param articleList   文章
+     * @param semaphore     并发许可
+     * @param pendingChunks 按提交顺序排列的未确认块
+     */
+    private void submit(List<ArticleSearchDTO> articleList, Semaphore semaphore, Deque<Chunk> pendingChunks) {
+        semaphore.acquireUninterruptibly();
+        String targetIndex = index;
+        CompletableFuture<Void> future;
+        try {
+            future = CompletableFuture.runAsync(() -> bulkIndex(targetIndex, articleList), indexingExecutor);
+        } catch (RuntimeException e) {
+            semaphore.release();
+            throw e;
+        }
+        future.whenComplete((result, e) -> semaphore.release());
+        pendingChunks.addLast(new Chunk(articleList.get(articleList.size() - 1).getId(), articleList.size(), future));
+        advanceCheckpoint(pendingChunks);
+    }
+
+    private void bulkIndex(String targetIndex, List<ArticleSearchDTO> articleList) {
+        List<IndexQuery> queryList = articleList.stream()
+            .map(article -> new IndexQueryBuilder()
+                .withId(article.getId().toString())
+                .withObject(article)
+                .build())
+            .collect(Collectors.toList());
+        try {
+            elasticsearchRestTemplate.bulkIndex(queryList, IndexCoordinates.of(targetIndex));
+            indexedCount.addAndGet(articleList.size());
+        } catch (RuntimeException e) {
+            failedCount.addAndGet(articleList.size());
+            throw e;
+        }
+    }
+
+    /**
+     * 前面的块都写入成功后才推进检查点，块之间可能乱序完成
+     *
+     * @param pendingChunks 按提交顺序排列的未确认块
+     */
+    private void advanceCheckpoint(Deque<Chunk> pendingChunks) {
+        Integer checkpoint = null;
+        long count = checkpointIndexed;
+        while (!pendingChunks.isEmpty() && pendingChunks.peekFirst().future.isDone()
+            && !pendingChunks.peekFirst().future.isCompletedExceptionally()) {
+            Chunk chunk = pendingChunks.pollFirst();
+            checkpoint = chunk.lastId;
+            count += chunk.size;
+        }
+        if (Objects.nonNull(checkpoint)) {
+            lastId = checkpoint;
+            checkpointIndexed = count;
+            saveProgress();
+        }
+    }
+
+    /**
+     * 创建新索引，写入期间关闭刷新
+     *
+     * @param newIndex 索引名
+     */
+    private void createIndex(String newIndex) {
+        IndexOperations indexOps = elasticsearchRestTemplate.indexOps(IndexCoordinates.of(newIndex));
+        Document settings = Document.create();
+        settings.put("index.refresh_interval", "-1");
+        indexOps.create(settings);
+        indexOps.putMapping(indexOps.createMapping(ArticleSearchDTO.class));
+    }
+
+    /**
+     * 恢复默认刷新间隔并刷新
+     *
+     * @param newIndex 索引名
+     */
+    private void restoreSettings(String newIndex) throws IOException {
+        restHighLevelClient.indices().putSettings(new UpdateSettingsRequest(newIndex)
+            .settings(Settings.builder().putNull("index.refresh_interval")), RequestOptions.DEFAULT);
+        elasticsearchRestTemplate.indexOps(IndexCoordinates.of(newIndex)).refresh();
+    }
+
+    /**
+     * 一次请求把别名从旧索引切到新索引，之后删除旧索引
+     *
+     * @param newIndex 新索引
+     */
+    private void swapAlias(String newIndex) throws IOException {
+        String alias = getAlias();
+        Set<String> oldIndices = new HashSet<>(restHighLevelClient.indices()
+            .getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT)
+            .getAliases()
+            .keySet());
+        oldIndices.remove(newIndex);
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(newIndex).alias(alias));
+        oldIndices.forEach(oldIndex -> request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(oldIndex).alias(alias)));
+        boolean concreteIndex = oldIndices.isEmpty() && restHighLevelClient.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT);
+        if (concreteIndex) {
+            // 第一次切换，原来是同名的普通索引，和加别名在同一个请求里删除
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(alias));
+        }
+        restHighLevelClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        if (!oldIndices.isEmpty()) {
+            try {
+                restHighLevelClient.indices().delete(new DeleteIndexRequest(oldIndices.toArray(new String[0])), RequestOptions.DEFAULT);
+            } catch (Exception e) {
+                log.warn("删除旧索引失败:{}", oldIndices);
+            }
+        }
+    }
+
+    /**
+     * 重建期间增量同步写入的是旧索引，切换后补写这段时间修改的文章
+     */
+    private void catchUp() {
+        List<Article> articleList = articleDao.selectList(new LambdaQueryWrapper<Article>()
+            .select(Article::getId, Article::getArticleTitle, Article::getArticleContent, Article::getIsDelete, Article::getStatus)
+            .ge(Article::getUpdateTime, startTime)
+            .or()
+            .ge(Article::getCreateTime, startTime));
+        if (!articleList.isEmpty()) {
+            elasticsearchDao.saveAll(BeanCopyUtils.copyList(articleList, ArticleSearchDTO.class));
+        }
+    }
+
+    private String getAlias() {
+        return elasticsearchRestTemplate.getIndexCoordinatesFor(ArticleSearchDTO.class).getIndexName();
+    }
+
+    private EsReindexProgressDTO buildProgress() {
+        LocalDateTime end = Objects.isNull(endTime) ? LocalDateTime.now() : endTime;
+        double seconds = Objects.isNull(startTime) ? 0 : Duration.between(startTime, end).toMillis() / 1000D;
+        return EsReindexProgressDTO.builder()
+            .index(index)
+            .status(status)
+            .total(total)
+            .indexed(indexedCount.get())
+            .failed(failedCount.get())
+            .lastId(lastId)
+            .checkpointIndexed(checkpointIndexed)
+            .throughput(seconds > 0 ? (indexedCount.get() - resumedCount) / seconds : 0D)
+            .startTime(startTime)
+            .endTime(endTime)
+            .message(message)
+            .build();
+    }
+
+    private void saveProgress() {
+        try {
+            redisService.set(ES_REINDEX, JSON.toJSONString(buildProgress()));
+        } catch (Exception e) {
+            log.warn("保存es重建进度失败:{}", e.getMessage());
+        }
+    }
+
+    private EsReindexProgressDTO loadProgress() {
+        Object progress = redisService.get(ES_REINDEX);
+        if (Objects.isNull(progress)) {
+            return null;
+        }
+        EsReindexProgressDTO progressDTO = JSON.parseObject(progress.toString(), EsReindexProgressDTO.class);
+        if (RUNNING.equals(progressDTO.getStatus()) && !running.get()) {
+            // 服务重启中断，可以从检查点继续
+            progressDTO.setStatus(FAILED);
+        }
+        return progressDTO;
+    }
+
+    /**
+     * 已提交的bulk块
+     */
+    @AllArgsConstructor
+    private static class Chunk {
+
+        /**
+         * 块中最大的文章id
+         */
+        private final Integer lastId;
+
+        /**
+         * 块中的文档数
+         */
+        private final int size;
+
+        private final CompletableFuture<Void> future;
+    }
+
+}
@@ -0,0 +1,303 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.minzheng.blog.service.ImageVariantService;
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.strategy.UploadStrategy;
+import com.minzheng.blog.util.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.IMAGE_VARIANT;
+
+/**
+ * 图片缩略图服务
+ * 只用jdk自带的ImageIO和Java2D，按配置的宽度生成缩略图并通过当前上传策略存放在原图旁边，
+ * 透明图片输出png，其余输出jpg；原图地址对应的srcset记录在redis中
+ *
+ */
+@Slf4j
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+    @Autowired
+    private RedisService redisService;
+    @Resource
+    private Executor imageExecutor;
+
+    /**
+     * 支持的原图扩展名，gif可能是动图不处理
+     */
+    private static final Set<String> EXT_NAME_SET = new HashSet<>(Arrays.asList(".jpg", ".jpeg", ".png", ".bmp"));
+
+    /**
+     * 缩略图宽度
+     */
+    @Value("${image.variant.widths:400,800,1600}")
+    private List<Integer> widthList;
+
+    /**
+     * 生成缩略图的上传路径
+     */
+    @Value("${image.variant.paths:photos/,articles/}")
+    private List<String> pathList;
+
+    /**
+     * jpg质量
+     */
+    @Value("${image.variant.quality:0.85}")
+    private float quality;
+
+    /**
+     * 原图最大像素数，超过的不解码，避免占满内存
+     */
+    @Value("${image.variant.max-pixels:40000000}")
+    private long maxPixels;
+
+    /**
+     * 下载原图的连接和读取超时时间（毫秒）
+     */
+    @Value("${image.variant.download-timeout:10000}")
+    private int downloadTimeout;
+
+    /**
+     * 正在处理的原图地址，避免重复生成
+     */
+    private final Set<String> processingSet = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean isSupported(String filePath) {
+        int index = filePath.lastIndexOf('/') + 1;
+        return filePath.contains(".")
+            && pathList.contains(filePath.substring(0, index))
+            && EXT_NAME_SET.contains(FileUtils.getExtName(filePath).toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void generate(UploadStrategy uploadStrategy, String filePath, Path imageFile) {
+        String url = uploadStrategy.getFileAccessUrl(filePath);
+        if (!isSupported(filePath) || !processingSet.add(url)) {
+            deleteTempFile(imageFile);
+            return;
+        }
+        submit(uploadStrategy, filePath, url, imageFile);
+    }
+
+    @Override
+    public void generate(UploadStrategy uploadStrategy, List<String> urlList) {
+        String baseUrl = uploadStrategy.getFileAccessUrl("");
+        Map<String, String> srcSetMap = getSrcSetMap(urlList);
+        for (String url : urlList) {
+            // 外部图片和已有缩略图的跳过
+            if (!url.startsWith(baseUrl) || srcSetMap.containsKey(url)) {
+                continue;
+            }
+            String filePath = url.substring(baseUrl.length());
+            if (!isSupported(filePath) || !processingSet.add(url)) {
+                continue;
+            }
+            try {
+                submit(uploadStrategy, filePath, url, null);
+            } catch (Exception e) {
+                processingSet.remove(url);
+                log.warn("缩略图任务提交失败,路径:{},原因:{}", filePath, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> getSrcSetMap(Collection<String> urlList) {
+        List<String> keyList = urlList.stream()
+            .filter(StrUtil::isNotBlank)
+            .distinct()
+            .collect(Collectors.toList());
+        return redisService.hMultiGet(IMAGE_VARIANT, keyList).entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().toString()));
+    }
+
+    /**
+     * 提交到图片线程池，线程池满时直接丢弃，之后保存照片时会按地址补生成
+     *
+     * @param imageFile 原图文件，为空时从地址下载
+     */
+    private void submit(UploadStrategy uploadStrategy, String filePath, String url, Path imageFile) {
+        try {
+            execute(uploadStrategy, filePath, url, imageFile);
+        } catch (RejectedExecutionException e) {
+            processingSet.remove(url);
+            deleteTempFile(imageFile);
+            log.warn("图片线程池已满,跳过缩略图生成,路径:{}", filePath);
+        }
+    }
+
+    private void execute(UploadStrategy uploadStrategy, String filePath, String url, Path imageFile) {
+        imageExecutor.execute(() -> {
+            Path sourceFile = imageFile;
+            try {
+                if (Objects.isNull(sourceFile)) {
+                    sourceFile = Files.createTempFile("variant", ".tmp");
+                    // 源站无响应时不能一直占用图片线程
+                    URLConnection connection = new URL(url).openConnection();
+                    connection.setConnectTimeout(downloadTimeout);
+                    connection.setReadTimeout(downloadTimeout);
+                    try (InputStream inputStream = connection.getInputStream()) {
+                        Files.copy(inputStream, sourceFile, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                process(uploadStrategy, filePath, url, sourceFile);
+            } catch (Exception e) {
+                log.error(StrUtil.format("缩略图生成失败,路径:{},堆栈:{}", filePath, ExceptionUtil.stacktraceToString(e)));
+            } finally {
+                processingSet.remove(url);
+                deleteTempFile(sourceFile);
+            }
+        });
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        if (Objects.isNull(tempFile)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("删除缩略图临时文件失败:{}", tempFile);
+        }
+    }
+
+    /**
+     * 从大到小生成缩略图，每张缩略图以上一张为源，原图只解码一次
+     */
+    private void process(UploadStrategy uploadStrategy, String filePath, String url, Path sourceFile) throws IOException {
+        BufferedImage image = read(sourceFile);
+        if (Objects.isNull(image)) {
+            log.warn("缩略图跳过,无法解码或像素过多:{}", filePath);
+            return;
+        }
+        boolean alpha = image.getColorModel().hasAlpha();
+        String extName = alpha ? ".png" : ".jpg";
+        int index = filePath.lastIndexOf('/') + 1;
+        String path = filePath.substring(0, index);
+        String name = filePath.substring(index, filePath.lastIndexOf('.'));
+        List<Integer> sortedWidthList = widthList.stream()
+            .filter(width -> width < image.getWidth())
+            .distinct()
+            .sorted(Comparator.reverseOrder())
+            .collect(Collectors.toList());
+        List<String> srcSetList = new ArrayList<>();
+        srcSetList.add(url + " " + image.getWidth() + "w");
+        BufferedImage source = image;
+        for (Integer width : sortedWidthList) {
+            int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+            source = resize(source, width, height, alpha);
+            byte[] bytes = write(source, alpha);
+            String variantUrl = uploadStrategy.uploadFile(name + "_" + width + "w" + extName, new ByteArrayInputStream(bytes), path);
+            srcSetList.add(variantUrl + " " + width + "w");
+        }
+        Collections.reverse(srcSetList);
+        redisService.hSet(IMAGE_VARIANT, url, String.join(", ", srcSetList));
+    }
+
+    /**
+     * 先读取尺寸，像素数在限制内才解码
+     *
+     * @return 图片，无法解码时为null
+     */
+    private BufferedImage read(Path sourceFile) throws IOException {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(sourceFile.toFile())) {
+            if (Objects.isNull(inputStream)) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(inputStream, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 逐次减半缩放到目标尺寸，比一次缩放的双线性插值更平滑
+     */
+    private static BufferedImage resize(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(currentWidth / 2, width);
+            currentHeight = Math.max(currentHeight / 2, height);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    /**
+     * 透明图片写成png，其余按配置的质量写成jpg
+     */
+    private byte[] write(BufferedImage image, boolean alpha) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", outputStream);
+            return outputStream.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.minzheng.blog.service.IpLocator;
+import com.minzheng.blog.util.IpDbUtils;
+import com.minzheng.blog.util.IpUtils;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static com.minzheng.blog.util.IpDbUtils.*;
+
+/**
+ * 本地ip库查询，ip库文件内存映射后二分查找区间，不走网络；
+ * 没有配置或没有加载到ip库时退回在线查询，成功的结果在本地缓存
+ *
+ */
+@Slf4j
+@Service
+public class IpLocatorImpl implements IpLocator {
+
+    /**
+     * ip库文件路径
+     */
+    @Value("${ip.db-path:}")
+    private String dbPath;
+
+    /**
+     * 当前使用的ip库
+     */
+    private volatile IpDb ipDb;
+
+    /**
+     * 已提示过ip库文件不存在，文件加载成功后重置
+     */
+    private volatile boolean missingWarned;
+
+    /**
+     * 在线查询结果缓存
+     */
+    private final Cache<String, String> onlineCache = Caffeine.newBuilder()
+        .maximumSize(10000)
+        .expireAfterWrite(1, TimeUnit.DAYS)
+        .build();
+
+    @PostConstruct
+    public void init() {
+        if (StrUtil.isBlank(dbPath)) {
+            log.warn("未配置ip库,使用在线接口查询ip归属地");
+            return;
+        }
+        reload();
+    }
+
+    @Override
+    public String getIpSource(String ipAddress) {
+        return search(ipDb, ipAddress);
+    }
+
+    @Override
+    public Map<String, String> listIpSources(Collection<String> ipAddressList) {
+        IpDb db = ipDb;
+        Map<String, String> ipSourceMap = new HashMap<>(ipAddressList.size() * 2);
+        for (String ipAddress : ipAddressList) {
+            if (!ipSourceMap.containsKey(ipAddress)) {
+                ipSourceMap.put(ipAddress, search(db, ipAddress));
+            }
+        }
+        return ipSourceMap;
+    }
+
+    @Override
+    public synchronized void reload() {
+        if (StrUtil.isBlank(dbPath)) {
+            return;
+        }
+        Path path = Paths.get(dbPath);
+        if (Files.notExists(path)) {
+            warnMissing();
+            return;
+        }
+        try {
+            // 先加载新库再替换引用，查询线程不会看到加载了一半的库
+            ipDb = IpDb.load(path);
+            missingWarned = false;
+            log.info("ip库加载完成,区间数:{}", ipDb.recordCount);
+        } catch (Exception e) {
+            log.error(StrUtil.format("ip库加载失败,路径:{},堆栈:{}", dbPath, ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 有ip库时查本地库，没有时在线查询
+     *
+     * @param db        ip库
+     * @param ipAddress ip地址
+     * @return 归属地
+     */
+    private String search(IpDb db, String ipAddress) {
+        if (StrUtil.isBlank(ipAddress)) {
+            return "";
+        }
+        if (Objects.nonNull(db)) {
+            long ip = IpDbUtils.ipToLong(ipAddress);
+            return ip < 0 ? "" : db.search(ip);
+        }
+        String ipSource = onlineCache.getIfPresent(ipAddress);
+        if (Objects.isNull(ipSource)) {
+            ipSource = IpUtils.getIpSource(ipAddress);
+            // 查询失败不缓存，下次重试
+            if (StrUtil.isNotBlank(ipSource)) {
+                onlineCache.put(ipAddress, ipSource);
+            }
+        }
+        return ipSource;
+    }
+
+    /**
+     * ip库文件不存在只提示一次
+     */
+    private void warnMissing() {
+        if (!missingWarned) {
+            missingWarned = true;
+            log.warn("ip库文件不存在:{},{}", dbPath, Objects.isNull(ipDb) ? "使用在线接口查询ip归属地" : "继续使用已加载的ip库");
+        }
+    }
+
+    /**
+     * ip库文件变更后重新加载
+     */
+    @Scheduled(fixedDelayString = "${ip.refresh-interval:60000}")
+    public void refreshOnChange() {
+        if (StrUtil.isBlank(dbPath)) {
+            return;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(Paths.get(dbPath)).toMillis();
+            if (Objects.isNull(ipDb) || lastModified != ipDb.lastModified) {
+                reload();
+            }
+        } catch (IOException e) {
+            warnMissing();
+        }
+    }
+
+    /**
+     * 内存映射的ip库
+     */
+    @AllArgsConstructor
+    private static class IpDb {
+
+        /**
+         * 区间表
+         */
+        private final ByteBuffer records;
+
+        /**
+         * 区间表起始位置
+         */
+        private final int recordOffset;
+
+        /**
+         * 区间数
+         */
+        private final int recordCount;
+
+        /**
+         * 地区表
+         */
+        private final String[] regions;
+
+        /**
+         * 文件修改时间
+         */
+        private final long lastModified;
+
+        static IpDb load(Path path) throws IOException {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // 映射后即可关闭channel，映射区域在buffer被回收前一直有效
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException("ip库文件格式错误");
+                }
+                int recordCount = buffer.getInt(8);
+                int regionCount = buffer.getInt(12);
+                if (recordCount < 0 || regionCount < 0 || (long) HEADER_LENGTH + regionCount * 2L > buffer.capacity()) {
+                    throw new IOException("ip库文件头错误");
+                }
+                String[] regions = new String[regionCount];
+                int position = HEADER_LENGTH;
+                for (int i = 0; i < regions.length; i++) {
+                    if (position + 2 > buffer.capacity()) {
+                        throw new IOException("ip库文件不完整");
+                    }
+                    int length = buffer.getShort(position) & 0xFFFF;
+                    if (position + 2 + length > buffer.capacity()) {
+                        throw new IOException("ip库文件不完整");
+                    }
+                    byte[] bytes = new byte[length];
+                    ByteBuffer slice = buffer.duplicate();
+                    slice.position(position + 2);
+                    slice.get(bytes);
+                    regions[i] = new String(bytes, StandardCharsets.UTF_8);
+                    position += 2 + length;
+                }
+                if ((long) position + (long) recordCount * RECORD_LENGTH > buffer.capacity()) {
+                    throw new IOException("ip库文件不完整");
+                }
+                check(buffer, position, recordCount, regions.length);
+                return new IpDb(buffer, position, recordCount, regions, lastModified);
+            }
+        }
+
+        /**
+         * 检查区间表，地区下标越界或区间无序的文件不能使用
+         *
+         * @param buffer       文件
+         * @param recordOffset 区间表起始位置
+         * @param recordCount  区间数
+         * @param regionCount  地区数
+         * @throws IOException 文件损坏
+         */
+        private static void check(ByteBuffer buffer, int recordOffset, int recordCount, int regionCount) throws IOException {
+            long previousStart = -1;
+            for (int i = 0; i < recordCount; i++) {
+                int position = recordOffset + i * RECORD_LENGTH;
+                long start = Integer.toUnsignedLong(buffer.getInt(position));
+                long end = Integer.toUnsignedLong(buffer.getInt(position + 4));
+                int region = buffer.getInt(position + 8);
+                if (region < 0 || region >= regionCount) {
+                    throw new IOException(StrUtil.format("ip库文件损坏,第{}个区间地区下标越界:{}", i, region));
+                }
+                if (end < start || start < previousStart) {
+                    throw new IOException(StrUtil.format("ip库文件损坏,第{}个区间无序", i));
+                }
+                previousStart = start;
+            }
+        }
+
+        /**
+         * 二分查找ip所在区间
+         *
+         * @param ip ip
+         * @return 地区
+         */
+        String search(long ip) {
+            int low = 0;
+            int high = recordCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int position = recordOffset + mid * RECORD_LENGTH;
+                long start = Integer.toUnsignedLong(records.getInt(position));
+                if (ip < start) {
+                    high = mid - 1;
+                } else if (ip > Integer.toUnsignedLong(records.getInt(position + 4))) {
+                    low = mid + 1;
+                } else {
+                    return regions[records.getInt(position + 8)];
+                }
+            }
+            return "";
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.dto.LatencyMetricsDTO;
+import com.minzheng.blog.service.LatencyService;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 耗时统计服务
+ * 每个方法一个HdrHistogram Recorder，记录时无锁，定时取出周期快照累加到总直方图
+ *
+ */
+@Service
+public class LatencyServiceImpl implements LatencyService {
+
+    /**
+     * 有效数字位数
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Map<String, LatencyStat> statMap = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String name, long nanos) {
+        statMap.computeIfAbsent(name, key -> new LatencyStat()).recorder.recordValue(Math.max(nanos, 0));
+    }
+
+    /**
+     * 取出各方法的周期快照
+     */
+    @Scheduled(fixedDelayString = "${latency.snapshot-interval:10000}")
+    public void snapshot() {
+        statMap.values().forEach(LatencyStat::snapshot);
+    }
+
+    @Override
+    public List<LatencyMetricsDTO> listLatencyMetrics() {
+        return statMap.entrySet().stream()
+            .map(entry -> entry.getValue().toMetrics(entry.getKey()))
+            .sorted(Comparator.comparing(LatencyMetricsDTO::getP99).reversed())
+            .collect(Collectors.toList());
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * 单个方法的耗时统计
+     */
+    private static class LatencyStat {
+
+        /**
+         * 记录器，多线程无锁写入
+         */
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+        /**
+         * 启动以来的总直方图
+         */
+        private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+        /**
+         * 最近一个周期的直方图
+         */
+        private Histogram interval;
+
+        synchronized void snapshot() {
+            // 上个周期的直方图交给recorder复用，减少分配
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+        }
+
+        synchronized LatencyMetricsDTO toMetrics(String name) {
+            return LatencyMetricsDTO.builder()
+                .name(name)
+                .count(total.getTotalCount())
+                .mean(toMillis(total.getMean()))
+                .p50(toMillis(total.getValueAtPercentile(50)))
+                .p90(toMillis(total.getValueAtPercentile(90)))
+                .p99(toMillis(total.getValueAtPercentile(99)))
+                .max(toMillis(total.getMaxValue()))
+                .intervalCount(interval == null ? 0L : interval.getTotalCount())
+                .intervalP99(interval == null ? 0D : toMillis(interval.getValueAtPercentile(99)))
+                .build();
+        }
+    }
+
+}
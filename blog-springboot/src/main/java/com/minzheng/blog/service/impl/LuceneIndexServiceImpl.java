@@ -0,0 +1,405 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
+import com.minzheng.blog.dao.ArticleDao;
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.minzheng.blog.entity.Article;
+import com.minzheng.blog.service.LuceneIndexService;
+import com.minzheng.blog.util.BeanCopyUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.search.uhighlight.WholeBreakIterator;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.BreakIterator;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.CommonConst.*;
+import static com.minzheng.blog.enums.ArticleStatusEnum.PUBLIC;
+import static com.minzheng.blog.enums.SearchModeEnum.LUCENE;
+
+/**
+ * 本地lucene文章索引服务
+ * 索引存放在本地磁盘，通过mmap读取；中日韩文字按二元组切分，
+ * 只索引公开且未删除的文章，文章写入提交后异步更新；
+ * 重建期间增量更新的文章id先暂存，重建完成后再写入，不占用索引线程；
+ * 重建期间不提交也不刷新搜索器，重建失败时回滚到重建前的提交
+ *
+ */
+@Slf4j
+@Service
+public class LuceneIndexServiceImpl implements LuceneIndexService {
+    @Autowired
+    private ArticleDao articleDao;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Resource
+    private Executor indexingExecutor;
+
+    private static final String ID = "id";
+
+    private static final String ARTICLE_TITLE = "articleTitle";
+
+    private static final String ARTICLE_CONTENT = "articleContent";
+
+    /**
+     * 高亮时最多分析的字符数
+     */
+    private static final int MAX_HIGHLIGHT_LENGTH = 100000;
+
+    /**
+     * 存储原文并在倒排表中记录偏移量，高亮时不需要重新分词
+     */
+    private static final FieldType TEXT_TYPE = new FieldType();
+
+    static {
+        TEXT_TYPE.setStored(true);
+        TEXT_TYPE.setTokenized(true);
+        TEXT_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TEXT_TYPE.freeze();
+    }
+
+    /**
+     * 搜索模式
+     */
+    @Value("${search.mode}")
+    private String searchMode;
+
+    /**
+     * 索引目录
+     */
+    @Value("${search.lucene.path:/usr/local/blog/lucene}")
+    private String indexPath;
+
+    /**
+     * 最多返回条数
+     */
+    @Value("${search.lucene.max-results:10}")
+    private int maxResults;
+
+    /**
+     * 内容高亮片段长度
+     */
+    @Value("${search.lucene.fragment-size:200}")
+    private int fragmentSize;
+
+    private Analyzer analyzer;
+
+    private Directory directory;
+
+    /**
+     * 索引写入锁，避免提交或发布重建到一半的索引
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * 保护重建状态和暂存的文章id
+     */
+    private final Object pendingLock = new Object();
+
+    /**
+     * 是否正在重建
+     */
+    private boolean rebuilding;
+
+    /**
+     * 重建期间需要增量更新的文章id
+     */
+    private final Set<Integer> pendingIdSet = new LinkedHashSet<>();
+
+    private volatile IndexWriter indexWriter;
+
+    private volatile SearcherManager searcherManager;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!LUCENE.getMode().equals(searchMode)) {
+            return;
+        }
+        analyzer = new CJKAnalyzer();
+        directory = new MMapDirectory(Files.createDirectories(Paths.get(indexPath)));
+        openWriter();
+        // 其他搜索模式期间的修改没有同步到索引，启动时重建
+        indexingExecutor.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (Objects.isNull(indexWriter)) {
+            return;
+        }
+        synchronized (writeLock) {
+            searcherManager.close();
+            indexWriter.close();
+            directory.close();
+        }
+    }
+
+    /**
+     * 打开索引写入器和搜索器，调用方持有写入锁或在初始化中
+     */
+    private void openWriter() throws IOException {
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+            .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    @Override
+    public void updateArticles(List<Integer> articleIdList) {
+        if (Objects.isNull(indexWriter) || CollectionUtils.isEmpty(articleIdList)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexingExecutor.execute(() -> index(articleIdList));
+                }
+            });
+        } else {
+            indexingExecutor.execute(() -> index(articleIdList));
+        }
+    }
+
+    @Override
+    public List<ArticleSearchDTO> searchArticle(String keywords) {
+        if (Objects.isNull(searcherManager)) {
+            return new ArrayList<>();
+        }
+        Query query = buildQuery(keywords);
+        if (Objects.isNull(query)) {
+            return new ArrayList<>();
+        }
+        // 回滚时会替换搜索器，获取和释放用同一个
+        SearcherManager manager = searcherManager;
+        try {
+            IndexSearcher searcher = manager.acquire();
+            try {
+                return search(searcher, query);
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException | AlreadyClosedException e) {
+            log.error(StrUtil.format("lucene搜索失败,关键字:{},堆栈:{}", keywords, ExceptionUtil.stacktraceToString(e)));
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 根据关键词搜索文章标题或内容，和es的match查询一样任一分词命中即可
+     *
+     * @param keywords 关键字
+     * @return 查询，关键字分词后为空时返回null
+     */
+    private Query buildQuery(String keywords) {
+        QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        boolean empty = true;
+        for (String field : new String[]{ARTICLE_TITLE, ARTICLE_CONTENT}) {
+            Query query = queryBuilder.createBooleanQuery(field, keywords);
+            if (Objects.nonNull(query)) {
+                builder.add(query, BooleanClause.Occur.SHOULD);
+                empty = false;
+            }
+        }
+        return empty ? null : builder.build();
+    }
+
+    /**
+     * 搜索并高亮，标题整体高亮，内容取命中最多的片段，没有命中时取开头
+     *
+     * @param searcher 搜索器
+     * @param query    查询
+     * @return 搜索结果
+     */
+    private List<ArticleSearchDTO> search(IndexSearcher searcher, Query query) throws IOException {
+        TopDocs topDocs = searcher.search(query, maxResults);
+        if (topDocs.scoreDocs.length == 0) {
+            return new ArrayList<>();
+        }
+        UnifiedHighlighter highlighter = new UnifiedHighlighter(searcher, analyzer) {
+            @Override
+            protected BreakIterator getBreakIterator(String field) {
+                if (ARTICLE_TITLE.equals(field)) {
+                    return new WholeBreakIterator();
+                }
+                return LengthGoalBreakIterator.createClosestToLength(BreakIterator.getSentenceInstance(Locale.ROOT), fragmentSize);
+            }
+        };
+        highlighter.setFormatter(new DefaultPassageFormatter(PRE_TAG, POST_TAG, "", false));
+        highlighter.setMaxNoHighlightPassages(1);
+        highlighter.setMaxLength(MAX_HIGHLIGHT_LENGTH);
+        Map<String, String[]> highlightMap = highlighter.highlightFields(new String[]{ARTICLE_TITLE, ARTICLE_CONTENT},
+            query, topDocs, new int[]{1, 1});
+        String[] titleList = highlightMap.get(ARTICLE_TITLE);
+        String[] contentList = highlightMap.get(ARTICLE_CONTENT);
+        List<ArticleSearchDTO> articleSearchDTOList = new ArrayList<>(topDocs.scoreDocs.length);
+        for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+            Document document = searcher.doc(topDocs.scoreDocs[i].doc, Collections.singleton(ID));
+            articleSearchDTOList.add(ArticleSearchDTO.builder()
+                .id(Integer.valueOf(document.get(ID)))
+                .articleTitle(titleList[i])
+                .articleContent(contentList[i])
+                .build());
+        }
+        return articleSearchDTOList;
+    }
+
+    /**
+     * 从数据库读取文章，可搜索的写入索引，其余的从索引删除
+     *
+     * @param articleIdList 文章id列表
+     */
+    private void index(List<Integer> articleIdList) {
+        synchronized (pendingLock) {
+            if (rebuilding) {
+                // 重建完成后统一写入
+                pendingIdSet.addAll(articleIdList);
+                return;
+            }
+        }
+        synchronized (writeLock) {
+            indexArticles(articleIdList);
+        }
+    }
+
+    private void indexArticles(List<Integer> articleIdList) {
+        try {
+            Map<Integer, Article> articleMap = articleDao.selectList(new LambdaQueryWrapper<Article>()
+                    .select(Article::getId, Article::getArticleTitle, Article::getArticleContent, Article::getIsDelete, Article::getStatus)
+                    .in(Article::getId, articleIdList))
+                .stream()
+                .collect(Collectors.toMap(Article::getId, Function.identity()));
+            for (Integer articleId : articleIdList) {
+                Article article = articleMap.get(articleId);
+                if (Objects.nonNull(article)) {
+                    write(BeanCopyUtils.copyObject(article, ArticleSearchDTO.class));
+                } else {
+                    indexWriter.deleteDocuments(new Term(ID, articleId.toString()));
+                }
+            }
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+        } catch (Exception e) {
+            log.error(StrUtil.format("lucene索引更新失败,文章:{},堆栈:{}", articleIdList, ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 游标读取全部文章重建索引，失败时回滚，搜索继续使用重建前的索引；
+     * 之后写入重建期间暂存的文章，暂存为空时才结束重建状态
+     */
+    private void rebuild() {
+        synchronized (pendingLock) {
+            rebuilding = true;
+        }
+        synchronized (writeLock) {
+            rebuildArticles();
+            while (true) {
+                List<Integer> articleIdList;
+                synchronized (pendingLock) {
+                    if (pendingIdSet.isEmpty()) {
+                        rebuilding = false;
+                        return;
+                    }
+                    articleIdList = new ArrayList<>(pendingIdSet);
+                    pendingIdSet.clear();
+                }
+                indexArticles(articleIdList);
+            }
+        }
+    }
+
+    private void rebuildArticles() {
+        long start = System.currentTimeMillis();
+        try {
+            indexWriter.deleteAll();
+            transactionTemplate.execute(status -> {
+                try (Cursor<ArticleSearchDTO> cursor = articleDao.cursorArticleSearch(0)) {
+                    for (ArticleSearchDTO article : cursor) {
+                        write(article);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+            log.info("lucene索引重建完成,文章数:{},耗时:{}ms", indexWriter.getDocStats().numDocs, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error(StrUtil.format("lucene索引重建失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+            rollback();
+        }
+    }
+
+    /**
+     * 丢弃上次提交之后的修改，rollback会关闭写入器，重新打开后替换搜索器
+     */
+    private void rollback() {
+        SearcherManager oldSearcherManager = searcherManager;
+        try {
+            indexWriter.rollback();
+            openWriter();
+            // 正在使用的搜索器释放后再关闭
+            oldSearcherManager.close();
+        } catch (IOException e) {
+            log.error(StrUtil.format("lucene索引回滚失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 公开且未删除的文章写入索引，否则从索引删除
+     *
+     * @param article 文章
+     */
+    private void write(ArticleSearchDTO article) throws IOException {
+        Term term = new Term(ID, article.getId().toString());
+        if (!Objects.equals(article.getIsDelete(), FALSE) || !PUBLIC.getStatus().equals(article.getStatus())) {
+            indexWriter.deleteDocuments(term);
+            return;
+        }
+        Document document = new Document();
+        document.add(new StringField(ID, article.getId().toString(), Field.Store.YES));
+        document.add(new Field(ARTICLE_TITLE, StrUtil.nullToEmpty(article.getArticleTitle()), TEXT_TYPE));
+        document.add(new Field(ARTICLE_CONTENT, StrUtil.nullToEmpty(article.getArticleContent()), TEXT_TYPE));
+        indexWriter.updateDocument(term, document);
+    }
+
+}
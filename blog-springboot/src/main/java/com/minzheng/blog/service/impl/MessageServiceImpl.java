@@ -9,6 +9,7 @@ import com.minzheng.blog.dto.MessageBackDTO;
 import com.minzheng.blog.dto.MessageDTO;
 import com.minzheng.blog.entity.Message;
 import com.minzheng.blog.service.BlogInfoService;
+import com.minzheng.blog.service.IpLocator;
 import com.minzheng.blog.service.MessageService;
 import com.minzheng.blog.util.BeanCopyUtils;
 import com.minzheng.blog.util.HTMLUtils;
@@ -43,6 +44,8 @@ public class MessageServiceImpl extends ServiceImpl<MessageDao, Message> impleme
     private HttpServletRequest request;
     @Autowired
     private BlogInfoService blogInfoService;
+    @Autowired
+    private IpLocator ipLocator;
 
     /**
      * 添加留言弹幕
@@ -54,7 +57,7 @@ public class MessageServiceImpl extends ServiceImpl<MessageDao, Message> impleme
         // 判断是否需要审核
         Integer isMessageReview = blogInfoService.getWebsiteConfig().getIsMessageReview();
         String ipAddress = IpUtils.getIpAddress(request);
-        String ipSource = IpUtils.getIpSource(ipAddress);
+        String ipSource = ipLocator.getIpSource(ipAddress);
         Message message = BeanCopyUtils.copyObject(messageVO, Message.class);
         //todo 需要进行剔除HTML的文本---》过滤敏感词
         message.setMessageContent(HTMLUtils.filter(message.getMessageContent()));
@@ -0,0 +1,98 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.consumer.MaxWellConsumer;
+import com.minzheng.blog.dto.AccessLimitMetricsDTO;
+import com.minzheng.blog.dto.ChatBroadcastMetricsDTO;
+import com.minzheng.blog.dto.ExecutorMetricsDTO;
+import com.minzheng.blog.dto.LatencyMetricsDTO;
+import com.minzheng.blog.dto.MaxwellMetricsDTO;
+import com.minzheng.blog.dto.OperationLogMetricsDTO;
+import com.minzheng.blog.dto.UploadMetricsDTO;
+import com.minzheng.blog.handler.RejectedCountHandler;
+import com.minzheng.blog.service.AccessLimitService;
+import com.minzheng.blog.service.ChatBroadcastService;
+import com.minzheng.blog.service.LatencyService;
+import com.minzheng.blog.service.MonitorService;
+import com.minzheng.blog.service.OperationLogQueueService;
+import com.minzheng.blog.service.UploadMetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+
+/**
+ * 系统监控服务
+ *
+ */
+@Service
+public class MonitorServiceImpl implements MonitorService {
+    @Autowired
+    private Map<String, ThreadPoolTaskExecutor> executorMap;
+    @Autowired
+    private AccessLimitService accessLimitService;
+    @Autowired
+    private OperationLogQueueService operationLogQueueService;
+    @Autowired
+    private LatencyService latencyService;
+    @Autowired
+    private MaxWellConsumer maxWellConsumer;
+    @Autowired
+    private UploadMetricsService uploadMetricsService;
+    @Autowired
+    private ChatBroadcastService chatBroadcastService;
+
+    @Override
+    public List<ExecutorMetricsDTO> listExecutorMetrics() {
+        return executorMap.entrySet().stream().map(entry -> {
+            ThreadPoolExecutor executor = entry.getValue().getThreadPoolExecutor();
+            RejectedExecutionHandler handler = executor.getRejectedExecutionHandler();
+            return ExecutorMetricsDTO.builder()
+                .name(entry.getKey())
+                .corePoolSize(executor.getCorePoolSize())
+                .maxPoolSize(executor.getMaximumPoolSize())
+                .poolSize(executor.getPoolSize())
+                .activeCount(executor.getActiveCount())
+                .queueSize(executor.getQueue().size())
+                .queueRemainingCapacity(executor.getQueue().remainingCapacity())
+                .completedTaskCount(executor.getCompletedTaskCount())
+                .rejectedCount(handler instanceof RejectedCountHandler ? ((RejectedCountHandler) handler).getRejectedCount() : 0L)
+                .build();
+        }).collect(Collectors.toList());
+    }
+
+    @Override
+    public AccessLimitMetricsDTO getAccessLimitMetrics() {
+        return accessLimitService.getMetrics();
+    }
+
+    @Override
+    public OperationLogMetricsDTO getOperationLogMetrics() {
+        return operationLogQueueService.getMetrics();
+    }
+
+    @Override
+    public List<LatencyMetricsDTO> listLatencyMetrics() {
+        return latencyService.listLatencyMetrics();
+    }
+
+    @Override
+    public MaxwellMetricsDTO getMaxwellMetrics() {
+        return maxWellConsumer.getMetrics();
+    }
+
+    @Override
+    public List<UploadMetricsDTO> listUploadMetrics() {
+        return uploadMetricsService.listUploadMetrics();
+    }
+
+    @Override
+    public ChatBroadcastMetricsDTO getChatBroadcastMetrics() {
+        return chatBroadcastService.getMetrics();
+    }
+
+}
@@ -0,0 +1,506 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson.JSON;
+import com.minzheng.blog.dao.OperationLogDao;
+import com.minzheng.blog.dto.OperationLogMetricsDTO;
+import com.minzheng.blog.entity.OperationLog;
+import com.minzheng.blog.service.IpLocator;
+import com.minzheng.blog.service.OperationLogQueueService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.DataTruncation;
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 操作日志异步写入服务
+ * 请求线程只把日志放入有界队列，后台线程序列化、解析ip归属地后多行插入；
+ * 队列满或数据库写入失败时写入溢出文件，空闲时再补写；解析失败的行跳过，
+ * 补写时数据本身有问题（如字段超长、违反约束）的行移入死信文件，连接失败等临时错误保留在溢出文件下次重试
+ *
+ */
+@Slf4j
+@Service
+public class OperationLogQueueServiceImpl implements OperationLogQueueService {
+    @Autowired
+    private OperationLogDao operationLogDao;
+    @Autowired
+    private IpLocator ipLocator;
+
+    /**
+     * 队列容量
+     */
+    @Value("${operation-log.queue-capacity:4096}")
+    private int queueCapacity;
+
+    /**
+     * 每批最多写入条数
+     */
+    @Value("${operation-log.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 队列为空时等待时间（毫秒）
+     */
+    @Value("${operation-log.flush-interval:1000}")
+    private long flushInterval;
+
+    /**
+     * 队列满时请求线程最多等待时间（毫秒），0为不等待
+     */
+    @Value("${operation-log.offer-timeout:0}")
+    private long offerTimeout;
+
+    /**
+     * 请求参数和返回结果最大长度，超出截断
+     */
+    @Value("${operation-log.max-payload-length:10000}")
+    private int maxPayloadLength;
+
+    /**
+     * 溢出文件路径，为空时队列满或写入失败直接丢弃
+     */
+    @Value("${operation-log.spill-path:}")
+    private String spillPath;
+
+    /**
+     * 两次补写溢出文件的最小间隔（毫秒）
+     */
+    @Value("${operation-log.replay-interval:30000}")
+    private long replayInterval;
+
+    private BlockingQueue<LogEvent> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    /**
+     * 溢出文件锁，追加和补写互斥
+     */
+    private final Object spillLock = new Object();
+
+    private long lastReplayTime;
+
+    private final LongAdder writtenCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder spilledCount = new LongAdder();
+
+    private final LongAdder replayedCount = new LongAdder();
+
+    private final LongAdder failedBatchCount = new LongAdder();
+
+    private final LongAdder skippedLineCount = new LongAdder();
+
+    private final LongAdder deadLetterCount = new LongAdder();
+
+    private volatile int lastBatchSize;
+
+    private volatile long lastFlushCost;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::writeLoop, "operation-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 停止接收并写完队列中剩余的日志
+     */
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Override
+    public void offer(OperationLog operationLog, Object requestParam, Object responseData) {
+        LogEvent event = new LogEvent(operationLog, requestParam, responseData);
+        boolean offered;
+        try {
+            offered = running && (offerTimeout > 0
+                ? queue.offer(event, offerTimeout, TimeUnit.MILLISECONDS)
+                : queue.offer(event));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            offered = false;
+        }
+        if (!offered) {
+            List<OperationLog> operationLogList = build(Collections.singletonList(event));
+            if (!spill(operationLogList)) {
+                droppedCount.increment();
+            }
+        }
+    }
+
+    @Override
+    public OperationLogMetricsDTO getMetrics() {
+        return OperationLogMetricsDTO.builder()
+            .queueSize(queue.size())
+            .remainingCapacity(queue.remainingCapacity())
+            .writtenCount(writtenCount.sum())
+            .droppedCount(droppedCount.sum())
+            .spilledCount(spilledCount.sum())
+            .replayedCount(replayedCount.sum())
+            .failedBatchCount(failedBatchCount.sum())
+            .skippedLineCount(skippedLineCount.sum())
+            .deadLetterCount(deadLetterCount.sum())
+            .lastBatchSize(lastBatchSize)
+            .lastFlushCost(lastFlushCost)
+            .build();
+    }
+
+    /**
+     * 后台写入循环，停止后写完队列中剩余的日志再退出
+     */
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            List<LogEvent> eventList = new ArrayList<>(batchSize);
+            try {
+                LogEvent first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (Objects.isNull(first)) {
+                    replaySpill();
+                    continue;
+                }
+                eventList.add(first);
+            } catch (InterruptedException e) {
+                // 停止时被中断，继续写完剩余日志
+                continue;
+            }
+            queue.drainTo(eventList, batchSize - 1);
+            List<OperationLog> operationLogList = build(eventList);
+            if (write(operationLogList) != WriteResult.SUCCESS && !spill(operationLogList)) {
+                droppedCount.add(operationLogList.size());
+            }
+        }
+    }
+
+    /**
+     * 序列化请求参数和返回结果，批量解析ip归属地
+     *
+     * @param eventList 日志事件
+     * @return 操作日志
+     */
+    private List<OperationLog> build(List<LogEvent> eventList) {
+        Map<String, String> ipSourceMap = ipLocator.listIpSources(eventList.stream()
+            .map(event -> event.operationLog.getIpAddress())
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet()));
+        return eventList.stream().map(event -> {
+            OperationLog operationLog = event.operationLog;
+            operationLog.setRequestParam(toPayload(event.requestParam));
+            operationLog.setResponseData(toPayload(event.responseData));
+            operationLog.setIpSource(ipSourceMap.get(operationLog.getIpAddress()));
+            return operationLog;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 序列化并截断到最大长度
+     *
+     * @param payload 请求参数或返回结果
+     * @return json
+     */
+    private String toPayload(Object payload) {
+        String json;
+        try {
+            json = JSON.toJSONString(payload);
+        } catch (Exception e) {
+            json = "序列化失败:" + e.getMessage();
+        }
+        return StrUtil.maxLength(json, maxPayloadLength);
+    }
+
+    /**
+     * 多行插入
+     *
+     * @param operationLogList 操作日志
+     * @return 写入结果
+     */
+    private WriteResult write(List<OperationLog> operationLogList) {
+        long start = System.currentTimeMillis();
+        try {
+            operationLogDao.insertBatch(operationLogList);
+            writtenCount.add(operationLogList.size());
+            lastBatchSize = operationLogList.size();
+            lastFlushCost = System.currentTimeMillis() - start;
+            return WriteResult.SUCCESS;
+        } catch (Exception e) {
+            failedBatchCount.increment();
+            log.error(StrUtil.format("操作日志写入失败,条数:{},堆栈:{}", operationLogList.size(), ExceptionUtil.stacktraceToString(e)));
+            return isDataError(e) ? WriteResult.DATA_ERROR : WriteResult.TRANSIENT_ERROR;
+        }
+    }
+
+    /**
+     * 是否数据本身有问题，重试也不会成功
+     * 只认字段超长、类型不符、违反约束，连接失败、超时、死锁等都按临时错误处理
+     *
+     * @param e 异常
+     * @return 是否数据错误
+     */
+    static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                || cause instanceof SQLIntegrityConstraintViolationException
+                || cause instanceof SQLDataException
+                || cause instanceof DataTruncation) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 追加到溢出文件，每行一条json
+     *
+     * @param operationLogList 操作日志
+     * @return 是否成功
+     */
+    private boolean spill(List<OperationLog> operationLogList) {
+        if (StrUtil.isBlank(spillPath)) {
+            return false;
+        }
+        synchronized (spillLock) {
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(spillPath), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (OperationLog operationLog : operationLogList) {
+                    out.write(JSON.toJSONString(operationLog));
+                    out.newLine();
+                }
+                spilledCount.add(operationLogList.size());
+                return true;
+            } catch (IOException e) {
+                log.error(StrUtil.format("操作日志写入溢出文件失败,路径:{},堆栈:{}", spillPath, ExceptionUtil.stacktraceToString(e)));
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 队列空闲时补写溢出文件，遇到临时错误时把未写入的部分留在文件里下次继续
+     */
+    private void replaySpill() {
+        long now = System.currentTimeMillis();
+        if (StrUtil.isBlank(spillPath) || now - lastReplayTime < replayInterval) {
+            return;
+        }
+        lastReplayTime = now;
+        Path spill = Paths.get(spillPath);
+        Path replaying = Paths.get(spillPath + ".replaying");
+        Path remaining = Paths.get(spillPath + ".remaining");
+        try {
+            synchronized (spillLock) {
+                // 上次没补写完的文件优先处理，新的溢出继续追加到原文件
+                if (Files.notExists(replaying)) {
+                    if (Files.notExists(spill)) {
+                        return;
+                    }
+                    Files.move(spill, replaying, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            boolean finished;
+            // 宕机时最后一行可能只写了一半，按替换字符解码，不因编码错误中断
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(replaying), StandardCharsets.UTF_8))) {
+                finished = replay(reader, remaining);
+            }
+            if (finished) {
+                Files.delete(replaying);
+            } else {
+                Files.move(remaining, replaying, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (Exception e) {
+            log.error(StrUtil.format("操作日志溢出文件补写失败,路径:{},堆栈:{}", spillPath, ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 按批读取并补写，遇到临时错误时把当前批未写入的行和后面未读的行写入剩余文件
+     *
+     * @param reader    溢出文件
+     * @param remaining 剩余文件
+     * @return 是否全部处理完
+     */
+    private boolean replay(BufferedReader reader, Path remaining) throws IOException {
+        List<String> lineList = new ArrayList<>(batchSize);
+        while (true) {
+            lineList.clear();
+            String line;
+            while (lineList.size() < batchSize && Objects.nonNull(line = reader.readLine())) {
+                lineList.add(line);
+            }
+            if (lineList.isEmpty()) {
+                return true;
+            }
+            List<OperationLog> operationLogList = parse(lineList);
+            int handled = replayBatch(operationLogList);
+            if (handled < operationLogList.size()) {
+                try (BufferedWriter out = Files.newBufferedWriter(remaining, StandardCharsets.UTF_8)) {
+                    for (OperationLog operationLog : operationLogList.subList(handled, operationLogList.size())) {
+                        out.write(JSON.toJSONString(operationLog));
+                        out.newLine();
+                    }
+                    while (Objects.nonNull(line = reader.readLine())) {
+                        out.write(line);
+                        out.newLine();
+                    }
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 补写一批，整批因数据错误失败时逐条重试，数据错误的行移入死信文件
+     *
+     * @param operationLogList 操作日志
+     * @return 已处理（写入或移入死信文件）的条数，遇到临时错误时停在该条
+     */
+    private int replayBatch(List<OperationLog> operationLogList) throws IOException {
+        if (operationLogList.isEmpty()) {
+            return 0;
+        }
+        WriteResult result = write(operationLogList);
+        if (result == WriteResult.SUCCESS) {
+            replayedCount.add(operationLogList.size());
+            return operationLogList.size();
+        }
+        if (result == WriteResult.TRANSIENT_ERROR) {
+            return 0;
+        }
+        List<String> deadLineList = new ArrayList<>();
+        int handled = 0;
+        for (OperationLog operationLog : operationLogList) {
+            result = write(Collections.singletonList(operationLog));
+            if (result == WriteResult.SUCCESS) {
+                replayedCount.increment();
+            } else if (result == WriteResult.DATA_ERROR) {
+                deadLineList.add(JSON.toJSONString(operationLog));
+            } else {
+                break;
+            }
+            handled++;
+        }
+        deadLetter(deadLineList);
+        return handled;
+    }
+
+    /**
+     * 解析溢出文件的行，跳过空行和解析失败的行
+     *
+     * @param lineList 行
+     * @return 操作日志
+     */
+    private List<OperationLog> parse(List<String> lineList) {
+        List<OperationLog> operationLogList = new ArrayList<>(lineList.size());
+        for (String line : lineList) {
+            if (StrUtil.isBlank(line)) {
+                continue;
+            }
+            try {
+                operationLogList.add(JSON.parseObject(line, OperationLog.class));
+            } catch (Exception e) {
+                skippedLineCount.increment();
+                log.warn("操作日志溢出文件行解析失败,已跳过:{}", StrUtil.maxLength(line, 200));
+            }
+        }
+        return operationLogList;
+    }
+
+    /**
+     * 追加到死信文件，需要人工处理
+     *
+     * @param lineList 行
+     */
+    private void deadLetter(List<String> lineList) throws IOException {
+        if (lineList.isEmpty()) {
+            return;
+        }
+        Files.write(Paths.get(spillPath + ".dead"), lineList, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        deadLetterCount.add(lineList.size());
+        log.error("操作日志数据错误无法写入,已移入死信文件,条数:{},路径:{}", lineList.size(), spillPath + ".dead");
+    }
+
+    /**
+     * 写入结果
+     */
+    private enum WriteResult {
+
+        /**
+         * 成功
+         */
+        SUCCESS,
+
+        /**
+         * 连接失败等临时错误，可以重试
+         */
+        TRANSIENT_ERROR,
+
+        /**
+         * 数据本身有问题，重试也不会成功
+         */
+        DATA_ERROR
+    }
+
+    /**
+     * 日志事件
+     */
+    @AllArgsConstructor
+    private static class LogEvent {
+
+        /**
+         * 操作日志
+         */
+        private final OperationLog operationLog;
+
+        /**
+         * 请求参数
+         */
+        private final Object requestParam;
+
+        /**
+         * 返回结果
+         */
+        private final Object responseData;
+    }
+
+}
@@ -11,6 +11,7 @@ import com.minzheng.blog.dto.PhotoAlbumDTO;
 import com.minzheng.blog.entity.Photo;
 import com.minzheng.blog.entity.PhotoAlbum;
 import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.ImageVariantService;
 import com.minzheng.blog.service.PhotoAlbumService;
 import com.minzheng.blog.util.BeanCopyUtils;
 import com.minzheng.blog.util.PageUtils;
@@ -21,6 +22,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static com.minzheng.blog.constant.CommonConst.FALSE;
 import static com.minzheng.blog.constant.CommonConst.TRUE;
@@ -38,6 +41,8 @@ public class PhotoAlbumServiceImpl extends ServiceImpl<PhotoAlbumDao, PhotoAlbum
     private PhotoAlbumDao photoAlbumDao;
     @Autowired
     private PhotoDao photoDao;
+    @Autowired
+    private ImageVariantService imageVariantService;
 
     /**
      * 保存或更新相册
@@ -142,6 +147,12 @@ public class PhotoAlbumServiceImpl extends ServiceImpl<PhotoAlbumDao, PhotoAlbum
             .eq(PhotoAlbum::getStatus, PUBLIC.getStatus())
             .eq(PhotoAlbum::getIsDelete, FALSE)
             .orderByDesc(PhotoAlbum::getId));
-        return BeanCopyUtils.copyList(photoAlbumList, PhotoAlbumDTO.class);
+        List<PhotoAlbumDTO> photoAlbumDTOList = BeanCopyUtils.copyList(photoAlbumList, PhotoAlbumDTO.class);
+        // 封面缩略图
+        Map<String, String> srcSetMap = imageVariantService.getSrcSetMap(photoAlbumDTOList.stream()
+            .map(PhotoAlbumDTO::getAlbumCover)
+            .collect(Collectors.toList()));
+        photoAlbumDTOList.forEach(item -> item.setAlbumCoverSrcSet(srcSetMap.get(item.getAlbumCover())));
+        return photoAlbumDTOList;
     }
 }
@@ -10,8 +10,10 @@ import com.minzheng.blog.dto.PhotoDTO;
 import com.minzheng.blog.entity.Photo;
 import com.minzheng.blog.entity.PhotoAlbum;
 import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.ImageVariantService;
 import com.minzheng.blog.service.PhotoAlbumService;
 import com.minzheng.blog.service.PhotoService;
+import com.minzheng.blog.strategy.context.UploadStrategyContext;
 import com.minzheng.blog.util.BeanCopyUtils;
 import com.minzheng.blog.util.PageUtils;
 import com.minzheng.blog.vo.*;
@@ -19,6 +21,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -36,6 +39,10 @@ public class PhotoServiceImpl extends ServiceImpl<PhotoDao, Photo> implements Ph
     private PhotoDao photoDao;
     @Autowired
     private PhotoAlbumService photoAlbumService;
+    @Autowired
+    private ImageVariantService imageVariantService;
+    @Autowired
+    private UploadStrategyContext uploadStrategyContext;
 
     /**
      * 根据相册id获取照片列表
@@ -82,6 +89,8 @@ public class PhotoServiceImpl extends ServiceImpl<PhotoDao, Photo> implements Ph
             .photoSrc(item)
             .build()).collect(Collectors.toList());
         this.saveBatch(photoList);
+        // 之前上传的照片可能还没有缩略图
+        imageVariantService.generate(uploadStrategyContext.getUploadStrategy(), photoVO.getPhotoUrlList());
     }
 
     /**
@@ -176,6 +185,10 @@ public class PhotoServiceImpl extends ServiceImpl<PhotoDao, Photo> implements Ph
             .map(Photo::getPhotoSrc)
             .collect(Collectors.toList());
 
+        //照片和相册封面的缩略图
+        List<String> imageList = new ArrayList<>(photoList);
+        imageList.add(photoAlbum.getAlbumCover());
+
         //创建photoDTO对象
         PhotoDTO photoDTO = PhotoDTO.builder()
             //相册封面
@@ -184,6 +197,8 @@ public class PhotoServiceImpl extends ServiceImpl<PhotoDao, Photo> implements Ph
             .photoAlbumName(photoAlbum.getAlbumName())
             //照片列表
             .photoList(photoList)
+            //缩略图
+            .srcSetMap(imageVariantService.getSrcSetMap(imageList))
             .build();
         return photoDTO;
     }
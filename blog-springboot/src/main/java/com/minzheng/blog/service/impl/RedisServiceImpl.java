@@ -8,15 +8,15 @@ import org.springframework.data.geo.Point;
 import org.springframework.data.redis.connection.BitFieldSubCommands;
 import org.springframework.data.redis.connection.RedisGeoCommands;
 import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -110,6 +110,22 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.opsForHash().entries(key);
     }
 
+    @Override
+    public Map<String, Object> hMultiGet(String key, Collection<String> hashKeys) {
+        if (hashKeys.isEmpty()) {
+            return new HashMap<>(1);
+        }
+        List<Object> fieldList = new ArrayList<>(hashKeys);
+        List<Object> valueList = redisTemplate.opsForHash().multiGet(key, fieldList);
+        Map<String, Object> resultMap = new HashMap<>(fieldList.size() * 2);
+        for (int i = 0; i < fieldList.size(); i++) {
+            if (Objects.nonNull(valueList.get(i))) {
+                resultMap.put(fieldList.get(i).toString(), valueList.get(i));
+            }
+        }
+        return resultMap;
+    }
+
     @Override
     public Boolean hSetAll(String key, Map<String, Object> map, long time) {
         redisTemplate.opsForHash().putAll(key, map);
@@ -146,6 +162,24 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.opsForZSet().incrementScore(key, value, score);
     }
 
+    @Override
+    public Map<Object, Double> zIncrBatch(String key, Map<Object, Double> scoreMap) {
+        List<Object> memberList = new ArrayList<>(scoreMap.keySet());
+        List<Object> resultList = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                memberList.forEach(member -> operations.opsForZSet().incrementScore(key, member, scoreMap.get(member)));
+                return null;
+            }
+        });
+        Map<Object, Double> resultMap = new HashMap<>(memberList.size() * 2);
+        for (int i = 0; i < memberList.size(); i++) {
+            resultMap.put(memberList.get(i), (Double) resultList.get(i));
+        }
+        return resultMap;
+    }
+
     @Override
     public Double zDecr(String key, Object value, Double score) {
         return redisTemplate.opsForZSet().incrementScore(key, value, -score);
@@ -170,6 +204,29 @@ public class RedisServiceImpl implements RedisService {
             .collect(Collectors.toMap(ZSetOperations.TypedTuple::getValue, ZSetOperations.TypedTuple::getScore));
     }
 
+    @Override
+    public Map<Object, Double> zMultiScore(String key, Collection<?> values) {
+        if (values.isEmpty()) {
+            return new HashMap<>(1);
+        }
+        List<Object> memberList = new ArrayList<>(values);
+        List<Object> resultList = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                memberList.forEach(member -> operations.opsForZSet().score(key, member));
+                return null;
+            }
+        });
+        Map<Object, Double> resultMap = new HashMap<>(memberList.size() * 2);
+        for (int i = 0; i < memberList.size(); i++) {
+            if (Objects.nonNull(resultList.get(i))) {
+                resultMap.put(memberList.get(i), (Double) resultList.get(i));
+            }
+        }
+        return resultMap;
+    }
+
     @Override
     public Set<Object> sMembers(String key) {
         return redisTemplate.opsForSet().members(key);
@@ -324,4 +381,9 @@ public class RedisServiceImpl implements RedisService {
             .hash(key, place);
     }
 
+    @Override
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        return redisTemplate.execute(script, keys, args);
+    }
+
 }
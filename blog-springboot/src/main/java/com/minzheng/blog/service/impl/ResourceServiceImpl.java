@@ -51,8 +51,8 @@ public class ResourceServiceImpl extends ServiceImpl<ResourceDao, Resource> impl
     public void saveOrUpdateResource(ResourceVO resourceVO) {
         Resource resource = BeanCopyUtils.copyObject(resourceVO, Resource.class);
         this.saveOrUpdate(resource);
-        //todo 重新加载角色资源信息,clearDataSource清空接口角色信息
-        filterInvocationSecurityMetadataSource.clearDataSource();
+        //重新加载角色资源信息
+        filterInvocationSecurityMetadataSource.reloadDataSource();
     }
 
     /***
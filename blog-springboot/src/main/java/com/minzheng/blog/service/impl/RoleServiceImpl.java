@@ -123,7 +123,7 @@ public class RoleServiceImpl extends ServiceImpl<RoleDao, Role> implements RoleS
             //插入数据
             roleResourceService.saveBatch(roleResourceList);
             //Security重新加载角色资源信息
-            filterInvocationSecurityMetadataSource.clearDataSource();
+            filterInvocationSecurityMetadataSource.reloadDataSource();
 
         }
 
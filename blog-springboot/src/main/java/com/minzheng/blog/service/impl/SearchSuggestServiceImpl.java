@@ -0,0 +1,232 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.minzheng.blog.dao.ArticleDao;
+import com.minzheng.blog.dao.ArticleTagDao;
+import com.minzheng.blog.dao.TagDao;
+import com.minzheng.blog.entity.Article;
+import com.minzheng.blog.entity.ArticleTag;
+import com.minzheng.blog.entity.Tag;
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.service.SearchSuggestService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static com.minzheng.blog.constant.CommonConst.FALSE;
+import static com.minzheng.blog.constant.RedisPrefixConst.ARTICLE_VIEWS_COUNT;
+import static com.minzheng.blog.enums.ArticleStatusEnum.PUBLIC;
+
+/**
+ * 搜索提示服务
+ * 公开文章的标题和标签名小写后编译成FST，输出值编码了热度和原文下标，
+ * 前缀查询只沿FST走到前缀节点再取输出最小的若干条；FST不可修改，有变更时定时整体重建
+ *
+ */
+@Slf4j
+@Service
+public class SearchSuggestServiceImpl implements SearchSuggestService {
+    @Autowired
+    private ArticleDao articleDao;
+    @Autowired
+    private TagDao tagDao;
+    @Autowired
+    private ArticleTagDao articleTagDao;
+    @Autowired
+    private RedisService redisService;
+
+    /**
+     * 最多返回条数
+     */
+    @Value("${search.suggest.size:10}")
+    private int suggestSize;
+
+    /**
+     * 是否需要重建，启动后第一次定时任务构建
+     */
+    private final AtomicBoolean changed = new AtomicBoolean(true);
+
+    private volatile Suggester suggester;
+
+    @Override
+    public List<String> listSuggestions(String keywords) {
+        Suggester current = suggester;
+        if (StrUtil.isBlank(keywords) || Objects.isNull(current)) {
+            return new ArrayList<>();
+        }
+        try {
+            return current.lookup(normalize(keywords), suggestSize);
+        } catch (IOException e) {
+            log.error(StrUtil.format("搜索提示查询失败,关键字:{},堆栈:{}", keywords, ExceptionUtil.stacktraceToString(e)));
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public void refresh() {
+        changed.set(true);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 提交前重建可能读到旧数据
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changed.set(true);
+                }
+            });
+        }
+    }
+
+    /**
+     * 有变更时重建，多次修改合并为一次
+     */
+    @Scheduled(fixedDelayString = "${search.suggest.rebuild-interval:10000}")
+    public void rebuildIfChanged() {
+        if (!changed.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            suggester = build();
+        } catch (Exception e) {
+            changed.set(true);
+            log.error(StrUtil.format("搜索提示重建失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    /**
+     * 读取公开文章标题和标签，标题按浏览量、标签按文章数加权
+     *
+     * @return 提示器
+     */
+    private Suggester build() throws IOException {
+        Map<String, Entry> entryMap = new HashMap<>(16);
+        List<Article> articleList = articleDao.selectList(new LambdaQueryWrapper<Article>()
+            .select(Article::getId, Article::getArticleTitle)
+            .eq(Article::getIsDelete, FALSE)
+            .eq(Article::getStatus, PUBLIC.getStatus()));
+        Map<Object, Double> viewsCountMap = redisService.zMultiScore(ARTICLE_VIEWS_COUNT, articleList.stream()
+            .map(Article::getId)
+            .collect(Collectors.toList()));
+        articleList.forEach(article -> add(entryMap, article.getArticleTitle(),
+            viewsCountMap.getOrDefault(article.getId(), 0D).longValue()));
+        Map<Integer, Long> articleCountMap = articleTagDao.selectMaps(new QueryWrapper<ArticleTag>()
+                .select("tag_id", "COUNT(1) AS article_count")
+                .groupBy("tag_id"))
+            .stream()
+            .collect(Collectors.toMap(map -> ((Number) map.get("tag_id")).intValue(),
+                map -> ((Number) map.get("article_count")).longValue()));
+        tagDao.selectList(new LambdaQueryWrapper<Tag>().select(Tag::getId, Tag::getTagName))
+            .forEach(tag -> add(entryMap, tag.getTagName(), articleCountMap.getOrDefault(tag.getId(), 0L)));
+        // FST要求按字节序添加
+        List<Map.Entry<BytesRef, Entry>> sortedList = entryMap.entrySet().stream()
+            .map(entry -> new AbstractMap.SimpleEntry<>(new BytesRef(entry.getKey()), entry.getValue()))
+            .sorted(Map.Entry.comparingByKey())
+            .collect(Collectors.toList());
+        Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+        IntsRefBuilder scratch = new IntsRefBuilder();
+        String[] textList = new String[sortedList.size()];
+        for (int i = 0; i < sortedList.size(); i++) {
+            Entry entry = sortedList.get(i).getValue();
+            builder.add(Util.toIntsRef(sortedList.get(i).getKey(), scratch), encode(entry.weight, i));
+            textList[i] = entry.text;
+        }
+        return new Suggester(builder.finish(), textList);
+    }
+
+    /**
+     * 相同的小写形式只保留权重高的原文
+     */
+    private static void add(Map<String, Entry> entryMap, String text, long weight) {
+        if (StrUtil.isBlank(text)) {
+            return;
+        }
+        entryMap.merge(normalize(text), new Entry(text.trim(), weight),
+            (oldEntry, newEntry) -> newEntry.weight > oldEntry.weight ? newEntry : oldEntry);
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 高32位为反转的权重，低32位为原文下标，输出越小越靠前
+     */
+    private static long encode(long weight, int index) {
+        long reversed = Integer.MAX_VALUE - Math.min(Math.max(weight, 0L), Integer.MAX_VALUE);
+        return reversed << 32 | index;
+    }
+
+    /**
+     * 一次构建的结果，构建后不再修改
+     */
+    private static class Suggester {
+
+        private final FST<Long> fst;
+
+        private final String[] textList;
+
+        Suggester(FST<Long> fst, String[] textList) {
+            this.fst = fst;
+            this.textList = textList;
+        }
+
+        List<String> lookup(String prefix, int size) throws IOException {
+            if (Objects.isNull(fst)) {
+                return new ArrayList<>();
+            }
+            // 沿前缀逐字节走到对应节点，同时累加路径上的输出
+            BytesRef bytes = new BytesRef(prefix);
+            FST.BytesReader reader = fst.getBytesReader();
+            FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<>());
+            Long output = fst.outputs.getNoOutput();
+            for (int i = 0; i < bytes.length; i++) {
+                if (Objects.isNull(fst.findTargetArc(bytes.bytes[bytes.offset + i] & 0xFF, arc, arc, reader))) {
+                    return new ArrayList<>();
+                }
+                output = fst.outputs.add(output, arc.output());
+            }
+            return Util.shortestPaths(fst, arc, output, Comparator.naturalOrder(), size, true).topN.stream()
+                .map(result -> textList[(int) (result.output & 0xFFFFFFFFL)])
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 提示项
+     */
+    private static class Entry {
+
+        /**
+         * 原文
+         */
+        private final String text;
+
+        /**
+         * 热度
+         */
+        private final long weight;
+
+        Entry(String text, long weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+    }
+
+}
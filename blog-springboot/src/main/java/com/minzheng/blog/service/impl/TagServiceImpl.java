@@ -10,6 +10,7 @@ import com.minzheng.blog.dto.TagDTO;
 import com.minzheng.blog.entity.ArticleTag;
 import com.minzheng.blog.entity.Tag;
 import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.SearchSuggestService;
 import com.minzheng.blog.service.TagService;
 import com.minzheng.blog.util.BeanCopyUtils;
 import com.minzheng.blog.util.PageUtils;
@@ -31,6 +32,8 @@ public class TagServiceImpl extends ServiceImpl<TagDao, Tag> implements TagServi
     private TagDao tagDao;
     @Autowired
     private ArticleTagDao articleTagDao;
+    @Autowired
+    private SearchSuggestService searchSuggestService;
 
     /**
      * 查询前台标签列表
@@ -94,6 +97,7 @@ public class TagServiceImpl extends ServiceImpl<TagDao, Tag> implements TagServi
             throw new BizException("删除失败，该标签下有文章，请先删除该标签下的所有文章");
         }
         tagDao.deleteBatchIds(tagIdList);
+        searchSuggestService.refresh();
 
     }
 
@@ -112,6 +116,7 @@ public class TagServiceImpl extends ServiceImpl<TagDao, Tag> implements TagServi
         }
         Tag tag = BeanCopyUtils.copyObject(tagVO, Tag.class);
         this.saveOrUpdate(tag);
+        searchSuggestService.refresh();
 
     }
 }
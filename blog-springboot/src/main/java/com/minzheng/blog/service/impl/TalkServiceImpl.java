@@ -86,7 +86,8 @@ public class TalkServiceImpl extends ServiceImpl<TalkDao, Talk> implements TalkS
             return new PageResult<>();
         }else{
             //分页查询公开状态的所有说说信息
-            List<TalkDTO> talkDTOS = talkDao.listTalks(PageUtils.getLimitCurrent(), PageUtils.getSize());
+            PageCursor cursor = PageUtils.getCursor(true);
+            List<TalkDTO> talkDTOS = talkDao.listTalks(PageUtils.getLimitCurrent(cursor), PageUtils.getSize(), cursor);
             //遍历每个说说的信息拿到所有说说的id-->list集合talkIdList
             List<Integer> talkIdList = talkDTOS
                 .stream()
@@ -98,8 +99,10 @@ public class TalkServiceImpl extends ServiceImpl<TalkDao, Talk> implements TalkS
                 .stream()
                 //将list转成map，map的key是评论id，value是评论数量
                 .collect(Collectors.toMap(CommentCountDTO::getId, CommentCountDTO::getCommentCount));
-            //todo redisTemplate.opsForHash().entries(key)，直接获取整个Hash结构,每个说说的点赞数量
-            Map<String, Object> likeCountMap = redisService.hGetAll(TALK_LIKE_COUNT);
+            //只获取本页说说的点赞数量
+            Map<String, Object> likeCountMap = redisService.hMultiGet(TALK_LIKE_COUNT, talkIdList.stream()
+                .map(Object::toString)
+                .collect(Collectors.toList()));
 
             talkDTOS.forEach(talkDTO -> {
                 //根据map的key获取value赋值
@@ -112,7 +115,9 @@ public class TalkServiceImpl extends ServiceImpl<TalkDao, Talk> implements TalkS
                     talkDTO.setImgList(CommonUtils.castList(JSON.parseObject(talkDTO.getImages(), List.class), String.class));
                 }
             });
-            return new PageResult<>(talkDTOS,count);
+            PageResult<TalkDTO> pageResult = new PageResult<>(talkDTOS, count);
+            pageResult.setNextCursor(PageUtils.getNextCursor(talkDTOS, TalkDTO::getIsTop, TalkDTO::getId));
+            return pageResult;
         }
 
 }
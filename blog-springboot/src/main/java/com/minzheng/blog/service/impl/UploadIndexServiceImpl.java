@@ -0,0 +1,174 @@
+package com.minzheng.blog.service.impl;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
+import com.minzheng.blog.enums.FilePathEnum;
+import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.service.UploadIndexService;
+import com.minzheng.blog.strategy.UploadStrategy;
+import com.minzheng.blog.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.UPLOAD_FILE;
+import static com.minzheng.blog.constant.RedisPrefixConst.UPLOAD_FILE_INDEX;
+
+/**
+ * 上传文件索引服务
+ * 每个上传路径一个redis集合记录已上传的文件名，内存中的布隆过滤器挡掉大部分不存在的查询，
+ * 文件名由内容md5决定，索引命中时不需要再请求对象存储判断文件是否存在；
+ * 布隆过滤器只在本机更新，其他实例上传的文件本机判断为不存在时最多重复上传一次，不会误判为已存在
+ *
+ */
+@Slf4j
+@Service
+public class UploadIndexServiceImpl implements UploadIndexService {
+    @Autowired
+    private RedisService redisService;
+    @Resource
+    private Executor indexingExecutor;
+
+    /**
+     * 每批写入redis的文件数
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * 上传模式
+     */
+    @Value("${upload.mode}")
+    private String uploadMode;
+
+    /**
+     * 布隆过滤器预计文件数
+     */
+    @Value("${upload.index.expected-size:100000}")
+    private long expectedSize;
+
+    /**
+     * 布隆过滤器误判率
+     */
+    @Value("${upload.index.fpp:0.01}")
+    private double fpp;
+
+    private BloomFilter bloomFilter;
+
+    /**
+     * 布隆过滤器是否已从redis加载，加载前都查redis
+     */
+    private volatile boolean loaded;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        bloomFilter = new BloomFilter(expectedSize, fpp);
+        indexingExecutor.execute(this::load);
+    }
+
+    @Override
+    public Boolean contains(String filePath) {
+        if (loaded && !bloomFilter.mightContain(filePath)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(redisService.sIsMember(getKey(getPath(filePath)), getFileName(filePath)));
+    }
+
+    @Override
+    public Boolean isComplete() {
+        return Objects.nonNull(redisService.get(UPLOAD_FILE_INDEX + uploadMode));
+    }
+
+    @Override
+    public void add(String filePath) {
+        redisService.sAdd(getKey(getPath(filePath)), getFileName(filePath));
+        bloomFilter.put(filePath);
+    }
+
+    @Override
+    public void rebuild(UploadStrategy uploadStrategy) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new BizException("上传索引正在重建");
+        }
+        indexingExecutor.execute(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                long count = 0;
+                for (FilePathEnum filePathEnum : FilePathEnum.values()) {
+                    count += rebuild(uploadStrategy, filePathEnum.getPath());
+                }
+                redisService.set(UPLOAD_FILE_INDEX + uploadMode, DateUtil.now());
+                log.info("上传索引重建完成,文件数:{},耗时:{}ms", count, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error(StrUtil.format("上传索引重建失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    /**
+     * 列出路径下的文件分批写入索引，只会追加，不会删除索引中已有的文件
+     *
+     * @param uploadStrategy 上传策略
+     * @param path           路径
+     * @return 文件数
+     */
+    private long rebuild(UploadStrategy uploadStrategy, String path) throws Exception {
+        List<String> fileNameList = new ArrayList<>(BATCH_SIZE);
+        long[] count = {0};
+        uploadStrategy.listFiles(path, fileName -> {
+            fileNameList.add(fileName);
+            bloomFilter.put(path + fileName);
+            count[0]++;
+            if (fileNameList.size() >= BATCH_SIZE) {
+                redisService.sAdd(getKey(path), fileNameList.toArray());
+                fileNameList.clear();
+            }
+        });
+        if (!fileNameList.isEmpty()) {
+            redisService.sAdd(getKey(path), fileNameList.toArray());
+        }
+        return count[0];
+    }
+
+    /**
+     * 启动时把redis中的索引加载到布隆过滤器
+     */
+    private void load() {
+        try {
+            for (FilePathEnum filePathEnum : FilePathEnum.values()) {
+                String path = filePathEnum.getPath();
+                redisService.sMembers(getKey(path)).forEach(fileName -> bloomFilter.put(path + fileName));
+            }
+            loaded = true;
+        } catch (Exception e) {
+            log.error(StrUtil.format("上传索引加载失败,堆栈:{}", ExceptionUtil.stacktraceToString(e)));
+        }
+    }
+
+    private String getKey(String path) {
+        return UPLOAD_FILE + uploadMode + ":" + path;
+    }
+
+    private static String getPath(String filePath) {
+        return filePath.substring(0, filePath.lastIndexOf('/') + 1);
+    }
+
+    private static String getFileName(String filePath) {
+        return filePath.substring(filePath.lastIndexOf('/') + 1);
+    }
+
+}
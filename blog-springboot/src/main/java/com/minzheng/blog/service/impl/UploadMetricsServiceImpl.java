@@ -0,0 +1,95 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.dto.UploadMetricsDTO;
+import com.minzheng.blog.service.LatencyService;
+import com.minzheng.blog.service.UploadMetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 上传指标服务
+ *
+ */
+@Service
+public class UploadMetricsServiceImpl implements UploadMetricsService {
+    @Autowired
+    private LatencyService latencyService;
+
+    private static final double MB = 1024 * 1024;
+
+    /**
+     * 上传策略对应的计数
+     */
+    private final Map<String, Counter> counterMap = new ConcurrentHashMap<>(4);
+
+    @Override
+    public void record(String name, long bytes, long nanos, boolean success) {
+        Counter counter = counterMap.computeIfAbsent(name, key -> new Counter());
+        counter.count.increment();
+        if (!success) {
+            counter.failedCount.increment();
+            return;
+        }
+        counter.bytes.add(bytes);
+        counter.nanos.add(nanos);
+        counter.lastThroughput = throughput(bytes, nanos);
+        latencyService.record(name + ".upload", nanos);
+    }
+
+    @Override
+    public void recordError(String name, Exception e) {
+        Counter counter = counterMap.computeIfAbsent(name, key -> new Counter());
+        counter.lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        counter.lastErrorTime = LocalDateTime.now();
+    }
+
+    @Override
+    public List<UploadMetricsDTO> listUploadMetrics() {
+        return counterMap.entrySet().stream().map(entry -> {
+            Counter counter = entry.getValue();
+            return UploadMetricsDTO.builder()
+                .name(entry.getKey())
+                .count(counter.count.sum())
+                .failedCount(counter.failedCount.sum())
+                .bytes(counter.bytes.sum())
+                .throughput(throughput(counter.bytes.sum(), counter.nanos.sum()))
+                .lastThroughput(counter.lastThroughput)
+                .lastError(counter.lastError)
+                .lastErrorTime(counter.lastErrorTime)
+                .build();
+        }).collect(Collectors.toList());
+    }
+
+    private static double throughput(long bytes, long nanos) {
+        return nanos > 0 ? bytes / MB / (nanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0D;
+    }
+
+    /**
+     * 计数
+     */
+    private static class Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder failedCount = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        private volatile double lastThroughput;
+
+        private volatile String lastError;
+
+        private volatile LocalDateTime lastErrorTime;
+    }
+
+}
@@ -7,6 +7,7 @@ import com.minzheng.blog.dto.UserDetailDTO;
 import com.minzheng.blog.entity.UserAuth;
 import com.minzheng.blog.entity.UserInfo;
 import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.IpLocator;
 import com.minzheng.blog.service.RedisService;
 import com.minzheng.blog.util.IpUtils;
 import eu.bitwalker.useragentutils.UserAgent;
@@ -38,6 +39,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     private RoleDao roleDao;
     @Autowired
     private RedisService redisService;
+    @Autowired
+    private IpLocator ipLocator;
     @Resource
     private HttpServletRequest request;
 
@@ -83,7 +86,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         Set<Object> talkLikeSet = redisService.sMembers(TALK_USER_LIKE + userInfo.getId());
         // 获取设备信息
         String ipAddress = IpUtils.getIpAddress(request);
-        String ipSource = IpUtils.getIpSource(ipAddress);
+        String ipSource = ipLocator.getIpSource(ipAddress);
         UserAgent userAgent = IpUtils.getUserAgent(request);
         // 封装权限集合，UserDetailDTO
         return UserDetailDTO.builder()
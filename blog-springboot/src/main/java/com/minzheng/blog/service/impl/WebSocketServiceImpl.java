@@ -1,37 +1,41 @@
 package com.minzheng.blog.service.impl;
 
-import cn.hutool.core.date.DateUtil;
 import com.alibaba.fastjson.JSON;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.minzheng.blog.dao.ChatRecordDao;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
 import com.minzheng.blog.dto.ChatRecordDTO;
-import com.minzheng.blog.dto.RecallMessageDTO;
 import com.minzheng.blog.dto.WebsocketMessageDTO;
 import com.minzheng.blog.entity.ChatRecord;
 import com.minzheng.blog.enums.FilePathEnum;
+import com.minzheng.blog.service.AccessLimitService;
+import com.minzheng.blog.service.ChatBroadcastService;
+import com.minzheng.blog.service.ChatBusService;
+import com.minzheng.blog.service.ChatHistoryService;
+import com.minzheng.blog.service.ChatRecordPersistService;
+import com.minzheng.blog.service.IpLocator;
 import com.minzheng.blog.strategy.context.UploadStrategyContext;
 import com.minzheng.blog.util.*;
 import com.minzheng.blog.vo.VoiceVO;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.websocket.*;
 import javax.websocket.server.HandshakeRequest;
 import javax.websocket.server.ServerEndpoint;
 import javax.websocket.server.ServerEndpointConfig;
-import java.io.IOException;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import static com.minzheng.blog.enums.ChatTypeEnum.*;
 
 /**
  * websocket服务
  */
+@Slf4j
 @Data
 @Service
 @ServerEndpoint(value = "/websocket", configurator = WebSocketServiceImpl.ChatConfigurator.class)
@@ -41,14 +45,9 @@ public class WebSocketServiceImpl {
      */
     private Session session;
 
-    /**
-     * 用户session集合
-     */
-    private static CopyOnWriteArraySet<WebSocketServiceImpl> webSocketSet = new CopyOnWriteArraySet<>();
-
     @Autowired
-    public void setChatRecordDao(ChatRecordDao chatRecordDao) {
-        WebSocketServiceImpl.chatRecordDao = chatRecordDao;
+    public void setChatRecordPersistService(ChatRecordPersistService chatRecordPersistService) {
+        WebSocketServiceImpl.chatRecordPersistService = chatRecordPersistService;
     }
 
     @Autowired
@@ -56,10 +55,70 @@ public class WebSocketServiceImpl {
         WebSocketServiceImpl.uploadStrategyContext = uploadStrategyContext;
     }
 
-    private static ChatRecordDao chatRecordDao;
+    @Autowired
+    public void setIpLocator(IpLocator ipLocator) {
+        WebSocketServiceImpl.ipLocator = ipLocator;
+    }
+
+    @Autowired
+    public void setChatBroadcastService(ChatBroadcastService chatBroadcastService) {
+        WebSocketServiceImpl.chatBroadcastService = chatBroadcastService;
+    }
+
+    @Autowired
+    public void setChatBusService(ChatBusService chatBusService) {
+        WebSocketServiceImpl.chatBusService = chatBusService;
+    }
+
+    @Autowired
+    public void setChatHistoryService(ChatHistoryService chatHistoryService) {
+        WebSocketServiceImpl.chatHistoryService = chatHistoryService;
+    }
+
+    @Autowired
+    public void setAccessLimitService(AccessLimitService accessLimitService) {
+        WebSocketServiceImpl.accessLimitService = accessLimitService;
+    }
+
+    @Value("${chat.history.older-max-count:10}")
+    public void setOlderMaxCount(int olderMaxCount) {
+        WebSocketServiceImpl.olderMaxCount = olderMaxCount;
+    }
+
+    @Value("${chat.history.older-seconds:10}")
+    public void setOlderSeconds(long olderSeconds) {
+        WebSocketServiceImpl.olderSeconds = olderSeconds;
+    }
+
+    private static ChatRecordPersistService chatRecordPersistService;
 
     private static UploadStrategyContext uploadStrategyContext;
 
+    private static IpLocator ipLocator;
+
+    private static ChatBroadcastService chatBroadcastService;
+
+    private static ChatBusService chatBusService;
+
+    private static ChatHistoryService chatHistoryService;
+
+    private static AccessLimitService accessLimitService;
+
+    /**
+     * 向前翻页限流：单位时间内最多次数
+     */
+    private static int olderMaxCount;
+
+    /**
+     * 向前翻页限流：单位时间（秒）
+     */
+    private static long olderSeconds;
+
+    /**
+     * 向前翻页限流统计名
+     */
+    private static final String OLDER_RECORD_LIMIT = "websocket:olderRecord";
+
     /**
      * 获取客户端真实ip
      */
@@ -82,10 +141,10 @@ public class WebSocketServiceImpl {
      * 连接建立成功调用的方法
      */
     @OnOpen
-    public void onOpen(Session session, EndpointConfig endpointConfig) throws IOException {
+    public void onOpen(Session session, EndpointConfig endpointConfig) {
         // 加入连接
         this.session = session;
-        webSocketSet.add(this);
+        chatBroadcastService.register(session);
         // 更新在线人数
         updateOnlineCount();
         // 加载历史聊天记录
@@ -95,9 +154,7 @@ public class WebSocketServiceImpl {
             .type(HISTORY_RECORD.getType())
             .data(chatRecordDTO)
             .build();
-        synchronized (session) {
-            session.getBasicRemote().sendText(JSON.toJSONString(messageDTO));
-        }
+        chatBroadcastService.send(session, messageDTO);
     }
 
     /**
@@ -106,7 +163,7 @@ public class WebSocketServiceImpl {
      * @param message 客户端发送过来的消息
      */
     @OnMessage
-    public void onMessage(String message, Session session) throws IOException {
+    public void onMessage(String message, Session session) {
         WebsocketMessageDTO messageDTO = JSON.parseObject(message, WebsocketMessageDTO.class);
         switch (Objects.requireNonNull(getChatType(messageDTO.getType()))) {
             case SEND_MESSAGE:
@@ -114,23 +171,29 @@ public class WebSocketServiceImpl {
                 ChatRecord chatRecord = JSON.parseObject(JSON.toJSONString(messageDTO.getData()), ChatRecord.class);
                 // todo 过滤html标签--》过滤敏感词
                 chatRecord.setContent(HTMLUtils.filter(chatRecord.getContent()));
-                chatRecordDao.insert(chatRecord);
+                // 分配id后异步写入，不等数据库直接广播
+                chatRecordPersistService.save(chatRecord);
                 messageDTO.setData(chatRecord);
                 // 广播消息
                 broadcastMessage(messageDTO);
                 break;
             case RECALL_MESSAGE:
                 // 撤回消息
-                RecallMessageDTO recallMessage = JSON.parseObject(JSON.toJSONString(messageDTO.getData()), RecallMessageDTO.class);
-                // 删除记录
-                chatRecordDao.deleteById(recallMessage.getId());
-                // 广播消息
+                // 广播消息，各节点收到后删除记录，包括还没写入数据库的
                 broadcastMessage(messageDTO);
                 break;
             case HEART_BEAT:
                 // 心跳消息
                 messageDTO.setData("pong");
-                session.getBasicRemote().sendText(JSON.toJSONString(JSON.toJSONString(messageDTO)));
+                chatBroadcastService.send(session, messageDTO);
+                break;
+            case OLDER_RECORD:
+                // 加载更早的聊天记录，参数错误或翻页太频繁时返回空列表
+                Integer id = getOlderRecordId(messageDTO.getData());
+                messageDTO.setData(Objects.nonNull(id) && tryAcquireOlderRecord(session)
+                    ? chatHistoryService.listOlderRecords(id) : new ArrayList<>());
+                chatBroadcastService.send(session, messageDTO);
+                break;
             default:
                 break;
         }
@@ -140,12 +203,56 @@ public class WebSocketServiceImpl {
      * 连接关闭调用的方法
      */
     @OnClose
-    public void onClose() throws IOException {
+    public void onClose() {
         // 更新在线人数
-        webSocketSet.remove(this);
+        chatBroadcastService.unregister(session);
         updateOnlineCount();
     }
 
+    /**
+     * 连接出错调用的方法，之后会调用onClose
+     *
+     * @param throwable 异常
+     */
+    @OnError
+    public void onError(Throwable throwable) {
+        log.warn("聊天连接异常,会话:{},原因:{}", Objects.nonNull(session) ? session.getId() : null, throwable.getMessage());
+    }
+
+    /**
+     * 解析向前翻页的起始id，格式不对返回null
+     *
+     * @param data 消息内容，应为{"id": 记录id}
+     * @return 记录id
+     */
+    private static Integer getOlderRecordId(Object data) {
+        if (!(data instanceof JSONObject)) {
+            return null;
+        }
+        try {
+            Integer id = ((JSONObject) data).getInteger("id");
+            return Objects.nonNull(id) && id > 0 ? id : null;
+        } catch (JSONException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 向前翻页限流，按ip计数，ip未知时按连接计数
+     *
+     * @param session 用户session
+     * @return 是否允许
+     */
+    private static boolean tryAcquireOlderRecord(Session session) {
+        Object ipAddress = session.getUserProperties().get(ChatConfigurator.HEADER_NAME);
+        String identity = Objects.isNull(ipAddress) || "未知ip".equals(ipAddress) ? session.getId() : ipAddress.toString();
+        if (accessLimitService.tryAcquire(OLDER_RECORD_LIMIT, OLDER_RECORD_LIMIT + ":" + identity, olderMaxCount, olderSeconds)) {
+            return true;
+        }
+        log.warn("{}翻页聊天记录超过每{}秒{}次", identity, olderSeconds, olderMaxCount);
+        return false;
+    }
+
     /**
      * 加载历史聊天记录
      *
@@ -153,32 +260,22 @@ public class WebSocketServiceImpl {
      * @return 加载历史聊天记录
      */
     private ChatRecordDTO listChartRecords(EndpointConfig endpointConfig) {
-        // 获取聊天历史记录
-        List<ChatRecord> chatRecordList = chatRecordDao.selectList(new LambdaQueryWrapper<ChatRecord>()
-            .ge(ChatRecord::getCreateTime, DateUtil.offsetHour(new Date(), -12)));
+        // 获取最近的聊天记录，更早的由客户端向前翻页
+        List<ChatRecord> chatRecordList = chatHistoryService.listRecentRecords();
         // 获取当前用户ip
         String ipAddress = endpointConfig.getUserProperties().get(ChatConfigurator.HEADER_NAME).toString();
         return ChatRecordDTO.builder()
             .chatRecordList(chatRecordList)
             .ipAddress(ipAddress)
-            .ipSource(IpUtils.getIpSource(ipAddress))
+            .ipSource(ipLocator.getIpSource(ipAddress))
             .build();
     }
 
     /**
-     * 更新在线人数
-     *
-     * @throws IOException io异常
+     * 更新在线人数，为集群所有节点的连接数之和
      */
-    @Async
-    public void updateOnlineCount() throws IOException {
-        // 获取当前在线人数
-        WebsocketMessageDTO messageDTO = WebsocketMessageDTO.builder()
-            .type(ONLINE_COUNT.getType())
-            .data(webSocketSet.size())
-            .build();
-        // 广播消息
-        broadcastMessage(messageDTO);
+    public void updateOnlineCount() {
+        chatBusService.updateOnlineCount();
     }
 
     /**
@@ -192,31 +289,22 @@ public class WebSocketServiceImpl {
         voiceVO.setContent(content);
         // 保存记录
         ChatRecord chatRecord = BeanCopyUtils.copyObject(voiceVO, ChatRecord.class);
-        chatRecordDao.insert(chatRecord);
+        chatRecordPersistService.save(chatRecord);
         // 发送消息
         WebsocketMessageDTO messageDTO = WebsocketMessageDTO.builder()
             .type(VOICE_MESSAGE.getType())
             .data(chatRecord)
             .build();
         // 广播消息
-        try {
-            broadcastMessage(messageDTO);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        broadcastMessage(messageDTO);
     }
 
     /**
-     * 广播消息
+     * 广播消息，经redis发给集群所有节点
      *
      * @param messageDTO 消息dto
-     * @throws IOException io异常
      */
-    private void broadcastMessage(WebsocketMessageDTO messageDTO) throws IOException {
-        for (WebSocketServiceImpl webSocketService : webSocketSet) {
-            synchronized (webSocketService.session) {
-                webSocketService.session.getBasicRemote().sendText(JSON.toJSONString(messageDTO));
-            }
-        }
+    private void broadcastMessage(WebsocketMessageDTO messageDTO) {
+        chatBusService.publish(messageDTO);
     }
 }
@@ -0,0 +1,19 @@
+package com.minzheng.blog.strategy;
+
+/**
+ * 限流策略
+ *
+ */
+public interface RateLimitStrategy {
+
+    /**
+     * 尝试获取一次访问许可
+     *
+     * @param key      限流key
+     * @param maxCount 单位时间最大请求次数
+     * @param seconds  单位时间（秒）
+     * @return 是否允许访问
+     */
+    boolean tryAcquire(String key, int maxCount, long seconds);
+
+}
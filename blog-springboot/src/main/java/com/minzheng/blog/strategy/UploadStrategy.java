@@ -2,7 +2,10 @@ package com.minzheng.blog.strategy;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 上传策略
@@ -29,4 +32,80 @@ public interface UploadStrategy {
      */
     String uploadFile(String fileName, InputStream inputStream, String path);
 
+    /**
+     * 判断文件是否存在
+     *
+     * @param filePath 文件路径
+     * @return {@link Boolean}
+     */
+    Boolean exists(String filePath);
+
+    /**
+     * 判断文件是否已上传，先查上传索引，索引中没有且索引不完整时再查存储
+     *
+     * @param filePath 文件路径
+     * @return {@link Boolean}
+     */
+    Boolean isUploaded(String filePath);
+
+    /**
+     * 列出路径下的文件，不包括子目录
+     *
+     * @param path     路径
+     * @param consumer 文件名消费者
+     * @throws IOException io异常
+     */
+    void listFiles(String path, Consumer<String> consumer) throws IOException;
+
+    /**
+     * 获取文件访问url
+     *
+     * @param filePath 文件路径
+     * @return {@link String}
+     */
+    String getFileAccessUrl(String filePath);
+
+    /**
+     * 初始化分片上传
+     *
+     * @param filePath 文件路径
+     * @return {@link String} 存储端的分片上传id
+     * @throws IOException io异常
+     */
+    String initiateMultipartUpload(String filePath) throws IOException;
+
+    /**
+     * 上传分片
+     *
+     * @param filePath    文件路径
+     * @param uploadId    存储端的分片上传id
+     * @param partNumber  分片序号，从1开始
+     * @param inputStream 分片输入流
+     * @param partSize    分片大小
+     * @param md5         分片md5，为空时不校验
+     * @return {@link String} 分片etag
+     */
+    String uploadPart(String filePath, String uploadId, int partNumber, InputStream inputStream, long partSize, String md5);
+
+    /**
+     * 合并分片到暂存路径，校验整个文件的md5后移动到文件路径，md5不一致时删除合并结果并抛出BizException
+     *
+     * @param stagingPath 暂存路径，即初始化和上传分片时使用的路径
+     * @param uploadId    存储端的分片上传id
+     * @param partMap     分片序号和etag
+     * @param filePath    文件路径
+     * @param md5         整个文件的md5
+     * @throws IOException io异常
+     */
+    void completeMultipartUpload(String stagingPath, String uploadId, Map<Integer, String> partMap, String filePath, String md5) throws IOException;
+
+    /**
+     * 取消分片上传
+     *
+     * @param filePath 文件路径
+     * @param uploadId 存储端的分片上传id
+     * @throws IOException io异常
+     */
+    void abortMultipartUpload(String filePath, String uploadId) throws IOException;
+
 }
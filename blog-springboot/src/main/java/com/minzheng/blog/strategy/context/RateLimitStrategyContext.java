@@ -0,0 +1,39 @@
+package com.minzheng.blog.strategy.context;
+
+import com.minzheng.blog.strategy.RateLimitStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+import static com.minzheng.blog.enums.RateLimitModeEnum.getStrategy;
+
+/**
+ * 限流策略上下文
+ *
+ */
+@Service
+public class RateLimitStrategyContext {
+    /**
+     * 限流模式
+     */
+    @Value("${access-limit.mode:token-bucket}")
+    private String rateLimitMode;
+
+    @Autowired
+    private Map<String, RateLimitStrategy> rateLimitStrategyMap;
+
+    /**
+     * 执行限流策略
+     *
+     * @param key      限流key
+     * @param maxCount 单位时间最大请求次数
+     * @param seconds  单位时间（秒）
+     * @return 是否允许访问
+     */
+    public boolean executeRateLimitStrategy(String key, int maxCount, long seconds) {
+        return rateLimitStrategyMap.get(getStrategy(rateLimitMode)).tryAcquire(key, maxCount, seconds);
+    }
+
+}
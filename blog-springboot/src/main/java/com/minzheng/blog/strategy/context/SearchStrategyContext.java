@@ -1,13 +1,22 @@
 package com.minzheng.blog.strategy.context;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.minzheng.blog.dto.ArticleSearchDTO;
 import com.minzheng.blog.strategy.SearchStrategy;
+import com.minzheng.blog.util.PageUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import static com.minzheng.blog.enums.SearchModeEnum.getStrategy;
 
@@ -22,9 +31,34 @@ public class SearchStrategyContext {
     @Value("${search.mode}")
     private String searchMode;
 
+    /**
+     * 搜索结果缓存时间（秒），0为不缓存
+     */
+    @Value("${search.cache.ttl:30}")
+    private long cacheTtl;
+
+    /**
+     * 搜索结果最多缓存条数
+     */
+    @Value("${search.cache.size:1000}")
+    private long cacheSize;
+
     @Autowired
     private Map<String, SearchStrategy> searchStrategyMap;
 
+    /**
+     * 规范化后的搜索条件对应的结果
+     */
+    private Cache<String, List<ArticleSearchDTO>> searchCache;
+
+    @PostConstruct
+    public void init() {
+        searchCache = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+            .build();
+    }
+
     /**
      * 执行搜索策略
      *
@@ -32,7 +66,32 @@ public class SearchStrategyContext {
      * @return {@link List<ArticleSearchDTO>} 搜索文章
      */
     public List<ArticleSearchDTO> executeSearchStrategy(String keywords) {
-        return searchStrategyMap.get(getStrategy(searchMode)).searchArticle(keywords);
+        SearchStrategy searchStrategy = searchStrategyMap.get(getStrategy(searchMode));
+        if (cacheTtl <= 0 || Objects.isNull(keywords)) {
+            return searchStrategy.searchArticle(keywords);
+        }
+        // 前后空白、连续空白和大小写不同的关键字共用一份结果
+        String normalized = keywords.trim().replaceAll("\\s+", " ");
+        String key = normalized.toLowerCase(Locale.ROOT);
+        if (Objects.nonNull(PageUtils.getPage())) {
+            key = PageUtils.getCurrent() + ":" + PageUtils.getSize() + ":" + key;
+        }
+        return searchCache.get(key, k -> searchStrategy.searchArticle(normalized));
+    }
+
+    /**
+     * 文章修改后清空搜索结果缓存，事务中调用时提交后再清一次
+     */
+    public void clearCache() {
+        searchCache.invalidateAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    searchCache.invalidateAll();
+                }
+            });
+        }
     }
 
 }
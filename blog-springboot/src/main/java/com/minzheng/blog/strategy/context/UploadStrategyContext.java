@@ -51,4 +51,13 @@ public class UploadStrategyContext {
         return uploadStrategyMap.get(getStrategy(uploadMode)).uploadFile(fileName, inputStream, path);
     }
 
+    /**
+     * 获取当前上传策略，分片上传需要多次调用同一策略
+     *
+     * @return {@link UploadStrategy} 上传策略
+     */
+    public UploadStrategy getUploadStrategy() {
+        return uploadStrategyMap.get(getStrategy(uploadMode));
+    }
+
 }
@@ -14,6 +14,7 @@ import com.minzheng.blog.entity.UserInfo;
 import com.minzheng.blog.entity.UserRole;
 import com.minzheng.blog.enums.RoleEnum;
 import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.IpLocator;
 import com.minzheng.blog.service.impl.UserDetailsServiceImpl;
 import com.minzheng.blog.strategy.SocialLoginStrategy;
 import com.minzheng.blog.util.BeanCopyUtils;
@@ -47,6 +48,8 @@ public abstract class AbstractSocialLoginStrategyImpl implements SocialLoginStra
     private UserRoleDao userRoleDao;
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
+    @Autowired
+    private IpLocator ipLocator;
     @Resource
     private HttpServletRequest request;
 
@@ -58,7 +61,7 @@ public abstract class AbstractSocialLoginStrategyImpl implements SocialLoginStra
         SocialTokenDTO socialToken = getSocialToken(data);
         // 获取用户ip信息
         String ipAddress = IpUtils.getIpAddress(request);
-        String ipSource = IpUtils.getIpSource(ipAddress);
+        String ipSource = ipLocator.getIpSource(ipAddress);
         // 判断是否已注册
         UserAuth user = getUserAuth(socialToken);
         if (Objects.nonNull(user)) {
@@ -1,60 +1,164 @@
 package com.minzheng.blog.strategy.impl;
 
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.util.StrUtil;
 import com.minzheng.blog.exception.BizException;
+import com.minzheng.blog.service.ImageVariantService;
+import com.minzheng.blog.service.UploadIndexService;
+import com.minzheng.blog.service.UploadMetricsService;
 import com.minzheng.blog.strategy.UploadStrategy;
 import com.minzheng.blog.util.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Objects;
 
 /**
  * 抽象上传模板
+ * 上传流只读一次：边写临时文件边计算md5，再从临时文件上传
  */
+@Slf4j
 @Service
 public abstract class AbstractUploadStrategyImpl implements UploadStrategy {
+    @Autowired
+    private UploadMetricsService uploadMetricsService;
+    @Autowired
+    private UploadIndexService uploadIndexService;
+    @Autowired
+    private ImageVariantService imageVariantService;
 
     @Override
     public String uploadFile(MultipartFile file, String path) {
+        long start = System.nanoTime();
+        long size = 0;
+        boolean success = false;
+        Path tempFile = null;
+        Path variantFile = null;
         try {
-            // 获取文件md5值
-            String md5 = FileUtils.getMd5(file.getInputStream());
+            // 写入临时文件并获取文件md5值
+            MessageDigest md5 = MessageDigest.getInstance("md5");
+            tempFile = createTempFile();
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), md5)) {
+                size = Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
             // 获取文件扩展名
             String extName = FileUtils.getExtName(file.getOriginalFilename());
             // 重新生成文件名
-            String fileName = md5 + extName;
+            String fileName = new String(Hex.encodeHex(md5.digest())) + extName;
             // 判断文件是否已存在
-            if (!exists(path + fileName)) {
-                // 不存在则继续上传
-                upload(path, fileName, file.getInputStream());
+            if (!isUploaded(path + fileName)) {
+                // 不存在则继续上传，上传后临时文件会被删除或移走，图片先复制一份，原图上传成功后再生成缩略图
+                if (imageVariantService.isSupported(path + fileName)) {
+                    variantFile = createTempFile();
+                    Files.copy(tempFile, variantFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                upload(path, fileName, tempFile);
+                uploadIndexService.add(path + fileName);
+                if (Objects.nonNull(variantFile)) {
+                    imageVariantService.generate(this, path + fileName, variantFile);
+                    variantFile = null;
+                }
             }
+            success = true;
             // 返回文件访问路径
             return getFileAccessUrl(path + fileName);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error(StrUtil.format("文件上传失败,路径:{},堆栈:{}", path, ExceptionUtil.stacktraceToString(e)));
+            uploadMetricsService.recordError(getName(), e);
             throw new BizException("文件上传失败");
+        } finally {
+            deleteTempFile(tempFile);
+            deleteTempFile(variantFile);
+            uploadMetricsService.record(getName(), size, System.nanoTime() - start, success);
         }
     }
 
     @Override
     public String uploadFile(String fileName, InputStream inputStream, String path) {
-        try {
+        long start = System.nanoTime();
+        long size = 0;
+        boolean success = false;
+        Path tempFile = null;
+        try (InputStream in = inputStream) {
+            tempFile = createTempFile();
+            size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
             // 上传文件
-            upload(path, fileName, inputStream);
+            upload(path, fileName, tempFile);
+            success = true;
             // 返回文件访问路径
             return getFileAccessUrl(path + fileName);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error(StrUtil.format("文件上传失败,路径:{},堆栈:{}", path + fileName, ExceptionUtil.stacktraceToString(e)));
+            uploadMetricsService.recordError(getName(), e);
             throw new BizException("文件上传失败");
+        } finally {
+            deleteTempFile(tempFile);
+            uploadMetricsService.record(getName(), size, System.nanoTime() - start, success);
         }
     }
 
-    /**
-     * 判断文件是否存在
-     *
-     * @param filePath 文件路径
-     * @return {@link Boolean}
-     */
+    @Override
+    public String uploadPart(String filePath, String uploadId, int partNumber, InputStream inputStream, long partSize, String md5) {
+        long start = System.nanoTime();
+        long size = 0;
+        boolean success = false;
+        Path tempFile = null;
+        try {
+            // 写入临时文件并校验大小和md5，超出分片大小的部分不再写入
+            MessageDigest digest = MessageDigest.getInstance("md5");
+            tempFile = createTempFile();
+            try (InputStream in = new DigestInputStream(inputStream, digest);
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                size = copy(in, out, partSize + 1);
+            }
+            if (size != partSize) {
+                throw new BizException("分片大小不正确");
+            }
+            if (StrUtil.isNotBlank(md5) && !md5.equalsIgnoreCase(new String(Hex.encodeHex(digest.digest())))) {
+                throw new BizException("分片校验失败");
+            }
+            String eTag = uploadPart(filePath, uploadId, partNumber, tempFile);
+            success = true;
+            return eTag;
+        } catch (BizException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error(StrUtil.format("分片上传失败,路径:{},分片:{},堆栈:{}", filePath, partNumber, ExceptionUtil.stacktraceToString(e)));
+            uploadMetricsService.recordError(getName(), e);
+            throw new BizException("分片上传失败");
+        } finally {
+            deleteTempFile(tempFile);
+            uploadMetricsService.record(getName(), size, System.nanoTime() - start, success);
+        }
+    }
+
+    @Override
+    public Boolean isUploaded(String filePath) {
+        if (uploadIndexService.contains(filePath)) {
+            return true;
+        }
+        if (uploadIndexService.isComplete()) {
+            return false;
+        }
+        // 索引建立前上传的文件需要查存储，查到后补进索引
+        if (exists(filePath)) {
+            uploadIndexService.add(filePath);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
     public abstract Boolean exists(String filePath);
 
     /**
@@ -68,11 +172,87 @@ public abstract class AbstractUploadStrategyImpl implements UploadStrategy {
     public abstract void upload(String path, String fileName, InputStream inputStream) throws IOException;
 
     /**
-     * 获取文件访问url
+     * 从临时文件上传，默认打开输入流上传，上传后临时文件会被删除
      *
-     * @param filePath 文件路径
-     * @return {@link String}
+     * @param path     路径
+     * @param fileName 文件名
+     * @param tempFile 临时文件
+     * @throws IOException io异常
      */
+    public void upload(String path, String fileName, Path tempFile) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(tempFile)) {
+            upload(path, fileName, inputStream);
+        }
+    }
+
+    /**
+     * 从临时文件上传分片，上传后临时文件会被删除
+     *
+     * @param filePath   文件路径
+     * @param uploadId   存储端的分片上传id
+     * @param partNumber 分片序号
+     * @param partFile   分片临时文件
+     * @return {@link String} 分片etag
+     * @throws IOException io异常
+     */
+    public abstract String uploadPart(String filePath, String uploadId, int partNumber, Path partFile) throws IOException;
+
+    @Override
     public abstract String getFileAccessUrl(String filePath);
 
+    /**
+     * 校验合并后的文件md5
+     *
+     * @param filePath 文件路径
+     * @param expected 客户端声明的md5
+     * @param actual   实际md5
+     */
+    protected void checkMd5(String filePath, String expected, String actual) {
+        if (!actual.equalsIgnoreCase(expected)) {
+            log.warn("分片合并后md5不一致,路径:{},声明:{},实际:{}", filePath, expected, actual);
+            throw new BizException("文件校验失败");
+        }
+    }
+
+    /**
+     * 创建临时文件
+     *
+     * @return 临时文件
+     * @throws IOException io异常
+     */
+    protected Path createTempFile() throws IOException {
+        return Files.createTempFile("upload", ".tmp");
+    }
+
+    /**
+     * 复制输入流，最多复制limit字节
+     *
+     * @return 复制的字节数
+     */
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while (total < limit && (read = in.read(buffer, 0, (int) Math.min(buffer.length, limit - total))) != -1) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        if (Objects.isNull(tempFile)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("删除上传临时文件失败:{}", tempFile);
+        }
+    }
+
+    private String getName() {
+        return ClassUtils.getUserClass(getClass()).getSimpleName();
+    }
+
 }
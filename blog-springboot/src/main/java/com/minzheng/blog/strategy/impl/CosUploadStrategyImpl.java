@@ -1,20 +1,34 @@
 package com.minzheng.blog.strategy.impl;
 
+import cn.hutool.core.util.StrUtil;
 import com.minzheng.blog.config.CosConfigProperties;
 import com.qcloud.cos.COSClient;
 import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
-import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.endpoint.UserSpecifiedEndpointBuilder;
+import com.qcloud.cos.http.HttpProtocol;
+import com.qcloud.cos.model.*;
 import com.qcloud.cos.region.Region;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 
 /**腾讯对象存储
+ * 客户端第一次使用时创建，之后复用同一个连接池，应用关闭时释放
  * @since 2022/5/26 11:02
  */
 @Service("cosUploadStrategyImpl")
@@ -22,6 +36,17 @@ import java.io.InputStream;
 public class CosUploadStrategyImpl extends AbstractUploadStrategyImpl {
     private final CosConfigProperties cosConfigProperties;
 
+    /**
+     * 单次复制上限，也是分片复制的分片大小
+     */
+    private static final long COPY_PART_SIZE = 1L << 30;
+
+    private static final String HTTP_PREFIX = "http://";
+
+    private static final String HTTPS_PREFIX = "https://";
+
+    private volatile COSClient cosClient;
+
     public CosUploadStrategyImpl(CosConfigProperties cosConfigProperties) {
         this.cosConfigProperties = cosConfigProperties;
     }
@@ -32,28 +57,83 @@ public class CosUploadStrategyImpl extends AbstractUploadStrategyImpl {
     }
 
     @Override
-    public void upload(String path, String fileName, InputStream inputStream) {
+    public void upload(String path, String fileName, InputStream inputStream) throws IOException {
+        // 从输入流上传(需提前告知输入流的长度, 否则可能导致 oom)
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        // 设置输入流长度
+        objectMetadata.setContentLength(inputStream.available());
+        getCosClient().putObject(cosConfigProperties.getBucketName(), path + fileName, inputStream, objectMetadata);
+    }
 
-        // 生成cos客户端
-        COSClient cosclient = getCosClient();
+    /**
+     * 按文件上传，sdk知道长度且失败重试时可以重新读取
+     */
+    @Override
+    public void upload(String path, String fileName, Path tempFile) {
+        getCosClient().putObject(cosConfigProperties.getBucketName(), path + fileName, tempFile.toFile());
+    }
 
-        try {
+    /**
+     * 按前缀分页列出对象，跳过子目录下的对象
+     */
+    @Override
+    public void listFiles(String path, Consumer<String> consumer) {
+        ListObjectsRequest request = new ListObjectsRequest();
+        request.setBucketName(cosConfigProperties.getBucketName());
+        request.setPrefix(path);
+        request.setMaxKeys(1000);
+        ObjectListing objectListing;
+        do {
+            objectListing = getCosClient().listObjects(request);
+            for (COSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+                String fileName = objectSummary.getKey().substring(path.length());
+                if (!fileName.isEmpty() && !fileName.contains("/")) {
+                    consumer.accept(fileName);
+                }
+            }
+            request.setMarker(objectListing.getNextMarker());
+        } while (objectListing.isTruncated());
+    }
 
-            // 从输入流上传(需提前告知输入流的长度, 否则可能导致 oom)
-            ObjectMetadata objectMetadata = new ObjectMetadata();
-            // 设置输入流长度
-            objectMetadata.setContentLength(inputStream.available());
+    @Override
+    public String initiateMultipartUpload(String filePath) {
+        return getCosClient().initiateMultipartUpload(new InitiateMultipartUploadRequest(cosConfigProperties.getBucketName(), filePath)).getUploadId();
+    }
 
-            cosclient.putObject(cosConfigProperties.getBucketName(), path + fileName, inputStream, objectMetadata);
+    @Override
+    public String uploadPart(String filePath, String uploadId, int partNumber, Path partFile) throws IOException {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(cosConfigProperties.getBucketName());
+        request.setKey(filePath);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setPartSize(Files.size(partFile));
+        request.setFile(partFile.toFile());
+        return getCosClient().uploadPart(request).getETag();
+    }
 
-        } catch (IOException e) {
-            log.error(e.getMessage());
+    /**
+     * 合并到暂存对象，读回计算md5，校验通过后服务端复制到目标对象，最后删除暂存对象
+     */
+    @Override
+    public void completeMultipartUpload(String stagingPath, String uploadId, Map<Integer, String> partMap, String filePath, String md5) throws IOException {
+        String bucketName = cosConfigProperties.getBucketName();
+        getCosClient().completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, stagingPath, uploadId, toPartETagList(partMap)));
+        try {
+            long size;
+            try (COSObject cosObject = getCosClient().getObject(bucketName, stagingPath)) {
+                size = cosObject.getObjectMetadata().getContentLength();
+                checkMd5(filePath, md5, DigestUtils.md5Hex(cosObject.getObjectContent()));
+            }
+            copy(stagingPath, filePath, size);
         } finally {
-            // 关闭客户端
-            cosclient.shutdown();
+            getCosClient().deleteObject(bucketName, stagingPath);
         }
+    }
 
-
+    @Override
+    public void abortMultipartUpload(String filePath, String uploadId) {
+        getCosClient().abortMultipartUpload(new AbortMultipartUploadRequest(cosConfigProperties.getBucketName(), filePath, uploadId));
     }
 
     @Override
@@ -61,12 +141,83 @@ public class CosUploadStrategyImpl extends AbstractUploadStrategyImpl {
         return cosConfigProperties.getUrl() + filePath;
     }
 
+    /**
+     * 服务端复制，超过单次复制上限时分片复制
+     *
+     * @param sourcePath 源路径
+     * @param targetPath 目标路径
+     * @param size       文件大小
+     */
+    private void copy(String sourcePath, String targetPath, long size) {
+        String bucketName = cosConfigProperties.getBucketName();
+        if (size <= COPY_PART_SIZE) {
+            getCosClient().copyObject(bucketName, sourcePath, bucketName, targetPath);
+            return;
+        }
+        String uploadId = getCosClient().initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, targetPath)).getUploadId();
+        try {
+            Map<Integer, String> partMap = new HashMap<>(16);
+            for (int partNumber = 1; (long) (partNumber - 1) * COPY_PART_SIZE < size; partNumber++) {
+                long firstByte = (long) (partNumber - 1) * COPY_PART_SIZE;
+                CopyPartRequest request = new CopyPartRequest()
+                    .withSourceBucketName(bucketName)
+                    .withSourceKey(sourcePath)
+                    .withDestinationBucketName(bucketName)
+                    .withDestinationKey(targetPath)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withFirstByte(firstByte)
+                    .withLastByte(Math.min(firstByte + COPY_PART_SIZE, size) - 1);
+                partMap.put(partNumber, getCosClient().copyPart(request).getETag());
+            }
+            getCosClient().completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, targetPath, uploadId, toPartETagList(partMap)));
+        } catch (RuntimeException e) {
+            getCosClient().abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, targetPath, uploadId));
+            throw e;
+        }
+    }
+
+    private static List<PartETag> toPartETagList(Map<Integer, String> partMap) {
+        return partMap.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new PartETag(entry.getKey(), entry.getValue()))
+            .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (Objects.nonNull(cosClient)) {
+            cosClient.shutdown();
+        }
+    }
+
     public COSClient getCosClient() {
-        // 1 初始化用户身份信息(secretId, secretKey)
-        COSCredentials cred = new BasicCOSCredentials(cosConfigProperties.getSecretId(), cosConfigProperties.getSecretKey());
-        // 2 设置bucket的区域, COS地域的简称请参照 https://www.qcloud.com/document/product/436/6224
-        ClientConfig clientConfig = new ClientConfig(new Region(cosConfigProperties.getRegion()));
-        // 3 生成cos客户端
-        return new COSClient(cred, clientConfig);
+        if (Objects.isNull(cosClient)) {
+            synchronized (this) {
+                if (Objects.isNull(cosClient)) {
+                    // 1 初始化用户身份信息(secretId, secretKey)
+                    COSCredentials cred = new BasicCOSCredentials(cosConfigProperties.getSecretId(), cosConfigProperties.getSecretKey());
+                    // 2 设置bucket的区域, COS地域的简称请参照 https://www.qcloud.com/document/product/436/6224
+                    ClientConfig clientConfig = new ClientConfig(new Region(cosConfigProperties.getRegion()));
+                    // 3 设置连接池、超时和重试
+                    clientConfig.setMaxConnectionsCount(cosConfigProperties.getMaxConnections());
+                    clientConfig.setConnectionTimeout(cosConfigProperties.getConnectionTimeout());
+                    clientConfig.setSocketTimeout(cosConfigProperties.getSocketTimeout());
+                    clientConfig.setIdleConnectionAlive(cosConfigProperties.getIdleConnectionTime());
+                    clientConfig.setMaxErrorRetry(cosConfigProperties.getMaxErrorRetry());
+                    String endpoint = cosConfigProperties.getEndpoint();
+                    if (StrUtil.isNotBlank(endpoint)) {
+                        if (endpoint.startsWith(HTTP_PREFIX)) {
+                            clientConfig.setHttpProtocol(HttpProtocol.http);
+                        }
+                        endpoint = StrUtil.removePrefix(StrUtil.removePrefix(endpoint, HTTP_PREFIX), HTTPS_PREFIX);
+                        clientConfig.setEndpointBuilder(new UserSpecifiedEndpointBuilder(endpoint, endpoint));
+                    }
+                    // 4 生成cos客户端
+                    cosClient = new COSClient(cred, clientConfig);
+                }
+            }
+        }
+        return cosClient;
     }
 }
@@ -0,0 +1,71 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.minzheng.blog.dao.ArticleDao;
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.minzheng.blog.strategy.SearchStrategy;
+import com.minzheng.blog.util.HighlightUtils;
+import com.minzheng.blog.util.PageUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import static com.minzheng.blog.constant.CommonConst.DEFAULT_SIZE;
+
+/**
+ * mysql全文索引搜索策略
+ * 需要先在文章表上建立ngram全文索引（sql/article_fulltext.sql）：
+ * ALTER TABLE tb_article ADD FULLTEXT INDEX ft_article_title_content (article_title, article_content) WITH PARSER ngram;
+ *
+ */
+@Service("fullTextSearchStrategyImpl")
+public class FullTextSearchStrategyImpl implements SearchStrategy {
+    @Autowired
+    private ArticleDao articleDao;
+
+    /**
+     * 片段中关键词前面的字数
+     */
+    private static final int PRE_LENGTH = 25;
+
+    /**
+     * 每页最多条数
+     */
+    @Value("${search.fulltext.max-size:50}")
+    private long maxSize;
+
+    /**
+     * 内容片段长度
+     */
+    @Value("${search.fulltext.snippet-length:200}")
+    private int snippetLength;
+
+    @Override
+    public List<ArticleSearchDTO> searchArticle(String keywords) {
+        if (StringUtils.isBlank(keywords)) {
+            return new ArrayList<>();
+        }
+        // 没有分页参数时取第一页
+        long current = 0L;
+        long size = Long.parseLong(DEFAULT_SIZE);
+        if (Objects.nonNull(PageUtils.getPage())) {
+            current = PageUtils.getLimitCurrent();
+            size = PageUtils.getSize();
+        }
+        List<ArticleSearchDTO> articleSearchDTOList = articleDao.searchArticlesByFullText(keywords, PRE_LENGTH, snippetLength,
+            current, Math.min(size, maxSize));
+        // 高亮处理
+        Pattern pattern = HighlightUtils.compile(keywords);
+        articleSearchDTOList.forEach(item -> {
+            item.setArticleTitle(HighlightUtils.highlight(pattern, item.getArticleTitle()));
+            item.setArticleContent(HighlightUtils.highlight(pattern, item.getArticleContent()));
+        });
+        return articleSearchDTOList;
+    }
+
+}
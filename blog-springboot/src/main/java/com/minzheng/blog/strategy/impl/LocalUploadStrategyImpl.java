@@ -1,20 +1,49 @@
 package com.minzheng.blog.strategy.impl;
 
-import com.minzheng.blog.enums.FileExtEnum;
-import com.minzheng.blog.exception.BizException;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 本地上传策略
+ * 临时文件放在上传目录下，和目标文件在同一文件系统，上传只需要原子重命名
+ * 分片按序号存放在分片目录下，合并时边拼接边计算md5，校验通过才生成目标文件
  */
 @Service("localUploadStrategyImpl")
 public class LocalUploadStrategyImpl extends AbstractUploadStrategyImpl {
 
+    /**
+     * 临时文件目录
+     */
+    private static final String TEMP_DIRECTORY = ".tmp";
+
+    /**
+     * 分片目录
+     */
+    private static final String CHUNK_DIRECTORY = ".chunks";
+
+    /**
+     * 拼接分片的缓冲区大小
+     */
+    private static final int JOIN_BUFFER_SIZE = 1 << 16;
+
     /**
      * 本地路径
      */
@@ -27,6 +56,12 @@ public class LocalUploadStrategyImpl extends AbstractUploadStrategyImpl {
     @Value("${upload.local.url}")
     private String localUrl;
 
+    /**
+     * 分片上传过期时间（秒）
+     */
+    @Value("${upload.chunk.expire:86400}")
+    private long chunkExpire;
+
     @Override
     public Boolean exists(String filePath) {
         return new File(localPath + filePath).exists();
@@ -34,48 +69,137 @@ public class LocalUploadStrategyImpl extends AbstractUploadStrategyImpl {
 
     @Override
     public void upload(String path, String fileName, InputStream inputStream) throws IOException {
+        Path tempFile = createTempFile();
+        try (InputStream in = inputStream) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            upload(path, fileName, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void upload(String path, String fileName, Path tempFile) throws IOException {
         // 判断目录是否存在
-        File directory = new File(localPath + path);
-        if (!directory.exists()) {
-            if (!directory.mkdirs()) {
-                throw new BizException("创建目录失败");
-            }
+        Path target = Paths.get(localPath + path + fileName);
+        Files.createDirectories(target.getParent());
+        // 写入文件，读者只会看到完整的文件
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
         }
-        // 写入文件
-        File file = new File(localPath + path + fileName);
-        String ext = "." + fileName.split("\\.")[1];
-        switch (Objects.requireNonNull(FileExtEnum.getFileExt(ext))) {
-            case MD:
-            case TXT:
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-                while (reader.ready()) {
-                    writer.write((char) reader.read());
-                }
-                writer.flush();
-                writer.close();
-                reader.close();
-                break;
-            default:
-                BufferedInputStream bis = new BufferedInputStream(inputStream);
-                BufferedOutputStream bos = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
-                byte[] bytes = new byte[1024];
-                int length;
-                while ((length = bis.read(bytes)) != -1) {
-                    bos.write(bytes, 0, length);
+    }
+
+    @Override
+    public void listFiles(String path, Consumer<String> consumer) throws IOException {
+        Path directory = Paths.get(localPath + path);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(Files::isRegularFile)
+                .forEach(file -> consumer.accept(file.getFileName().toString()));
+        }
+    }
+
+    @Override
+    public String initiateMultipartUpload(String filePath) throws IOException {
+        String uploadId = IdUtil.simpleUUID();
+        Files.createDirectories(getChunkDirectory(uploadId));
+        return uploadId;
+    }
+
+    /**
+     * 分片移动到分片目录，重传的分片直接覆盖
+     */
+    @Override
+    public String uploadPart(String filePath, String uploadId, int partNumber, Path partFile) throws IOException {
+        Path directory = getChunkDirectory(uploadId);
+        if (!Files.isDirectory(directory)) {
+            throw new NoSuchFileException(directory.toString());
+        }
+        Path target = directory.resolve(String.valueOf(partNumber));
+        try {
+            Files.move(partFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return String.valueOf(partNumber);
+    }
+
+    /**
+     * 分片按序号拼接到临时文件，拼接时同时计算md5，校验通过后重命名为目标文件
+     */
+    @Override
+    public void completeMultipartUpload(String stagingPath, String uploadId, Map<Integer, String> partMap, String filePath, String md5) throws IOException {
+        Path directory = getChunkDirectory(uploadId);
+        Path tempFile = createTempFile();
+        try {
+            MessageDigest digest = DigestUtils.getMd5Digest();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(JOIN_BUFFER_SIZE);
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                for (Integer partNumber : new TreeSet<>(partMap.keySet())) {
+                    try (FileChannel in = FileChannel.open(directory.resolve(String.valueOf(partNumber)), StandardOpenOption.READ)) {
+                        while (in.read(buffer) != -1) {
+                            buffer.flip();
+                            digest.update(buffer.duplicate());
+                            while (buffer.hasRemaining()) {
+                                out.write(buffer);
+                            }
+                            buffer.clear();
+                        }
+                    }
                 }
-                bos.flush();
-                bos.close();
-                bis.close();
-                break;
+            }
+            try {
+                checkMd5(filePath, md5, Hex.encodeHexString(digest.digest()));
+            } finally {
+                // 校验失败的分片不能再合并，和成功时一样删除
+                FileUtil.del(directory.toFile());
+            }
+            upload("", filePath, tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
-        inputStream.close();
     }
 
+    @Override
+    public void abortMultipartUpload(String filePath, String uploadId) {
+        FileUtil.del(getChunkDirectory(uploadId).toFile());
+    }
+
+    /**
+     * 清理过期未完成的分片目录
+     */
+    @Scheduled(cron = "0 30 4 * * ?")
+    public void cleanExpiredChunks() {
+        File[] directoryList = Paths.get(localPath, CHUNK_DIRECTORY).toFile().listFiles();
+        if (Objects.isNull(directoryList)) {
+            return;
+        }
+        long expireTime = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(chunkExpire);
+        for (File directory : directoryList) {
+            if (directory.lastModified() < expireTime) {
+                FileUtil.del(directory);
+            }
+        }
+    }
 
     @Override
     public String getFileAccessUrl(String filePath) {
         return localUrl + filePath;
     }
 
+    @Override
+    protected Path createTempFile() throws IOException {
+        // createTempFile会把权限设为仅所有者可读，重命名后web服务器读不到，这里按默认权限创建
+        Path directory = Files.createDirectories(Paths.get(localPath, TEMP_DIRECTORY));
+        return Files.createFile(directory.resolve(UUID.randomUUID() + ".tmp"));
+    }
+
+    private Path getChunkDirectory(String uploadId) {
+        return Paths.get(localPath, CHUNK_DIRECTORY, uploadId);
+    }
+
 }
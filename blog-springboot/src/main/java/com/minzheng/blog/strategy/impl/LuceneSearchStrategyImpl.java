@@ -0,0 +1,30 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.minzheng.blog.service.LuceneIndexService;
+import com.minzheng.blog.strategy.SearchStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地lucene搜索策略
+ *
+ */
+@Service("luceneSearchStrategyImpl")
+public class LuceneSearchStrategyImpl implements SearchStrategy {
+    @Autowired
+    private LuceneIndexService luceneIndexService;
+
+    @Override
+    public List<ArticleSearchDTO> searchArticle(String keywords) {
+        if (StringUtils.isBlank(keywords)) {
+            return new ArrayList<>();
+        }
+        return luceneIndexService.searchArticle(keywords);
+    }
+
+}
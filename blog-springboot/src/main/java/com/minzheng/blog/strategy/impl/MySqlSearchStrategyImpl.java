@@ -6,11 +6,13 @@ import com.minzheng.blog.dao.ArticleDao;
 import com.minzheng.blog.dto.ArticleSearchDTO;
 import com.minzheng.blog.entity.Article;
 import com.minzheng.blog.strategy.SearchStrategy;
+import com.minzheng.blog.util.HighlightUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.minzheng.blog.constant.CommonConst.*;
@@ -39,6 +41,7 @@ public class MySqlSearchStrategyImpl implements SearchStrategy {
                         .or()
                         .like(Article::getArticleContent, keywords)));
         // 高亮处理
+        Pattern pattern = HighlightUtils.compile(keywords);
         return articleList.stream().map(item -> {
             // 获取关键词第一次出现的位置
             String articleContent = item.getArticleContent();
@@ -53,10 +56,10 @@ public class MySqlSearchStrategyImpl implements SearchStrategy {
                 int postIndex = postLength > 175 ? last + 175 : last + postLength;
                 String postText = item.getArticleContent().substring(index, postIndex);
                 // 文章内容高亮
-                articleContent = (preText + postText).replaceAll(keywords, PRE_TAG + keywords + POST_TAG);
+                articleContent = HighlightUtils.highlight(pattern, preText + postText);
             }
             // 文章标题高亮
-            String articleTitle = item.getArticleTitle().replaceAll(keywords, PRE_TAG + keywords + POST_TAG);
+            String articleTitle = HighlightUtils.highlight(pattern, item.getArticleTitle());
             return ArticleSearchDTO.builder()
                     .id(item.getId())
                     .articleTitle(articleTitle)
@@ -1,22 +1,43 @@
 package com.minzheng.blog.strategy.impl;
 
+import com.aliyun.oss.ClientBuilderConfiguration;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.*;
 import com.minzheng.blog.config.OssConfigProperties;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * oss上传策略
  * 阿里云
+ * 客户端第一次使用时创建，之后复用同一个连接池，应用关闭时释放
  */
 @Service("ossUploadStrategyImpl")
 public class OssUploadStrategyImpl extends AbstractUploadStrategyImpl {
     @Autowired
     private OssConfigProperties ossConfigProperties;
 
+    /**
+     * 单次复制上限，也是分片复制的分片大小
+     */
+    private static final long COPY_PART_SIZE = 1L << 30;
+
+    private volatile OSS ossClient;
+
     @Override
     public Boolean exists(String filePath) {
         return getOssClient().doesObjectExist(ossConfigProperties.getBucketName(), filePath);
@@ -27,18 +48,145 @@ public class OssUploadStrategyImpl extends AbstractUploadStrategyImpl {
         getOssClient().putObject(ossConfigProperties.getBucketName(), path + fileName, inputStream);
     }
 
+    /**
+     * 按文件上传，sdk知道长度且失败重试时可以重新读取
+     */
+    @Override
+    public void upload(String path, String fileName, Path tempFile) {
+        getOssClient().putObject(ossConfigProperties.getBucketName(), path + fileName, tempFile.toFile());
+    }
+
+    /**
+     * 按前缀分页列出对象，跳过子目录下的对象
+     */
+    @Override
+    public void listFiles(String path, Consumer<String> consumer) {
+        ListObjectsRequest request = new ListObjectsRequest(ossConfigProperties.getBucketName());
+        request.setPrefix(path);
+        request.setMaxKeys(1000);
+        ObjectListing objectListing;
+        do {
+            objectListing = getOssClient().listObjects(request);
+            for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+                String fileName = objectSummary.getKey().substring(path.length());
+                if (!fileName.isEmpty() && !fileName.contains("/")) {
+                    consumer.accept(fileName);
+                }
+            }
+            request.setMarker(objectListing.getNextMarker());
+        } while (objectListing.isTruncated());
+    }
+
+    @Override
+    public String initiateMultipartUpload(String filePath) {
+        return getOssClient().initiateMultipartUpload(new InitiateMultipartUploadRequest(ossConfigProperties.getBucketName(), filePath)).getUploadId();
+    }
+
+    @Override
+    public String uploadPart(String filePath, String uploadId, int partNumber, Path partFile) throws IOException {
+        UploadPartRequest request = new UploadPartRequest(ossConfigProperties.getBucketName(), filePath);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setPartSize(Files.size(partFile));
+        try (InputStream inputStream = Files.newInputStream(partFile)) {
+            request.setInputStream(inputStream);
+            return getOssClient().uploadPart(request).getETag();
+        }
+    }
+
+    /**
+     * 合并到暂存对象，读回计算md5，校验通过后服务端复制到目标对象，最后删除暂存对象
+     */
+    @Override
+    public void completeMultipartUpload(String stagingPath, String uploadId, Map<Integer, String> partMap, String filePath, String md5) throws IOException {
+        String bucketName = ossConfigProperties.getBucketName();
+        getOssClient().completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, stagingPath, uploadId, toPartETagList(partMap)));
+        try {
+            long size;
+            try (OSSObject ossObject = getOssClient().getObject(bucketName, stagingPath)) {
+                size = ossObject.getObjectMetadata().getContentLength();
+                checkMd5(filePath, md5, DigestUtils.md5Hex(ossObject.getObjectContent()));
+            }
+            copy(stagingPath, filePath, size);
+        } finally {
+            getOssClient().deleteObject(bucketName, stagingPath);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String filePath, String uploadId) {
+        getOssClient().abortMultipartUpload(new AbortMultipartUploadRequest(ossConfigProperties.getBucketName(), filePath, uploadId));
+    }
+
     @Override
     public String getFileAccessUrl(String filePath) {
         return ossConfigProperties.getUrl() + filePath;
     }
 
+    @PreDestroy
+    public void destroy() {
+        if (Objects.nonNull(ossClient)) {
+            ossClient.shutdown();
+        }
+    }
+
+    /**
+     * 服务端复制，超过单次复制上限时分片复制
+     *
+     * @param sourcePath 源路径
+     * @param targetPath 目标路径
+     * @param size       文件大小
+     */
+    private void copy(String sourcePath, String targetPath, long size) {
+        String bucketName = ossConfigProperties.getBucketName();
+        if (size <= COPY_PART_SIZE) {
+            getOssClient().copyObject(bucketName, sourcePath, bucketName, targetPath);
+            return;
+        }
+        String uploadId = getOssClient().initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, targetPath)).getUploadId();
+        try {
+            Map<Integer, String> partMap = new HashMap<>(16);
+            for (int partNumber = 1; (long) (partNumber - 1) * COPY_PART_SIZE < size; partNumber++) {
+                long beginIndex = (long) (partNumber - 1) * COPY_PART_SIZE;
+                UploadPartCopyRequest request = new UploadPartCopyRequest(bucketName, sourcePath, bucketName, targetPath,
+                    uploadId, partNumber, beginIndex, Math.min(COPY_PART_SIZE, size - beginIndex));
+                partMap.put(partNumber, getOssClient().uploadPartCopy(request).getETag());
+            }
+            getOssClient().completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, targetPath, uploadId, toPartETagList(partMap)));
+        } catch (RuntimeException e) {
+            getOssClient().abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, targetPath, uploadId));
+            throw e;
+        }
+    }
+
+    private static List<PartETag> toPartETagList(Map<Integer, String> partMap) {
+        return partMap.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new PartETag(entry.getKey(), entry.getValue()))
+            .collect(Collectors.toList());
+    }
+
     /**
      * 获取ossClient
      *
      * @return {@link OSS} ossClient
      */
     private OSS getOssClient() {
-        return new OSSClientBuilder().build(ossConfigProperties.getEndpoint(), ossConfigProperties.getAccessKeyId(), ossConfigProperties.getAccessKeySecret());
+        if (Objects.isNull(ossClient)) {
+            synchronized (this) {
+                if (Objects.isNull(ossClient)) {
+                    ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+                    configuration.setMaxConnections(ossConfigProperties.getMaxConnections());
+                    configuration.setConnectionTimeout(ossConfigProperties.getConnectionTimeout());
+                    configuration.setSocketTimeout(ossConfigProperties.getSocketTimeout());
+                    configuration.setIdleConnectionTime(ossConfigProperties.getIdleConnectionTime());
+                    configuration.setMaxErrorRetry(ossConfigProperties.getMaxErrorRetry());
+                    ossClient = new OSSClientBuilder().build(ossConfigProperties.getEndpoint(), ossConfigProperties.getAccessKeyId(),
+                        ossConfigProperties.getAccessKeySecret(), configuration);
+                }
+            }
+        }
+        return ossClient;
     }
 
 }
@@ -0,0 +1,38 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.strategy.RateLimitStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 滑动窗口限流策略
+ * zset记录窗口内每次请求的时间，任意一段单位时间内的请求数都不超过上限
+ *
+ */
+@Service("slidingWindowRateLimitStrategyImpl")
+public class SlidingWindowRateLimitStrategyImpl implements RateLimitStrategy {
+    @Autowired
+    private RedisService redisService;
+
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        SCRIPT.setLocation(new ClassPathResource("lua/sliding_window.lua"));
+        SCRIPT.setResultType(Long.class);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int maxCount, long seconds) {
+        // 同一毫秒可能有多次请求，成员加随机数区分
+        Long allowed = redisService.execute(SCRIPT, Collections.singletonList(key),
+            maxCount, seconds * 1000, System.currentTimeMillis(), ThreadLocalRandom.current().nextLong(Long.MAX_VALUE));
+        return Long.valueOf(1L).equals(allowed);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.minzheng.blog.service.RedisService;
+import com.minzheng.blog.strategy.RateLimitStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+
+/**
+ * 令牌桶限流策略
+ * 桶容量为单位时间最大请求次数，单位时间内匀速补满，允许突发但长期速率不超过上限
+ *
+ */
+@Service("tokenBucketRateLimitStrategyImpl")
+public class TokenBucketRateLimitStrategyImpl implements RateLimitStrategy {
+    @Autowired
+    private RedisService redisService;
+
+    private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        SCRIPT.setLocation(new ClassPathResource("lua/token_bucket.lua"));
+        SCRIPT.setResultType(Long.class);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int maxCount, long seconds) {
+        Long allowed = redisService.execute(SCRIPT, Collections.singletonList(key),
+            maxCount, seconds * 1000, System.currentTimeMillis());
+        return Long.valueOf(1L).equals(allowed);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.minzheng.blog.util;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 布隆过滤器
+ * 不存在的判断是准确的，存在的判断有一定误判率；位数组用原子操作更新，可以并发读写
+ *
+ */
+public class BloomFilter {
+
+    /**
+     * 位数组
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * 位数
+     */
+    private final long bitSize;
+
+    /**
+     * 哈希函数个数
+     */
+    private final int hashCount;
+
+    /**
+     * 按预计元素数和误判率计算位数和哈希函数个数
+     *
+     * @param expectedSize 预计元素数
+     * @param fpp          误判率
+     */
+    public BloomFilter(long expectedSize, double fpp) {
+        long size = Math.max(expectedSize, 1);
+        long bitSize = (long) (-size * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((Math.max(bitSize, 64) + 63) >>> 6));
+        this.bitSize = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitSize / size * Math.log(2)));
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素
+     */
+    public void put(String value) {
+        long[] hash = MurmurHash.hash128(value);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash, i);
+            int position = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(position);
+            } while ((current & mask) == 0 && !bits.compareAndSet(position, current, current | mask));
+        }
+    }
+
+    /**
+     * 判断元素是否可能存在
+     *
+     * @param value 元素
+     * @return 返回false时一定不存在
+     */
+    public boolean mightContain(String value) {
+        long[] hash = MurmurHash.hash128(value);
+        for (int i = 0; i < hashCount; i++) {
+            long index = index(hash, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 两个哈希值组合出第i个哈希函数
+     */
+    private long index(long[] hash, int i) {
+        return ((hash[0] + i * hash[1]) & Long.MAX_VALUE) % bitSize;
+    }
+
+}
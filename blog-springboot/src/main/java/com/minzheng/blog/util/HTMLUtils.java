@@ -1,9 +1,13 @@
 package com.minzheng.blog.util;
 
+import cn.hutool.core.util.StrUtil;
 import com.github.houbb.sensitive.word.bs.SensitiveWordBs;
 
 /**
  * HTML工具类
+ * 单次顺序扫描过滤，不使用正则：每个字符最多被前向查找和复制各扫过一次，耗时和输入长度成线性；
+ * 标签按浏览器的规则识别（引号内的'>'不结束标签），输出写入线程复用的StringBuilder；
+ * 转义字符在识别标签之前先删除，避免用转义字符拆开的标签（如&lt;scr&amp;lt;ipt&gt;）在删除转义字符后重新拼成标签
  *
  */
 public class HTMLUtils {
@@ -20,38 +24,319 @@ public class HTMLUtils {
             .enableUrlCheck(false)
             .init();
 
+    private static final String IMG = "img";
+
+    private static final String SCRIPT = "script";
+
+    private static final String STYLE = "style";
+
+    /**
+     * 复用缓冲区的最大容量，超过后丢弃避免长期占用内存
+     */
+    private static final int MAX_BUFFER_SIZE = 1 << 16;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
 
     /**
      * 删除标签
+     * 只保留图片标签并去掉其中的事件属性，删除script、style及其内容、转义字符和其他标签，
+     * 不成对的'<'转义为文本
      *
      * @param source 需要进行剔除HTML的文本
      * @return 过滤后的内容
      */
     public static String filter(String source) {
-        //
+        if (StrUtil.isEmpty(source)) {
+            return source;
+        }
         //todo 敏感词过滤,引入SensitiveWordBs工具类
         source = WORD_BS.replace(source);
-        // 保留图片标签
-        source = source.replaceAll("(?!<(img).*?>)<.*?>", "")
-                .replaceAll("(onload(.*?)=)", "")
-                .replaceAll("(onerror(.*?)=)", "");
-        return deleteHMTLTag(source);
+        return sanitize(deleteEntities(source), true);
     }
 
     /**
      * 删除标签
+     * 删除转义字符、script和style标签及其内容，其他标签原样保留
      *
      * @param source 文本
      * @return 过滤后的文本
      */
     public static String deleteHMTLTag(String source) {
-        // 删除转义字符
-        source = source.replaceAll("&.{2,6}?;", "");
-        // 删除script标签
-        source = source.replaceAll("<[\\s]*?script[^>]*?>[\\s\\S]*?<[\\s]*?\\/[\\s]*?script[\\s]*?>", "");
-        // 删除style标签
-        source = source.replaceAll("<[\\s]*?style[^>]*?>[\\s\\S]*?<[\\s]*?\\/[\\s]*?style[\\s]*?>", "");
-        return source;
+        if (StrUtil.isEmpty(source)) {
+            return source;
+        }
+        return sanitize(deleteEntities(source), false);
+    }
+
+    /**
+     * 删除转义字符
+     *
+     * @param source 文本
+     * @return 删除后的文本，没有转义字符时返回原文本
+     */
+    private static String deleteEntities(String source) {
+        int i = source.indexOf('&');
+        if (i < 0) {
+            return source;
+        }
+        StringBuilder out = new StringBuilder(source.length());
+        // 已写入输出的位置
+        int copied = 0;
+        while (i >= 0) {
+            int end = entityEnd(source, i);
+            if (end > 0) {
+                out.append(source, copied, i);
+                copied = end;
+                i = source.indexOf('&', end);
+            } else {
+                i = source.indexOf('&', i + 1);
+            }
+        }
+        return out.append(source, copied, source.length()).toString();
+    }
+
+    /**
+     * 顺序扫描过滤，转义字符已经删除
+     *
+     * @param source    文本
+     * @param filterTag 是否只保留图片标签
+     * @return 过滤后的文本
+     */
+    private static String sanitize(String source, boolean filterTag) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        try {
+            int length = source.length();
+            // 没有结束的标签之后全部按文本处理，避免对每个'<'都向后查找一遍
+            boolean textOnly = false;
+            // script、style后面已经没有结束标签，不再查找
+            boolean scriptClosable = true;
+            boolean styleClosable = true;
+            int i = 0;
+            while (i < length) {
+                char c = source.charAt(i);
+                if (c != '<' || textOnly) {
+                    if (c == '<' && filterTag) {
+                        out.append("&lt;");
+                    } else {
+                        out.append(c);
+                    }
+                    i++;
+                    continue;
+                }
+                boolean script = isTagName(source, i + 1, SCRIPT);
+                if (script || isTagName(source, i + 1, STYLE)) {
+                    // 删除script、style标签及其内容，没有结束标签时只删除开始标签
+                    String name = script ? SCRIPT : STYLE;
+                    int end = tagEnd(source, i + 1 + name.length(), null);
+                    if (end < 0) {
+                        textOnly = true;
+                        continue;
+                    }
+                    int close = (script ? scriptClosable : styleClosable) ? findEndTag(source, end, name) : -1;
+                    if (close < 0) {
+                        if (script) {
+                            scriptClosable = false;
+                        } else {
+                            styleClosable = false;
+                        }
+                        i = end;
+                    } else {
+                        int closeEnd = source.indexOf('>', close);
+                        i = closeEnd < 0 ? length : closeEnd + 1;
+                    }
+                    continue;
+                }
+                if (!filterTag) {
+                    out.append(c);
+                    i++;
+                    continue;
+                }
+                int end = markupEnd(source, i, out);
+                if (end < 0) {
+                    textOnly = true;
+                    continue;
+                }
+                i = end;
+            }
+            return out.toString();
+        } finally {
+            if (out.capacity() > MAX_BUFFER_SIZE) {
+                BUFFER.remove();
+            }
+        }
+    }
+
+    /**
+     * 处理'<'开头的标记，图片标签去掉事件属性后写入，其他标签和注释丢弃，不能开始标签的'<'转义为文本
+     *
+     * @param source 文本
+     * @param start  '<'的位置
+     * @param out    输出
+     * @return 标记结束后的位置，标记没有结束时返回-1
+     */
+    private static int markupEnd(String source, int start, StringBuilder out) {
+        int length = source.length();
+        char next = start + 1 < length ? source.charAt(start + 1) : 0;
+        if (isLetter(next)) {
+            if (isTagName(source, start + 1, IMG)) {
+                int mark = out.length();
+                out.append(source, start, start + 1 + IMG.length());
+                int end = tagEnd(source, start + 1 + IMG.length(), out);
+                if (end < 0) {
+                    out.setLength(mark);
+                }
+                return end;
+            }
+            return tagEnd(source, start + 1, null);
+        }
+        if (next == '/' && start + 2 < length && isLetter(source.charAt(start + 2))) {
+            return tagEnd(source, start + 2, null);
+        }
+        if (source.startsWith("<!--", start)) {
+            int end = source.indexOf("-->", start + 4);
+            return end < 0 ? -1 : end + 3;
+        }
+        if (next == '!' || next == '?' || next == '/') {
+            int end = source.indexOf('>', start + 2);
+            return end < 0 ? -1 : end + 1;
+        }
+        out.append("&lt;");
+        return start + 1;
+    }
+
+    /**
+     * 跳过标签名和属性找到标签结束位置，引号内的'>'不结束标签
+     *
+     * @param source 文本
+     * @param start  标签名开始位置
+     * @param out    输出，不为空时原样写入标签名之后的内容，只去掉事件属性
+     * @return '>'之后的位置，没有结束时返回-1
+     */
+    private static int tagEnd(String source, int start, StringBuilder out) {
+        int length = source.length();
+        int i = start;
+        while (i < length && !isSpace(source.charAt(i)) && source.charAt(i) != '/' && source.charAt(i) != '>') {
+            i++;
+        }
+        // 已写入输出的位置
+        int copied = i;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '>') {
+                if (out != null) {
+                    out.append(source, copied, i + 1);
+                }
+                return i + 1;
+            }
+            if (isSpace(c) || c == '/') {
+                i++;
+                continue;
+            }
+            // 属性名，第一个字符可以是'='
+            int nameStart = i++;
+            while (i < length && !isSpace(source.charAt(i)) && "/>=".indexOf(source.charAt(i)) < 0) {
+                i++;
+            }
+            int nameEnd = i;
+            int j = skipSpace(source, i);
+            if (j < length && source.charAt(j) == '=') {
+                j = skipSpace(source, j + 1);
+                if (j < length && (source.charAt(j) == '"' || source.charAt(j) == '\'')) {
+                    int quote = source.indexOf(source.charAt(j), j + 1);
+                    if (quote < 0) {
+                        return -1;
+                    }
+                    i = quote + 1;
+                } else {
+                    while (j < length && !isSpace(source.charAt(j)) && source.charAt(j) != '>') {
+                        j++;
+                    }
+                    i = j;
+                }
+            }
+            if (out != null && isEventHandler(source, nameStart, nameEnd)) {
+                out.append(source, copied, nameStart);
+                copied = i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 查找结束标签
+     *
+     * @param source 文本
+     * @param start  开始查找的位置
+     * @param name   标签名
+     * @return 结束标签'</'的位置，没有时返回-1
+     */
+    private static int findEndTag(String source, int start, String name) {
+        int i = source.indexOf("</", start);
+        while (i >= 0 && !isTagName(source, i + 2, name)) {
+            i = source.indexOf("</", i + 2);
+        }
+        return i;
+    }
+
+    /**
+     * 转义字符为'&'加2到6个字母、数字或'#'再加';'
+     *
+     * @param source 文本
+     * @param start  '&'的位置
+     * @return 转义字符之后的位置，不是转义字符时返回-1
+     */
+    private static int entityEnd(String source, int start) {
+        int length = Math.min(source.length(), start + 8);
+        for (int i = start + 1; i < length; i++) {
+            char c = source.charAt(i);
+            if (c == ';') {
+                return i - start - 1 >= 2 ? i + 1 : -1;
+            }
+            if (!isLetter(c) && !(c >= '0' && c <= '9') && c != '#') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 标签名忽略大小写相等，且后面是空白、'/'、'>'或文本结尾
+     */
+    private static boolean isTagName(String source, int start, String name) {
+        int end = start + name.length();
+        if (!source.regionMatches(true, start, name, 0, name.length())) {
+            return false;
+        }
+        if (end == source.length()) {
+            return true;
+        }
+        char c = source.charAt(end);
+        return isSpace(c) || c == '/' || c == '>';
+    }
+
+    /**
+     * on开头的属性都是事件属性
+     */
+    private static boolean isEventHandler(String source, int start, int end) {
+        return end - start > 2 && source.regionMatches(true, start, "on", 0, 2);
+    }
+
+    private static int skipSpace(String source, int start) {
+        int i = start;
+        while (i < source.length() && isSpace(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
     }
 
 }
@@ -0,0 +1,38 @@
+package com.minzheng.blog.util;
+
+import java.util.regex.Pattern;
+
+import static com.minzheng.blog.constant.CommonConst.POST_TAG;
+import static com.minzheng.blog.constant.CommonConst.PRE_TAG;
+
+/**
+ * 搜索高亮工具类
+ *
+ */
+public class HighlightUtils {
+
+    /**
+     * 按原文匹配关键词，正则元字符不做特殊处理，大小写和mysql默认排序规则一样不敏感
+     *
+     * @param keywords 关键字
+     * @return 匹配器
+     */
+    public static Pattern compile(String keywords) {
+        return Pattern.compile(Pattern.quote(keywords), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    /**
+     * 给文本中的关键词加上高亮标签，保留原文大小写
+     *
+     * @param pattern 匹配器
+     * @param source  文本
+     * @return 高亮后的文本
+     */
+    public static String highlight(Pattern pattern, String source) {
+        if (source == null) {
+            return null;
+        }
+        return pattern.matcher(source).replaceAll(PRE_TAG + "$0" + POST_TAG);
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.minzheng.blog.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * ip库工具类
+ * 文件格式：magic | version | 区间数 | 地区数 | 地区表(short长度+utf8) | 区间表(起始ip,结束ip,地区下标 各4字节，按起始ip升序)
+ *
+ */
+public class IpDbUtils {
+
+    /**
+     * 文件标识 "IPDB"
+     */
+    public static final int MAGIC = 0x49504442;
+
+    /**
+     * 文件版本
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * 文件头长度
+     */
+    public static final int HEADER_LENGTH = 16;
+
+    /**
+     * 单个区间长度
+     */
+    public static final int RECORD_LENGTH = 12;
+
+    /**
+     * 空值占位
+     */
+    private static final String EMPTY = "0";
+
+    /**
+     * ipv4转无符号整数
+     *
+     * @param ipAddress ip地址
+     * @return 无符号整数，非法ip返回-1
+     */
+    public static long ipToLong(String ipAddress) {
+        if (ipAddress == null) {
+            return -1;
+        }
+        long result = 0;
+        int part = 0;
+        int dots = 0;
+        int digits = 0;
+        for (int i = 0; i < ipAddress.length(); i++) {
+            char c = ipAddress.charAt(i);
+            if (c == '.') {
+                if (digits == 0 || ++dots > 3) {
+                    return -1;
+                }
+                result = result << 8 | part;
+                part = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                if (++digits > 3 || part > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return result << 8 | part;
+    }
+
+    /**
+     * 将ip2region格式的文本库(起始ip|结束ip|国家|区域|省份|城市|运营商)转换成二进制ip库
+     *
+     * @param source 文本库路径
+     * @param target 二进制库路径
+     * @throws IOException io异常
+     */
+    public static void build(Path source, Path target) throws IOException {
+        Map<String, Integer> regionMap = new LinkedHashMap<>();
+        List<long[]> recordList = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] items = line.trim().split("\\|");
+                if (items.length < 2) {
+                    continue;
+                }
+                long start = ipToLong(items[0]);
+                long end = ipToLong(items[1]);
+                if (start < 0 || end < start) {
+                    continue;
+                }
+                String region = getRegion(items);
+                Integer regionId = regionMap.computeIfAbsent(region, key -> regionMap.size());
+                recordList.add(new long[]{start, end, regionId});
+            }
+        }
+        recordList.sort(Comparator.comparingLong(record -> record[0]));
+        // 先写临时文件再替换，避免运行中的服务读到写了一半的文件
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "ipdb", ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(recordList.size());
+            out.writeInt(regionMap.size());
+            for (String region : regionMap.keySet()) {
+                byte[] bytes = region.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            for (long[] record : recordList) {
+                out.writeInt((int) record[0]);
+                out.writeInt((int) record[1]);
+                out.writeInt((int) record[2]);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 拼接省份和城市
+     *
+     * @param items 文本库字段
+     * @return 省份+城市
+     */
+    private static String getRegion(String[] items) {
+        String province = items.length > 4 ? items[4] : EMPTY;
+        String city = items.length > 5 ? items[5] : EMPTY;
+        StringBuilder region = new StringBuilder();
+        if (!EMPTY.equals(province)) {
+            region.append(province);
+        }
+        if (!EMPTY.equals(city) && !city.equals(province)) {
+            region.append(city);
+        }
+        // 国外ip没有省份城市，用国家名
+        if (region.length() == 0 && items.length > 2 && !EMPTY.equals(items[2])) {
+            region.append(items[2]);
+        }
+        return region.toString();
+    }
+
+    /**
+     * 生成ip库 用法：IpDbUtils 文本库路径 二进制库路径
+     *
+     * @param args 参数
+     * @throws IOException io异常
+     */
+    public static void main(String[] args) throws IOException {
+        build(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+}
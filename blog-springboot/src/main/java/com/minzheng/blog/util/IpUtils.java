@@ -8,6 +8,7 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.InetAddress;
 import java.net.URL;
+import java.net.URLConnection;
 import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Map;
@@ -61,7 +62,7 @@ public class IpUtils {
     }
 
     /**
-     * 解析ip地址
+     * 在线解析ip地址，没有本地ip库时使用
      *
      * @param ipAddress ip地址
      * @return 解析后的ip地址
@@ -69,13 +70,16 @@ public class IpUtils {
     public static String getIpSource(String ipAddress) {
         try {
             URL url = new URL("http://opendata.baidu.com/api.php?query=" + ipAddress + "&co=&resource_id=6006&oe=utf8");
-            BufferedReader reader = new BufferedReader(new InputStreamReader(url.openConnection().getInputStream(), "utf-8"));
-            String line = null;
-            StringBuffer result = new StringBuffer();
-            while ((line = reader.readLine()) != null) {
-                result.append(line);
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(3000);
+            connection.setReadTimeout(3000);
+            StringBuilder result = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "utf-8"))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    result.append(line);
+                }
             }
-            reader.close();
             Map map = JSON.parseObject(result.toString(), Map.class);
             List<Map<String, String>> data = (List) map.get("data");
             return data.get(0).get("location");
@@ -0,0 +1,68 @@
+package com.minzheng.blog.util;
+
+import com.minzheng.blog.exception.BizException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 分页游标
+ * 记录上一页最后一条的排序键，下一页从该位置往后查，不用扫描并丢弃前面的行
+ *
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PageCursor {
+
+    /**
+     * 是否置顶，只按id排序的列表为空
+     */
+    private Integer top;
+
+    /**
+     * id
+     */
+    private Integer id;
+
+    /**
+     * 编码成游标字符串
+     *
+     * @return 游标
+     */
+    public String encode() {
+        String value = Objects.isNull(top) ? String.valueOf(id) : top + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串，游标格式要和列表的排序方式一致，
+     * 否则只有id的游标拿去查置顶排序的列表会比较(is_top,id) &lt; (NULL,id)，查出空页
+     *
+     * @param cursor     游标
+     * @param topOrdered 列表是否先按置顶排序
+     * @return {@link PageCursor} 分页游标
+     */
+    public static PageCursor decode(String cursor, boolean topOrdered) {
+        try {
+            String[] items = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+            if (!topOrdered && items.length == 1) {
+                return new PageCursor(null, Integer.valueOf(items[0]));
+            }
+            if (topOrdered && items.length == 2) {
+                PageCursor pageCursor = new PageCursor(Integer.valueOf(items[0]), Integer.valueOf(items[1]));
+                if (pageCursor.getTop() == 0 || pageCursor.getTop() == 1) {
+                    return pageCursor;
+                }
+            }
+        } catch (IllegalArgumentException ignored) {
+            // NumberFormatException也是IllegalArgumentException
+        }
+        throw new BizException("分页游标错误");
+    }
+
+}
@@ -2,7 +2,9 @@ package com.minzheng.blog.util;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * 分页工具类
@@ -12,6 +14,8 @@ public class PageUtils {
 
     private static final ThreadLocal<Page<?>> PAGE_HOLDER = new ThreadLocal<>();
 
+    private static final ThreadLocal<String> CURSOR_HOLDER = new ThreadLocal<>();
+
     public static void setCurrentPage(Page<?> page) {
         PAGE_HOLDER.set(page);
     }
@@ -24,6 +28,15 @@ public class PageUtils {
         return PAGE_HOLDER.get();
     }
 
+    /**
+     * 获取当前线程的分页参数，不存在时返回null，不会创建默认分页
+     *
+     * @return {@link Page} 分页参数
+     */
+    public static Page<?> peekPage() {
+        return PAGE_HOLDER.get();
+    }
+
     /**
      * 当前页
      * @return
@@ -44,8 +57,66 @@ public class PageUtils {
         return (getCurrent() - 1) * getSize();
     }
 
+    /**
+     * 支持游标的接口使用，带游标时从游标位置往后查，不需要偏移
+     *
+     * @param cursor 分页游标
+     * @return 偏移量
+     */
+    public static Long getLimitCurrent(PageCursor cursor) {
+        if (Objects.nonNull(cursor)) {
+            return 0L;
+        }
+        return getLimitCurrent();
+    }
+
+    public static void setCursorParam(String cursor) {
+        CURSOR_HOLDER.set(cursor);
+    }
+
+    /**
+     * 请求里的游标参数，未解析
+     *
+     * @return 游标参数
+     */
+    public static String getCursorParam() {
+        return CURSOR_HOLDER.get();
+    }
+
+    /**
+     * 解析分页游标，只有返回nextCursor的接口调用，其余接口忽略游标参数按页码查
+     *
+     * @param topOrdered 列表是否先按置顶排序
+     * @return {@link PageCursor} 分页游标，未使用游标分页返回null
+     */
+    public static PageCursor getCursor(boolean topOrdered) {
+        String cursor = CURSOR_HOLDER.get();
+        if (Objects.isNull(cursor)) {
+            return null;
+        }
+        return PageCursor.decode(cursor, topOrdered);
+    }
+
+    /**
+     * 根据本页最后一条生成下一页游标，不满一页说明没有下一页
+     *
+     * @param recordList 本页列表
+     * @param topGetter  是否置顶，只按id排序传null
+     * @param idGetter   id
+     * @return 下一页游标
+     */
+    public static <T> String getNextCursor(List<T> recordList, Function<T, Integer> topGetter, Function<T, Integer> idGetter) {
+        if (Objects.isNull(recordList) || recordList.size() < getSize()) {
+            return null;
+        }
+        T last = recordList.get(recordList.size() - 1);
+        Integer top = Objects.isNull(topGetter) ? null : topGetter.apply(last);
+        return new PageCursor(top, idGetter.apply(last)).encode();
+    }
+
     public static void remove() {
         PAGE_HOLDER.remove();
+        CURSOR_HOLDER.remove();
     }
 
 }
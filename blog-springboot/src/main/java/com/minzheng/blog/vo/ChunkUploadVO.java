@@ -0,0 +1,56 @@
+package com.minzheng.blog.vo;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 分片上传VO
+ *
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@ApiModel(description = "分片上传")
+public class ChunkUploadVO {
+
+    /**
+     * 文件名
+     */
+    @NotBlank(message = "文件名不能为空")
+    @ApiModelProperty(name = "fileName", value = "文件名", required = true, dataType = "String")
+    private String fileName;
+
+    /**
+     * 文件大小
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    @ApiModelProperty(name = "fileSize", value = "文件大小", required = true, dataType = "Long")
+    private Long fileSize;
+
+    /**
+     * 文件md5
+     */
+    @NotBlank(message = "文件md5不能为空")
+    @Pattern(regexp = "^[0-9a-fA-F]{32}$", message = "文件md5格式不正确")
+    @ApiModelProperty(name = "md5", value = "文件md5", required = true, dataType = "String")
+    private String md5;
+
+    /**
+     * 上传路径类型
+     */
+    @NotBlank(message = "上传路径不能为空")
+    @ApiModelProperty(name = "type", value = "上传路径类型，如PHOTO、VOICE", required = true, dataType = "String")
+    private String type;
+
+}
@@ -32,4 +32,15 @@ public class PageResult<T> {
     @ApiModelProperty(name = "count", value = "总数", required = true, dataType = "Integer")
     private Integer count;
 
+    /**
+     * 下一页游标
+     */
+    @ApiModelProperty(name = "nextCursor", value = "下一页游标，没有下一页为空", dataType = "String")
+    private String nextCursor;
+
+    public PageResult(List<T> recordList, Integer count) {
+        this.recordList = recordList;
+        this.count = count;
+    }
+
 }
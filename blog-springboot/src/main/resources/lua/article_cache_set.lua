@@ -0,0 +1,10 @@
+-- 文章详情写入redis缓存
+-- KEYS[1] 文章详情key KEYS[2] 文章版本号key
+-- ARGV[1] 加载前读到的版本号 ARGV[2] 文章详情 ARGV[3] 过期时间（秒）
+-- 加载期间文章被修改过（版本号变了）则放弃写入，返回1写入，0放弃
+local version = redis.call('GET', KEYS[2]) or '0'
+if version ~= ARGV[1] then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3])
+return 1
@@ -0,0 +1,14 @@
+-- 滑动窗口限流
+-- KEYS[1] 限流key
+-- ARGV[1] 窗口内最大请求次数 ARGV[2] 窗口长度（毫秒） ARGV[3] 当前时间（毫秒） ARGV[4] 本次请求标识
+-- 返回1允许访问，0拒绝
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+redis.call('ZREMRANGEBYSCORE', KEYS[1], 0, now - window)
+if redis.call('ZCARD', KEYS[1]) < limit then
+    redis.call('ZADD', KEYS[1], now, ARGV[4])
+    redis.call('PEXPIRE', KEYS[1], window)
+    return 1
+end
+return 0
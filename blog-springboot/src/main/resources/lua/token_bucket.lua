@@ -0,0 +1,27 @@
+-- 令牌桶限流
+-- KEYS[1] 限流key
+-- ARGV[1] 桶容量 ARGV[2] 补满时间（毫秒） ARGV[3] 当前时间（毫秒）
+-- 返回1允许访问，0拒绝
+local capacity = tonumber(ARGV[1])
+local interval = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'timestamp')
+local tokens = tonumber(bucket[1])
+local timestamp = tonumber(bucket[2])
+if tokens == nil or timestamp == nil then
+    tokens = capacity
+    timestamp = now
+end
+-- 各实例时钟可能不一致，时间不回退
+if now > timestamp then
+    tokens = math.min(capacity, tokens + (now - timestamp) * capacity / interval)
+    timestamp = now
+end
+local allowed = 0
+if tokens >= 1 then
+    tokens = tokens - 1
+    allowed = 1
+end
+redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'timestamp', tostring(timestamp))
+redis.call('PEXPIRE', KEYS[1], interval)
+return allowed
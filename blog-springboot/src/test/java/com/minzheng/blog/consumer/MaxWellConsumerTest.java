@@ -0,0 +1,102 @@
+package com.minzheng.blog.consumer;
+
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.rabbitmq.client.Channel;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static com.minzheng.blog.constant.MQPrefixConst.MAXWELL_DEAD_LETTER_EXCHANGE;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * maxwell消费失败处理测试
+ *
+ */
+class MaxWellConsumerTest {
+
+    private static final int MAX_RETRIES = 3;
+
+    private MaxWellConsumer maxWellConsumer;
+
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+
+    private RabbitTemplate rabbitTemplate;
+
+    private Channel channel;
+
+    @BeforeEach
+    void setUp() {
+        maxWellConsumer = new MaxWellConsumer();
+        elasticsearchRestTemplate = mock(ElasticsearchRestTemplate.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        channel = mock(Channel.class);
+        ReflectionTestUtils.setField(maxWellConsumer, "elasticsearchRestTemplate", elasticsearchRestTemplate);
+        ReflectionTestUtils.setField(maxWellConsumer, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(maxWellConsumer, "retryInterval", 0L);
+        ReflectionTestUtils.setField(maxWellConsumer, "maxRetries", MAX_RETRIES);
+    }
+
+    @Test
+    void unavailableEsIsRetriedUpToMaxRetriesThenDeadLettered() throws IOException {
+        when(elasticsearchRestTemplate.getIndexCoordinatesFor(ArticleSearchDTO.class))
+            .thenThrow(new ElasticsearchStatusException("unavailable", RestStatus.SERVICE_UNAVAILABLE));
+        maxWellConsumer.process(batch(false), channel);
+        for (int i = 1; i < MAX_RETRIES; i++) {
+            maxWellConsumer.process(batch(true), channel);
+        }
+        verify(channel, times(MAX_RETRIES)).basicNack(anyLong(), eq(true), eq(true));
+        verify(rabbitTemplate, never()).send(any(), any(), any(Message.class));
+
+        maxWellConsumer.process(batch(true), channel);
+        verify(rabbitTemplate).send(eq(MAXWELL_DEAD_LETTER_EXCHANGE), any(), any(Message.class));
+        verify(channel).basicAck(anyLong(), eq(true));
+    }
+
+    @Test
+    void rejectedRequestIsDeadLetteredWithoutRetry() throws IOException {
+        when(elasticsearchRestTemplate.getIndexCoordinatesFor(ArticleSearchDTO.class))
+            .thenThrow(new ElasticsearchStatusException("too large", RestStatus.REQUEST_ENTITY_TOO_LARGE));
+        maxWellConsumer.process(batch(false), channel);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        verify(rabbitTemplate).send(eq(MAXWELL_DEAD_LETTER_EXCHANGE), any(), any(Message.class));
+        verify(channel).basicAck(anyLong(), eq(true));
+    }
+
+    @Test
+    void isRetryable() {
+        assertTrue(MaxWellConsumer.isRetryable(new ConnectException("refused")));
+        assertTrue(MaxWellConsumer.isRetryable(new ElasticsearchStatusException("x", RestStatus.TOO_MANY_REQUESTS)));
+        assertTrue(MaxWellConsumer.isRetryable(new ElasticsearchStatusException("x", RestStatus.BAD_GATEWAY)));
+        assertFalse(MaxWellConsumer.isRetryable(new ElasticsearchStatusException("x", RestStatus.BAD_REQUEST)));
+        assertFalse(MaxWellConsumer.isRetryable(new IllegalArgumentException("mapping")));
+    }
+
+    private static List<Message> batch(boolean redelivered) {
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setDeliveryTag(1L);
+        messageProperties.setRedelivered(redelivered);
+        String body = "{\"database\":\"blog\",\"table\":\"tb_article\",\"type\":\"update\",\"ts\":1700000000,"
+            + "\"data\":{\"id\":1,\"article_title\":\"a\"}}";
+        return Collections.singletonList(new Message(body.getBytes(StandardCharsets.UTF_8), messageProperties));
+    }
+
+}
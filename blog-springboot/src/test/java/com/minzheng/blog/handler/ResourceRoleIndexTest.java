@@ -0,0 +1,96 @@
+package com.minzheng.blog.handler;
+
+import com.minzheng.blog.controller.MonitorController;
+import com.minzheng.blog.dto.ResourceRoleDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 接口角色索引测试
+ *
+ */
+class ResourceRoleIndexTest {
+
+    private static final List<ConfigAttribute> ADMIN = SecurityConfig.createList("admin");
+
+    private final ResourceRoleIndex index = new ResourceRoleIndex(Arrays.asList(
+        resource("/admin/articles", "GET", 0, "admin", "test"),
+        resource("/admin/users/role", "PUT", 0),
+        resource("/admin/public/*", "GET", 1),
+        resource("/articles/*", "GET", 0, "user")
+    ), 100, "/admin/**", "admin");
+
+    @Test
+    void registeredResourceUsesItsRoles() {
+        assertEquals(SecurityConfig.createList("admin", "test"), index.getAttributes("GET", "/admin/articles"));
+        assertEquals(SecurityConfig.createList("user"), index.getAttributes("GET", "/articles/1"));
+    }
+
+    @Test
+    void registeredResourceWithoutRoleIsDisabled() {
+        assertEquals(SecurityConfig.createList("disable"), index.getAttributes("PUT", "/admin/users/role"));
+    }
+
+    @Test
+    void anonymousAdminResourceIsPermitted() {
+        assertNull(index.getAttributes("GET", "/admin/public/info"));
+    }
+
+    @Test
+    void unregisteredAdminResourceRequiresAdmin() {
+        assertEquals(ADMIN, index.getAttributes("POST", "/admin/articles/elasticsearch/reindex"));
+        assertEquals(ADMIN, index.getAttributes("GET", "/admin/articles/elasticsearch/reindex"));
+        // 登记的是GET，其他请求方式也按后台接口处理
+        assertEquals(ADMIN, index.getAttributes("DELETE", "/admin/articles"));
+    }
+
+    @Test
+    void uploadEndpointsRequireAdmin() {
+        assertEquals(ADMIN, index.getAttributes("POST", "/admin/uploads"));
+        assertEquals(ADMIN, index.getAttributes("PUT", "/admin/uploads/abc/chunks/1"));
+        assertEquals(ADMIN, index.getAttributes("GET", "/admin/uploads/abc"));
+        assertEquals(ADMIN, index.getAttributes("POST", "/admin/uploads/abc/complete"));
+        assertEquals(ADMIN, index.getAttributes("DELETE", "/admin/uploads/abc"));
+        assertEquals(ADMIN, index.getAttributes("POST", "/admin/uploads/index"));
+    }
+
+    @Test
+    void monitorEndpointsRequireAdmin() {
+        // 运行指标包含队列长度、错误信息和流量，新增的指标接口也要覆盖到
+        List<String> urlList = Arrays.stream(MonitorController.class.getDeclaredMethods())
+            .map(method -> method.getAnnotation(GetMapping.class))
+            .filter(Objects::nonNull)
+            .flatMap(mapping -> Arrays.stream(mapping.value()))
+            .collect(Collectors.toList());
+        assertFalse(urlList.isEmpty());
+        urlList.forEach(url -> assertEquals(ADMIN, index.getAttributes("GET", url), url));
+        assertEquals(ADMIN, index.getAttributes("GET", "/admin/articles/views/metrics"));
+    }
+
+    @Test
+    void unregisteredFrontResourceIsPermitted() {
+        assertNull(index.getAttributes("GET", "/home"));
+        assertNull(index.getAttributes("GET", "/administrator"));
+    }
+
+    private static ResourceRoleDTO resource(String url, String method, int anonymous, String... roles) {
+        ResourceRoleDTO resourceRoleDTO = new ResourceRoleDTO();
+        resourceRoleDTO.setUrl(url);
+        resourceRoleDTO.setRequestMethod(method);
+        resourceRoleDTO.setIsAnonymous(anonymous);
+        resourceRoleDTO.setRoleList(roles.length == 0 ? Collections.emptyList() : Arrays.asList(roles));
+        return resourceRoleDTO;
+    }
+
+}
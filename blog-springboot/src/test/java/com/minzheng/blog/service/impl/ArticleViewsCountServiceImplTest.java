@@ -0,0 +1,66 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.service.RedisService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.Executor;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.ARTICLE_VIEWS_COUNT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文章浏览量刷入退避测试
+ *
+ */
+class ArticleViewsCountServiceImplTest {
+
+    private ArticleViewsCountServiceImpl articleViewsCountService;
+
+    private RedisService redisService;
+
+    @BeforeEach
+    void setUp() {
+        articleViewsCountService = new ArticleViewsCountServiceImpl();
+        redisService = mock(RedisService.class);
+        ReflectionTestUtils.setField(articleViewsCountService, "redisService", redisService);
+        // 在调用线程中刷入，便于统计次数
+        ReflectionTestUtils.setField(articleViewsCountService, "indexingExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(articleViewsCountService, "flushThreshold", 1L);
+        ReflectionTestUtils.setField(articleViewsCountService, "retryInterval", 60000L);
+        ReflectionTestUtils.setField(articleViewsCountService, "maxRetryInterval", 60000L);
+    }
+
+    @Test
+    void failedFlushBacksOffThresholdAndScheduledFlush() {
+        when(redisService.zIncrBatch(eq(ARTICLE_VIEWS_COUNT), anyMap()))
+            .thenThrow(new RedisConnectionFailureException("down"));
+        for (int i = 0; i < 1000; i++) {
+            articleViewsCountService.incrViewsCount(1);
+        }
+        articleViewsCountService.flush();
+        verify(redisService, times(1)).zIncrBatch(eq(ARTICLE_VIEWS_COUNT), anyMap());
+        assertEquals(1000L, articleViewsCountService.getMetrics().getPendingCount());
+        assertEquals(1L, articleViewsCountService.getMetrics().getFlushFailCount());
+    }
+
+    @Test
+    void destroyFlushesDuringBackoff() {
+        when(redisService.zIncrBatch(eq(ARTICLE_VIEWS_COUNT), anyMap()))
+            .thenThrow(new RedisConnectionFailureException("down"))
+            .thenReturn(Collections.singletonMap(1, 2D));
+        articleViewsCountService.incrViewsCount(1);
+        articleViewsCountService.incrViewsCount(1);
+        articleViewsCountService.destroy();
+        verify(redisService, times(2)).zIncrBatch(any(), anyMap());
+        assertEquals(0L, articleViewsCountService.getMetrics().getPendingCount());
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.minzheng.blog.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.websocket.CloseReason;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 聊天室广播测试
+ *
+ */
+class ChatBroadcastServiceImplTest {
+
+    private ChatBroadcastServiceImpl chatBroadcastService;
+
+    @BeforeEach
+    void setUp() {
+        chatBroadcastService = new ChatBroadcastServiceImpl();
+        // 单分片，保证两个连接在同一个投递线程里
+        ReflectionTestUtils.setField(chatBroadcastService, "shardCount", 1);
+        ReflectionTestUtils.setField(chatBroadcastService, "queueSize", 16);
+        ReflectionTestUtils.setField(chatBroadcastService, "sendTimeout", 1000L);
+        chatBroadcastService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        chatBroadcastService.destroy();
+    }
+
+    @Test
+    void failedSendClosesOnlyThatConnection() throws Exception {
+        RemoteEndpoint.Async brokenRemote = mock(RemoteEndpoint.Async.class);
+        doThrow(new IllegalStateException("closed")).when(brokenRemote).sendText(anyString(), any(SendHandler.class));
+        Session broken = session("1", brokenRemote);
+        RemoteEndpoint.Async healthyRemote = mock(RemoteEndpoint.Async.class);
+        doAnswer(invocation -> {
+            invocation.<SendHandler>getArgument(1).onResult(new SendResult());
+            return null;
+        }).when(healthyRemote).sendText(anyString(), any(SendHandler.class));
+        Session healthy = session("2", healthyRemote);
+        chatBroadcastService.register(broken);
+        chatBroadcastService.register(healthy);
+
+        chatBroadcastService.broadcast("a");
+        chatBroadcastService.broadcast("b");
+
+        verify(healthyRemote, timeout(1000).times(2)).sendText(anyString(), any(SendHandler.class));
+        verify(broken, timeout(1000)).close(any(CloseReason.class));
+        verify(brokenRemote, times(1)).sendText(anyString(), any(SendHandler.class));
+        assertEquals(1, chatBroadcastService.getConnectionCount());
+        assertEquals(1L, chatBroadcastService.getMetrics().getFailedCount());
+        assertEquals(2L, chatBroadcastService.getMetrics().getSentCount());
+    }
+
+    private static Session session(String id, RemoteEndpoint.Async async) {
+        Session session = mock(Session.class);
+        when(session.getId()).thenReturn(id);
+        when(session.getAsyncRemote()).thenReturn(async);
+        return session;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.dao.ArticleDao;
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.minzheng.blog.dto.EsReindexProgressDTO;
+import com.minzheng.blog.service.RedisService;
+import org.apache.ibatis.cursor.Cursor;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.minzheng.blog.constant.RedisPrefixConst.ES_REINDEX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * es重建索引检查点测试
+ *
+ */
+class EsReindexServiceImplTest {
+
+    private EsReindexServiceImpl esReindexService;
+
+    private ElasticsearchRestTemplate elasticsearchRestTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        esReindexService = new EsReindexServiceImpl();
+        ArticleDao articleDao = mock(ArticleDao.class);
+        when(articleDao.selectCount(null)).thenReturn(3);
+        when(articleDao.cursorArticleSearch(anyInt())).thenAnswer(invocation -> {
+            Cursor<ArticleSearchDTO> cursor = mock(Cursor.class);
+            when(cursor.iterator()).thenReturn(Arrays.asList(article(1), article(2), article(3)).iterator());
+            return cursor;
+        });
+        elasticsearchRestTemplate = mock(ElasticsearchRestTemplate.class);
+        when(elasticsearchRestTemplate.getIndexCoordinatesFor(ArticleSearchDTO.class)).thenReturn(IndexCoordinates.of("article"));
+        when(elasticsearchRestTemplate.indexOps(any(IndexCoordinates.class))).thenReturn(mock(IndexOperations.class));
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        // 进度保存在内存里
+        AtomicReference<Object> progress = new AtomicReference<>();
+        RedisService redisService = mock(RedisService.class);
+        doAnswer(invocation -> {
+            progress.set(invocation.getArgument(1));
+            return null;
+        }).when(redisService).set(eq(ES_REINDEX), any());
+        when(redisService.get(ES_REINDEX)).thenAnswer(invocation -> progress.get());
+        ReflectionTestUtils.setField(esReindexService, "articleDao", articleDao);
+        ReflectionTestUtils.setField(esReindexService, "elasticsearchRestTemplate", elasticsearchRestTemplate);
+        ReflectionTestUtils.setField(esReindexService, "restHighLevelClient", mock(RestHighLevelClient.class));
+        ReflectionTestUtils.setField(esReindexService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(esReindexService, "redisService", redisService);
+        // 在调用线程中写入，保证块按顺序完成
+        ReflectionTestUtils.setField(esReindexService, "indexingExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(esReindexService, "chunkSize", 1);
+        ReflectionTestUtils.setField(esReindexService, "concurrency", 3);
+    }
+
+    @Test
+    void resumeCountsOnlyDocumentsUpToCheckpoint() throws InterruptedException {
+        // 第二块失败，第三块成功
+        when(elasticsearchRestTemplate.bulkIndex(anyList(), any(IndexCoordinates.class)))
+            .thenReturn(Collections.emptyList())
+            .thenThrow(new IllegalStateException("bulk failed"))
+            .thenReturn(Collections.emptyList());
+        esReindexService.reindex(false);
+        awaitFinished();
+        EsReindexProgressDTO failed = esReindexService.getProgress();
+        assertEquals("failed", failed.getStatus());
+        assertEquals(2L, failed.getIndexed());
+        assertEquals(1, failed.getLastId());
+        assertEquals(1L, failed.getCheckpointIndexed());
+
+        EsReindexProgressDTO resumed = esReindexService.reindex(true);
+        assertEquals(1, resumed.getLastId());
+        assertEquals(1L, resumed.getIndexed());
+        awaitFinished();
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        AtomicBoolean running = (AtomicBoolean) ReflectionTestUtils.getField(esReindexService, "running");
+        for (int i = 0; i < 100 && running.get(); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(running.get());
+    }
+
+    private static ArticleSearchDTO article(int id) {
+        return ArticleSearchDTO.builder()
+            .id(id)
+            .articleTitle("a")
+            .articleContent("b")
+            .build();
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.minzheng.blog.service.impl;
+
+import com.minzheng.blog.util.IpDbUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地ip库加载测试
+ *
+ */
+class IpLocatorImplTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void searchLoadedDb() throws IOException {
+        IpLocatorImpl ipLocator = locator(build());
+        assertNotNull(ReflectionTestUtils.getField(ipLocator, "ipDb"));
+        assertEquals("广东省深圳市", ipLocator.getIpSource("1.0.8.1"));
+        assertEquals("美国", ipLocator.getIpSource("8.8.8.8"));
+        assertEquals("", ipLocator.getIpSource("9.9.9.9"));
+    }
+
+    @Test
+    void rejectOutOfBoundsRegionIndex() throws IOException {
+        Path db = build();
+        byte[] bytes = Files.readAllBytes(db);
+        // 最后一个区间的地区下标改成越界值
+        ByteBuffer.wrap(bytes).putInt(bytes.length - 4, 99);
+        Files.write(db, bytes);
+        IpLocatorImpl ipLocator = locator(db);
+        assertNull(ReflectionTestUtils.getField(ipLocator, "ipDb"));
+    }
+
+    @Test
+    void rejectTruncatedRegionTable() throws IOException {
+        Path db = build();
+        Files.write(db, Arrays.copyOf(Files.readAllBytes(db), IpDbUtils.HEADER_LENGTH + 3));
+        IpLocatorImpl ipLocator = locator(db);
+        assertNull(ReflectionTestUtils.getField(ipLocator, "ipDb"));
+    }
+
+    private Path build() throws IOException {
+        Path source = dir.resolve("ip.txt");
+        Files.write(source, Arrays.asList(
+            "1.0.8.0|1.0.15.255|中国|0|广东省|深圳市|电信",
+            "8.8.8.0|8.8.8.255|美国|0|0|0|0"), StandardCharsets.UTF_8);
+        Path db = dir.resolve("ip.db");
+        IpDbUtils.build(source, db);
+        return db;
+    }
+
+    private static IpLocatorImpl locator(Path db) {
+        IpLocatorImpl ipLocator = new IpLocatorImpl();
+        ReflectionTestUtils.setField(ipLocator, "dbPath", db.toString());
+        ipLocator.init();
+        return ipLocator;
+    }
+
+}
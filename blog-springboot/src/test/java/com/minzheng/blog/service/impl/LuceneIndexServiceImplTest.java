@@ -0,0 +1,118 @@
+package com.minzheng.blog.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.minzheng.blog.dao.ArticleDao;
+import com.minzheng.blog.dto.ArticleSearchDTO;
+import com.minzheng.blog.entity.Article;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * lucene索引重建期间增量更新测试
+ *
+ */
+class LuceneIndexServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    private LuceneIndexServiceImpl luceneIndexService;
+
+    private ArticleDao articleDao;
+
+    private ExecutorService executorService;
+
+    private final CountDownLatch rebuildStarted = new CountDownLatch(1);
+
+    private final CountDownLatch rebuildReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        // LambdaQueryWrapper需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Article.class);
+        articleDao = mock(ArticleDao.class);
+        // 重建读取文章时阻塞，直到测试放行
+        when(articleDao.cursorArticleSearch(anyInt())).thenAnswer(invocation -> {
+            rebuildStarted.countDown();
+            assertTrue(rebuildReleased.await(5, TimeUnit.SECONDS));
+            Cursor<ArticleSearchDTO> cursor = mock(Cursor.class);
+            when(cursor.iterator()).thenReturn(Collections.singletonList(ArticleSearchDTO.builder()
+                .id(1)
+                .articleTitle("缓存击穿")
+                .articleContent("内容")
+                .isDelete(0)
+                .status(1)
+                .build()).iterator());
+            return cursor;
+        });
+        when(articleDao.selectList(any())).thenReturn(Collections.singletonList(Article.builder()
+            .id(2)
+            .articleTitle("索引重建")
+            .articleContent("内容")
+            .isDelete(0)
+            .status(1)
+            .build()));
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        executorService = Executors.newSingleThreadExecutor();
+        luceneIndexService = new LuceneIndexServiceImpl();
+        ReflectionTestUtils.setField(luceneIndexService, "articleDao", articleDao);
+        ReflectionTestUtils.setField(luceneIndexService, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(luceneIndexService, "indexingExecutor", executorService);
+        ReflectionTestUtils.setField(luceneIndexService, "searchMode", "lucene");
+        ReflectionTestUtils.setField(luceneIndexService, "indexPath", dir.toString());
+        ReflectionTestUtils.setField(luceneIndexService, "maxResults", 10);
+        ReflectionTestUtils.setField(luceneIndexService, "fragmentSize", 200);
+        luceneIndexService.init();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        rebuildReleased.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+        luceneIndexService.destroy();
+    }
+
+    @Test
+    void updateDuringRebuildIsQueuedAndAppliedAfterwards() throws InterruptedException {
+        assertTrue(rebuildStarted.await(5, TimeUnit.SECONDS));
+        // 重建持有写入锁时增量更新不阻塞
+        assertTimeoutPreemptively(Duration.ofSeconds(1),
+            () -> ReflectionTestUtils.invokeMethod(luceneIndexService, "index", Collections.singletonList(2)));
+        verify(articleDao, never()).selectList(any());
+
+        rebuildReleased.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, luceneIndexService.searchArticle("缓存").size());
+        List<ArticleSearchDTO> articleList = luceneIndexService.searchArticle("重建");
+        assertEquals(1, articleList.size());
+        assertEquals(2, articleList.get(0).getId());
+    }
+
+}
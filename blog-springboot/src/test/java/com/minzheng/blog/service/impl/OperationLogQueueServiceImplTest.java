@@ -0,0 +1,114 @@
+package com.minzheng.blog.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.minzheng.blog.dao.OperationLogDao;
+import com.minzheng.blog.entity.OperationLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 操作日志溢出文件补写测试
+ *
+ */
+class OperationLogQueueServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void dataErrorRowsGoToDeadLetterAndTransientErrorsStayInSpill() throws Exception {
+        Path spill = dir.resolve("operation-log.spill");
+        Files.write(spill, Arrays.asList(line(1), line(2), "{broken", line(3)), StandardCharsets.UTF_8);
+        List<Integer> writtenIdList = new ArrayList<>();
+        OperationLogDao operationLogDao = mock(OperationLogDao.class);
+        when(operationLogDao.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<OperationLog> operationLogList = invocation.getArgument(0);
+            List<Integer> idList = operationLogList.stream().map(OperationLog::getId).collect(Collectors.toList());
+            if (idList.contains(3)) {
+                throw new CannotGetJdbcConnectionException("down", new SQLException("down"));
+            }
+            if (idList.contains(2)) {
+                throw new DataIntegrityViolationException("Data too long for column 'opt_url'");
+            }
+            writtenIdList.addAll(idList);
+            return idList.size();
+        });
+        OperationLogQueueServiceImpl service = service(spill, operationLogDao);
+
+        replay(service);
+        assertEquals(Arrays.asList(1), writtenIdList);
+        assertEquals(Arrays.asList(line(2)), Files.readAllLines(dir.resolve("operation-log.spill.dead")));
+        assertEquals(Arrays.asList(line(3)), Files.readAllLines(dir.resolve("operation-log.spill.replaying")));
+
+        // 连接恢复前无论补写多少次都不会移入死信文件
+        for (int i = 0; i < 10; i++) {
+            replay(service);
+        }
+        assertEquals(1, Files.readAllLines(dir.resolve("operation-log.spill.dead")).size());
+        assertEquals(Arrays.asList(line(3)), Files.readAllLines(dir.resolve("operation-log.spill.replaying")));
+
+        reset(operationLogDao);
+        replay(service);
+        assertTrue(Files.notExists(dir.resolve("operation-log.spill.replaying")));
+        assertTrue(Files.notExists(dir.resolve("operation-log.spill.remaining")));
+    }
+
+    @Test
+    void transientErrorKeepsWholeBatch() throws Exception {
+        Path spill = dir.resolve("operation-log.spill");
+        Files.write(spill, Arrays.asList(line(1), line(2), line(3)), StandardCharsets.UTF_8);
+        OperationLogDao operationLogDao = mock(OperationLogDao.class);
+        when(operationLogDao.insertBatch(anyList())).thenThrow(new CannotGetJdbcConnectionException("down", new SQLException("down")));
+        OperationLogQueueServiceImpl service = service(spill, operationLogDao);
+
+        replay(service);
+        assertEquals(Arrays.asList(line(1), line(2), line(3)), Files.readAllLines(dir.resolve("operation-log.spill.replaying")));
+        assertTrue(Files.notExists(dir.resolve("operation-log.spill.dead")));
+        verify(operationLogDao, times(1)).insertBatch(anyList());
+    }
+
+    @Test
+    void isDataError() {
+        assertTrue(OperationLogQueueServiceImpl.isDataError(new DataIntegrityViolationException("x")));
+        assertTrue(OperationLogQueueServiceImpl.isDataError(new RuntimeException(new java.sql.SQLDataException("x"))));
+        assertFalse(OperationLogQueueServiceImpl.isDataError(new CannotGetJdbcConnectionException("x", new SQLException("x"))));
+        assertFalse(OperationLogQueueServiceImpl.isDataError(new RuntimeException("x")));
+    }
+
+    private static OperationLogQueueServiceImpl service(Path spill, OperationLogDao operationLogDao) {
+        OperationLogQueueServiceImpl service = new OperationLogQueueServiceImpl();
+        ReflectionTestUtils.setField(service, "operationLogDao", operationLogDao);
+        ReflectionTestUtils.setField(service, "spillPath", spill.toString());
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "replayInterval", -1L);
+        return service;
+    }
+
+    private static void replay(OperationLogQueueServiceImpl service) {
+        ReflectionTestUtils.invokeMethod(service, "replaySpill");
+    }
+
+    private static String line(int id) {
+        OperationLog operationLog = new OperationLog();
+        operationLog.setId(id);
+        operationLog.setOptUrl("/admin/articles/" + id);
+        return JSON.toJSONString(operationLog);
+    }
+
+}
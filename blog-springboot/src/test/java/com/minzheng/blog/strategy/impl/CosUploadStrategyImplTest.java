@@ -0,0 +1,35 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.minzheng.blog.config.CosConfigProperties;
+
+/**
+ * cos上传策略测试，自定义endpoint时请求路径不带bucket名
+ *
+ */
+class CosUploadStrategyImplTest extends ObjectStorageUploadStrategyTest {
+
+    private static final String BUCKET_NAME = "bucket-1250000000";
+
+    @Override
+    AbstractUploadStrategyImpl createStrategy(String endpoint) {
+        CosConfigProperties properties = new CosConfigProperties();
+        properties.setEndpoint(endpoint);
+        properties.setSecretId("id");
+        properties.setSecretKey("secret");
+        properties.setRegion("ap-guangzhou");
+        properties.setBucketName(BUCKET_NAME);
+        properties.setMaxErrorRetry(0);
+        return new CosUploadStrategyImpl(properties);
+    }
+
+    @Override
+    String getClientFieldName() {
+        return "cosClient";
+    }
+
+    @Override
+    String getRequestPath(String filePath) {
+        return "/" + filePath;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 本地对象存储替身，只实现上传和查询是否存在，记录收到的请求
+ * 请求路径原样作为对象key，路径风格和虚拟主机风格都能用
+ *
+ */
+class ObjectStorageStub implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private final Map<String, byte[]> objectMap = new ConcurrentHashMap<>();
+
+    private final List<Request> requestList = new CopyOnWriteArrayList<>();
+
+    ObjectStorageStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return http://127.0.0.1:端口
+     */
+    String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    List<Request> getRequestList() {
+        return requestList;
+    }
+
+    byte[] getObject(String path) {
+        return objectMap.get(path);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body = readAll(exchange.getRequestBody());
+        requestList.add(new Request(exchange.getRequestMethod(), path, exchange.getRemoteAddress().getPort(),
+            exchange.getRequestHeaders().getFirst("Content-Length"),
+            exchange.getRequestHeaders().getFirst("Transfer-Encoding"), body));
+        exchange.getResponseHeaders().add("x-oss-request-id", "stub");
+        exchange.getResponseHeaders().add("x-cos-request-id", "stub");
+        String method = exchange.getRequestMethod();
+        if ("PUT".equals(method)) {
+            objectMap.put(path, body);
+            exchange.getResponseHeaders().add("ETag", "\"" + DigestUtils.md5Hex(body) + "\"");
+            exchange.sendResponseHeaders(200, -1);
+        } else if ("HEAD".equals(method) || isObjectMeta(exchange)) {
+            // cos用HEAD，oss用GET ?objectMeta查询对象元数据
+            byte[] object = objectMap.get(path);
+            if (object == null) {
+                sendNotFound(exchange, "HEAD".equals(method));
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"" + DigestUtils.md5Hex(object) + "\"");
+                exchange.getResponseHeaders().add("Content-Length", String.valueOf(object.length));
+                exchange.sendResponseHeaders(200, -1);
+            }
+        } else {
+            exchange.sendResponseHeaders(405, -1);
+        }
+        exchange.close();
+    }
+
+    private static boolean isObjectMeta(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getQuery();
+        return "GET".equals(exchange.getRequestMethod()) && query != null && query.contains("objectMeta");
+    }
+
+    /**
+     * 对象不存在，除HEAD外返回xml格式的错误信息
+     */
+    private static void sendNotFound(HttpExchange exchange, boolean head) throws IOException {
+        if (head) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        byte[] error = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Error><Code>NoSuchKey</Code><Message>Not Found</Message><RequestId>stub</RequestId></Error>")
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(404, error.length);
+        exchange.getResponseBody().write(error);
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = inputStream.read(buffer)) > 0) {
+            outputStream.write(buffer, 0, length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 收到的请求
+     */
+    static class Request {
+
+        final String method;
+
+        final String path;
+
+        final int remotePort;
+
+        final String contentLength;
+
+        final String transferEncoding;
+
+        final byte[] body;
+
+        Request(String method, String path, int remotePort, String contentLength, String transferEncoding, byte[] body) {
+            this.method = method;
+            this.path = path;
+            this.remotePort = remotePort;
+            this.contentLength = contentLength;
+            this.transferEncoding = transferEncoding;
+            this.body = body;
+        }
+    }
+
+}
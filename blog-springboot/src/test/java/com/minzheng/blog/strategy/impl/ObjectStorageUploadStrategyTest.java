@@ -0,0 +1,113 @@
+package com.minzheng.blog.strategy.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对象存储上传策略测试，连本地替身服务，各云厂商只提供策略和请求路径
+ *
+ */
+abstract class ObjectStorageUploadStrategyTest {
+
+    private ObjectStorageStub stub;
+
+    private AbstractUploadStrategyImpl strategy;
+
+    /**
+     * 创建连接替身服务的上传策略
+     *
+     * @param endpoint 替身服务地址
+     * @return 上传策略
+     */
+    abstract AbstractUploadStrategyImpl createStrategy(String endpoint);
+
+    /**
+     * @return 策略中客户端的字段名
+     */
+    abstract String getClientFieldName();
+
+    /**
+     * @param filePath 文件路径
+     * @return 替身服务收到的请求路径
+     */
+    abstract String getRequestPath(String filePath);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new ObjectStorageStub();
+        strategy = createStrategy(stub.getEndpoint());
+    }
+
+    @AfterEach
+    void tearDown() {
+        destroy();
+        stub.close();
+    }
+
+    @Test
+    void uploadFileSendsKnownLength(@TempDir Path tempDir) throws Exception {
+        byte[] content = new byte[300 * 1024];
+        new Random(1).nextBytes(content);
+        Path tempFile = Files.write(tempDir.resolve("upload.tmp"), content);
+
+        strategy.upload("articles/", "a.png", tempFile);
+
+        ObjectStorageStub.Request request = stub.getRequestList().get(0);
+        assertEquals("PUT", request.method);
+        assertEquals(getRequestPath("articles/a.png"), request.path);
+        assertEquals(String.valueOf(content.length), request.contentLength);
+        assertNull(request.transferEncoding);
+        assertArrayEquals(content, stub.getObject(request.path));
+    }
+
+    @Test
+    void reusesClientAndConnection(@TempDir Path tempDir) throws Exception {
+        Path tempFile = Files.write(tempDir.resolve("upload.tmp"), new byte[]{1, 2, 3});
+
+        assertFalse(strategy.exists("articles/a.png"));
+        Object client = ReflectionTestUtils.getField(strategy, getClientFieldName());
+        strategy.upload("articles/", "a.png", tempFile);
+        assertTrue(strategy.exists("articles/a.png"));
+
+        assertSame(client, ReflectionTestUtils.getField(strategy, getClientFieldName()));
+        assertEquals(3, stub.getRequestList().size());
+        // 连接池复用同一个连接
+        assertEquals(1, stub.getRequestList().stream().mapToInt(request -> request.remotePort).distinct().count());
+    }
+
+    @Test
+    void destroyShutsDownClient() {
+        strategy.exists("articles/a.png");
+
+        int requestCount = stub.getRequestList().size();
+        destroy();
+
+        assertThrows(RuntimeException.class, () -> strategy.exists("articles/a.png"));
+        // 连接池已关闭，请求发不出去
+        assertEquals(requestCount, stub.getRequestList().size());
+    }
+
+    @Test
+    void destroyWithoutClient() {
+        destroy();
+
+        assertNull(ReflectionTestUtils.getField(strategy, getClientFieldName()));
+    }
+
+    /**
+     * 各策略的destroy由@PreDestroy声明，不在父类中
+     */
+    private void destroy() {
+        ReflectionTestUtils.invokeMethod(strategy, "destroy");
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.minzheng.blog.strategy.impl;
+
+import com.minzheng.blog.config.OssConfigProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * oss上传策略测试，路径风格请求带bucket名
+ *
+ */
+class OssUploadStrategyImplTest extends ObjectStorageUploadStrategyTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    @Override
+    AbstractUploadStrategyImpl createStrategy(String endpoint) {
+        OssConfigProperties properties = new OssConfigProperties();
+        properties.setEndpoint(endpoint);
+        properties.setAccessKeyId("id");
+        properties.setAccessKeySecret("secret");
+        properties.setBucketName(BUCKET_NAME);
+        properties.setMaxErrorRetry(0);
+        OssUploadStrategyImpl strategy = new OssUploadStrategyImpl();
+        ReflectionTestUtils.setField(strategy, "ossConfigProperties", properties);
+        return strategy;
+    }
+
+    @Override
+    String getClientFieldName() {
+        return "ossClient";
+    }
+
+    @Override
+    String getRequestPath(String filePath) {
+        return "/" + BUCKET_NAME + "/" + filePath;
+    }
+
+}
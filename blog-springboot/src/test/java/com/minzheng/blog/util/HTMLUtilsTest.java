@@ -0,0 +1,154 @@
+package com.minzheng.blog.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTML工具类测试
+ * 对比测试只用两种实现结果应该一致的输入，有意改变的行为单独测试
+ *
+ */
+class HTMLUtilsTest {
+
+    private static final int FUZZ_COUNT = 2000;
+
+    private static final String[] TEXT = {"hello", "你好", "😀", " ", "\n", "a;b", "2>1", "100%", "="};
+
+    private static final String[] ENTITY = {"&amp;", "&nbsp;", "&#39;", "&lt;"};
+
+    private static final String[] FILTER_MARKUP = {"<b>", "</b>", "<p class=\"x\">", "<br/>", "<img src=\"a.png\">",
+        "<img src=\"b.png\"/>", "<!-- c -->", "<script></script>", "<style></style>"};
+
+    private static final String[] DELETE_MARKUP = {"<b>", "</b>", "<p class=\"x\">", "<img src=\"a.png\" onerror=\"x\">",
+        "<script>alert(1)</script>", "<script src=\"a.js\"></script>", "<style>p{color:red}</style>",
+        // 标签中间的转义字符
+        "<scr&lt;ipt>alert(1)</script>", "<script>alert(1)</scr&amp;ipt>", "<sty&#39;le>p{}</style>", "<&nbsp;script>a</script>",
+        "<img src=\"a&amp;b.png\">", "<b&nbsp;>", "</s&lt;cript>"};
+
+    /**
+     * 转义字符删除后会拼成危险标签或属性的输入
+     */
+    private static final String[] HOSTILE_MARKUP = {"<scr&lt;ipt>alert(1)</script>", "<sc&amp;ript>", "</scr&#39;ipt>",
+        "<sty&lt;le>p{}</style>", "<img src=x on&amp;error=alert(1)>", "<img src=x o&nbsp;nload=alert(1)>",
+        "<i&lt;mg src=x onerror=alert(1)>", "<&lt;script>", "<i&#39;frame src=x>"};
+
+    @Test
+    void filterMatchesLegacy() {
+        Random random = new Random(20261018L);
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            String source = randomSource(random, FILTER_MARKUP);
+            assertEquals(LegacyHTMLUtils.filter(source), HTMLUtils.filter(source), source);
+        }
+    }
+
+    @Test
+    void deleteHTMLTagMatchesLegacy() {
+        Random random = new Random(20261018L);
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            String source = randomSource(random, DELETE_MARKUP);
+            assertEquals(LegacyHTMLUtils.deleteHMTLTag(source), HTMLUtils.deleteHMTLTag(source), source);
+        }
+    }
+
+    @Test
+    void filterNeverEmitsScriptOrEventHandler() {
+        Random random = new Random(20261018L);
+        for (int i = 0; i < FUZZ_COUNT; i++) {
+            String source = randomSource(random, HOSTILE_MARKUP);
+            String result = HTMLUtils.filter(source).toLowerCase();
+            assertFalse(result.contains("<script") || result.contains("<style") || result.contains("<iframe"), source);
+            assertFalse(result.matches("(?s).*<img[^>]*\\son\\w+=.*"), source);
+        }
+    }
+
+    @Test
+    void emptyInputReturnedAsIs() {
+        assertNull(HTMLUtils.filter(null));
+        assertEquals("", HTMLUtils.filter(""));
+        assertNull(HTMLUtils.deleteHMTLTag(null));
+        assertEquals("", HTMLUtils.deleteHMTLTag(""));
+    }
+
+    @Test
+    void filterKeepsQuotedGreaterThanInImgTag() {
+        assertEquals("<img src=\"a>b.png\">", HTMLUtils.filter("<img src=\"a>b.png\">"));
+    }
+
+    @Test
+    void filterDropsWholeEventHandlerAttribute() {
+        // 只去掉属性本身，前面的空白保留
+        assertEquals("<img src=\"a.png\" >", HTMLUtils.filter("<img src=\"a.png\" onerror=\"alert(1)\">"));
+        assertEquals("<IMG src=\"a.png\" >", HTMLUtils.filter("<IMG src=\"a.png\" OnLoad=alert(1)>"));
+    }
+
+    @Test
+    void filterKeepsEventHandlerTextOutsideTags() {
+        assertEquals("onload=1", HTMLUtils.filter("onload=1"));
+    }
+
+    @Test
+    void filterEscapesStrayLessThan() {
+        assertEquals("1 &lt; 2", HTMLUtils.filter("1 < 2"));
+        assertEquals("&lt;b", HTMLUtils.filter("<b"));
+        // 删除标签后不能和前后文本拼成新标签
+        assertEquals("&lt;img src=x onerror=alert(1)>", HTMLUtils.filter("<<b>img src=x onerror=alert(1)>"));
+    }
+
+    @Test
+    void filterDropsScriptContent() {
+        assertEquals("hi", HTMLUtils.filter("<script>alert(1)</script>hi"));
+        assertEquals("hi", HTMLUtils.filter("<SCRIPT>alert(1)</SCRIPT>hi"));
+    }
+
+    @Test
+    void deleteHTMLTagKeepsTextThatIsNotEntity() {
+        assertEquals("Tom & Jerry;", HTMLUtils.deleteHMTLTag("Tom & Jerry;"));
+        assertEquals("ab", HTMLUtils.deleteHMTLTag("a&amp;b"));
+    }
+
+    @Test
+    void deleteHTMLTagRemovesEntitiesBeforeTags() {
+        assertEquals("x", HTMLUtils.deleteHMTLTag("<scr&lt;ipt>alert(1)</script>x"));
+        assertEquals("x", HTMLUtils.filter("<scr&lt;ipt>alert(1)</script>x"));
+        assertEquals("<img src=x >", HTMLUtils.filter("<img src=x on&amp;error=alert(1)>"));
+    }
+
+    @Test
+    void deleteHTMLTagIgnoresCaseOfScript() {
+        assertEquals("<b>hi</b>", HTMLUtils.deleteHMTLTag("<b><Script>alert(1)</sCRIPT >hi</b>"));
+    }
+
+    @Test
+    void hostileInputRunsInLinearTime() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            builder.append("<img a=\"");
+        }
+        String source = builder.toString();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            HTMLUtils.filter(source);
+            HTMLUtils.deleteHMTLTag(source);
+        });
+    }
+
+    private static String randomSource(Random random, String[] markup) {
+        StringBuilder builder = new StringBuilder();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            int type = random.nextInt(4);
+            if (type == 0) {
+                builder.append(ENTITY[random.nextInt(ENTITY.length)]);
+            } else if (type == 1) {
+                builder.append(markup[random.nextInt(markup.length)]);
+            } else {
+                builder.append(TEXT[random.nextInt(TEXT.length)]);
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.minzheng.blog.util;
+
+import com.github.houbb.sensitive.word.bs.SensitiveWordBs;
+
+/**
+ * 改为顺序扫描之前的正则实现，只用于对比测试和基准测试
+ *
+ */
+class LegacyHTMLUtils {
+
+    private static final SensitiveWordBs WORD_BS = SensitiveWordBs.newInstance()
+            .ignoreCase(true)
+            .ignoreWidth(true)
+            .ignoreNumStyle(true)
+            .ignoreChineseStyle(true)
+            .ignoreEnglishStyle(true)
+            .ignoreRepeat(true)
+            .enableNumCheck(false)
+            .enableEmailCheck(false)
+            .enableUrlCheck(false)
+            .init();
+
+    static String filter(String source) {
+        source = WORD_BS.replace(source);
+        // 保留图片标签
+        source = source.replaceAll("(?!<(img).*?>)<.*?>", "")
+                .replaceAll("(onload(.*?)=)", "")
+                .replaceAll("(onerror(.*?)=)", "");
+        return deleteHMTLTag(source);
+    }
+
+    static String deleteHMTLTag(String source) {
+        // 删除转义字符
+        source = source.replaceAll("&.{2,6}?;", "");
+        // 删除script标签
+        source = source.replaceAll("<[\\s]*?script[^>]*?>[\\s\\S]*?<[\\s]*?\\/[\\s]*?script[\\s]*?>", "");
+        // 删除style标签
+        source = source.replaceAll("<[\\s]*?style[^>]*?>[\\s\\S]*?<[\\s]*?\\/[\\s]*?style[\\s]*?>", "");
+        return source;
+    }
+
+}